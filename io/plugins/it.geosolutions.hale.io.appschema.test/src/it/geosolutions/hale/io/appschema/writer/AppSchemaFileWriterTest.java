@@ -16,6 +16,7 @@
 package it.geosolutions.hale.io.appschema.writer;
 
 import static it.geosolutions.hale.io.appschema.AppSchemaIO.getFirstElementByTagName;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -34,8 +35,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
@@ -59,6 +63,7 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
 
 import de.fhg.igd.slf4jplus.ALogger;
 import de.fhg.igd.slf4jplus.ALoggerFactory;
@@ -70,6 +75,7 @@ import eu.esdihumboldt.hale.common.core.HalePlatform;
 import eu.esdihumboldt.hale.common.core.io.IOProvider;
 import eu.esdihumboldt.hale.common.core.io.IOProviderConfigurationException;
 import eu.esdihumboldt.hale.common.core.io.PathUpdate;
+import eu.esdihumboldt.hale.common.core.io.Value;
 import eu.esdihumboldt.hale.common.core.io.extension.IOProviderDescriptor;
 import eu.esdihumboldt.hale.common.core.io.extension.IOProviderExtension;
 import eu.esdihumboldt.hale.common.core.io.impl.ComplexValue;
@@ -91,6 +97,7 @@ import eu.esdihumboldt.hale.common.schema.model.impl.DefaultSchemaSpace;
 import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.SourceDataStoresPropertyType.DataStore;
 import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.SourceDataStoresPropertyType.DataStore.Parameters;
 import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.SourceDataStoresPropertyType.DataStore.Parameters.Parameter;
+import it.geosolutions.hale.io.appschema.writer.internal.AppSchemaMappingStreamWriter;
 
 @SuppressWarnings("javadoc")
 public class AppSchemaFileWriterTest {
@@ -258,9 +265,184 @@ public class AppSchemaFileWriterTest {
 
 	}
 
+	@Test
+	public void testWriteArchiveInParallel() throws Exception {
+		final File sequentialFile = File.createTempFile(Long.toString(System.currentTimeMillis()),
+				".zip");
+		final File parallelFile = File.createTempFile(Long.toString(System.currentTimeMillis()),
+				".zip");
+
+		try {
+			writeAlignment(sequentialFile, AppSchemaIO.CONTENT_TYPE_ARCHIVE, false, 1);
+			writeAlignment(parallelFile, AppSchemaIO.CONTENT_TYPE_ARCHIVE, false, 8);
+
+			checkArchive(parallelFile);
+			Map<String, byte[]> sequentialEntries = readEntries(sequentialFile);
+			Map<String, byte[]> parallelEntries = readEntries(parallelFile);
+			// same entries, in the same order
+			assertEquals(new ArrayList<>(sequentialEntries.keySet()), new ArrayList<>(
+					parallelEntries.keySet()));
+			for (Map.Entry<String, byte[]> entry : sequentialEntries.entrySet()) {
+				assertArrayEquals(entry.getKey(), entry.getValue(),
+						parallelEntries.get(entry.getKey()));
+			}
+		} finally {
+			sequentialFile.delete();
+			parallelFile.delete();
+		}
+	}
+
+	@Test
+	public void testWriteDirectory() throws Exception {
+		final File archiveFile = File.createTempFile(Long.toString(System.currentTimeMillis()),
+				".zip");
+		final File targetDir = new File(tempDir, "workspaces");
+
+		try {
+			writeAlignment(archiveFile, AppSchemaIO.CONTENT_TYPE_ARCHIVE);
+			writeAlignment(targetDir, AppSchemaIO.CONTENT_TYPE_DIRECTORY);
+
+			// the directory has the same layout and contents as the archive
+			Map<String, byte[]> archiveEntries = readEntries(archiveFile);
+			for (Map.Entry<String, byte[]> entry : archiveEntries.entrySet()) {
+				File file = new File(targetDir, entry.getKey());
+				if (entry.getKey().endsWith("/")) {
+					assertTrue(file.isDirectory());
+				}
+				else {
+					assertArrayEquals(entry.getKey(), entry.getValue(),
+							Files.toByteArray(file));
+					assertTrue(file.setLastModified(1000));
+				}
+			}
+			assertEquals(1, tempDir.list((dir, name) -> name.contains("workspaces")).length);
+
+			// exporting again leaves unchanged files untouched
+			writeAlignment(targetDir, AppSchemaIO.CONTENT_TYPE_DIRECTORY);
+			for (String name : archiveEntries.keySet()) {
+				if (!name.endsWith("/")) {
+					assertEquals(name, 1000, new File(targetDir, name).lastModified());
+				}
+			}
+		} finally {
+			archiveFile.delete();
+			FileUtils.deleteDirectory(targetDir);
+		}
+	}
+
+	@Test
+	public void testWriteMappingFileStreaming() throws Exception {
+
+		final File targetFile = File.createTempFile(Long.toString(System.currentTimeMillis()),
+				".xml");
+
+		try {
+			writeAlignment(targetFile, AppSchemaIO.CONTENT_TYPE_MAPPING, true);
+
+			assertTrue(targetFile.exists());
+			assertTrue(targetFile.length() > 0);
+			assertTrue(isMappingValid(targetFile));
+		} finally {
+			if (targetFile != null)
+				targetFile.delete();
+		}
+
+	}
+
+	@Test
+	public void testStreamingOutputMatchesJaxb() throws Exception {
+		assertStreamingOutputMatchesJaxb(createDataStoreParam());
+	}
+
+	@Test
+	public void testStreamingOutputOmitsNullValues() throws Exception {
+		DataStore dataStoreParam = createDataStoreParam();
+		Parameter nullParam = new Parameter();
+		nullParam.setName("schema");
+		dataStoreParam.getParameters().getParameter().add(nullParam);
+
+		assertStreamingOutputMatchesJaxb(dataStoreParam);
+	}
+
+	private void assertStreamingOutputMatchesJaxb(DataStore dataStoreParam) throws Exception {
+		AppSchemaMappingGenerator generator = new AppSchemaMappingGenerator(alignment,
+				targetSchemaSpace, dataStoreParam, null, null);
+		generator.generateMapping(null);
+
+		ByteArrayOutputStream jaxbOut = new ByteArrayOutputStream();
+		generator.writeMappingConf(jaxbOut);
+
+		ByteArrayOutputStream prettyOut = new ByteArrayOutputStream();
+		generator.setStreamWriter(new AppSchemaMappingStreamWriter(true));
+		generator.writeMappingConf(prettyOut);
+
+		ByteArrayOutputStream compactOut = new ByteArrayOutputStream();
+		generator.setStreamWriter(new AppSchemaMappingStreamWriter(false));
+		generator.writeMappingConf(compactOut);
+
+		assertTrue(compactOut.size() < prettyOut.size());
+
+		List<String> jaxbContent = getLeafElements(readDocument(new ByteArrayInputStream(
+				jaxbOut.toByteArray())));
+		assertFalse(jaxbContent.isEmpty());
+		assertEquals(jaxbContent, getLeafElements(readDocument(new ByteArrayInputStream(
+				prettyOut.toByteArray()))));
+		assertEquals(jaxbContent, getLeafElements(readDocument(new ByteArrayInputStream(
+				compactOut.toByteArray()))));
+	}
+
+	@Test
+	public void testParallelTypeCellTranslation() throws Exception {
+		byte[] sequentialMapping = generateMapping(1);
+		byte[] parallelMapping = generateMapping(4);
+
+		assertTrue(sequentialMapping.length > 0);
+		assertArrayEquals(sequentialMapping, parallelMapping);
+	}
+
+	@Test
+	public void testParallelTypeCellTranslationMerged() throws Exception {
+		AppSchemaMappingGenerator generator = new AppSchemaMappingGenerator(alignment,
+				targetSchemaSpace, createDataStoreParam(), null, null);
+		generator.generateMapping(null);
+		assertEquals(0, generator.getMergedTypeCellCount());
+
+		// the landcover type cells target different types and all namespaces
+		// are registered upfront, so no partial mapping conflicts
+		generator.setTypeCellParallelism(4);
+		generator.generateMapping(null);
+		assertEquals(alignment.getTypeCells().size(), generator.getMergedTypeCellCount());
+	}
+
+	private byte[] generateMapping(int typeCellParallelism) throws IOException {
+		AppSchemaMappingGenerator generator = new AppSchemaMappingGenerator(alignment,
+				targetSchemaSpace, createDataStoreParam(), null, null);
+		generator.setTypeCellParallelism(typeCellParallelism);
+		generator.generateMapping(null);
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		generator.writeMappingConf(bos);
+		return bos.toByteArray();
+	}
+
 	private void writeAlignment(File targetFile, String contentType) throws IOException,
 			IOProviderConfigurationException {
+		writeAlignment(targetFile, contentType, false);
+	}
+
+	private void writeAlignment(File targetFile, String contentType, boolean streamingOutput)
+			throws IOException, IOProviderConfigurationException {
+		writeAlignment(targetFile, contentType, streamingOutput, 0);
+	}
+
+	private void writeAlignment(File targetFile, String contentType, boolean streamingOutput,
+			int archiveParallelism) throws IOException, IOProviderConfigurationException {
 		AbstractAppSchemaConfigurator alignWriter = new AppSchemaMappingFileWriter();
+		alignWriter.setParameter(AppSchemaIO.PARAM_STREAMING_OUTPUT, Value.of(streamingOutput));
+		if (archiveParallelism > 0) {
+			alignWriter.setParameter(AppSchemaIO.PARAM_ARCHIVE_PARALLELISM,
+					Value.of(archiveParallelism));
+		}
 		prepareProvider(alignWriter, project, tempDir.toURI());
 		alignWriter.setAlignment(alignment);
 		alignWriter.setSourceSchema(sourceSchemaSpace);
@@ -506,6 +688,17 @@ public class AppSchemaFileWriterTest {
 		}
 	}
 
+	private Map<String, byte[]> readEntries(File archive) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (ZipInputStream zis = new ZipInputStream(new FileInputStream(archive))) {
+			ZipEntry entry;
+			while ((entry = zis.getNextEntry()) != null) {
+				entries.put(entry.getName(), ByteStreams.toByteArray(zis));
+			}
+		}
+		return entries;
+	}
+
 	private void checkDirEntry(ZipEntry entry, final String dirName) {
 		assertNotNull(entry);
 		assertEquals(dirName, entry.getName());
@@ -533,6 +726,25 @@ public class AppSchemaFileWriterTest {
 
 	}
 
+	/**
+	 * Lists the leaf elements of a document in document order, as
+	 * <code>localName=textContent</code>, ignoring namespace prefixes and
+	 * whitespace.
+	 */
+	private List<String> getLeafElements(Document doc) {
+		List<String> leafElements = new ArrayList<String>();
+		NodeList elements = doc.getDocumentElement().getElementsByTagName("*");
+		for (int i = 0; i < elements.getLength(); i++) {
+			Element element = (Element) elements.item(i);
+			if (element.getElementsByTagName("*").getLength() == 0) {
+				String name = element.getNodeName();
+				name = name.substring(name.indexOf(':') + 1);
+				leafElements.add(name + "=" + element.getTextContent().trim());
+			}
+		}
+		return leafElements;
+	}
+
 	private void checkWorkspaceDocument(Document doc, final String id, final String name) {
 		assertNotNull(doc);
 		assertEquals("workspace", doc.getDocumentElement().getNodeName());
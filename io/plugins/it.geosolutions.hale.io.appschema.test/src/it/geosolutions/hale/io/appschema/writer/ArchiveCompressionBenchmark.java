@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.hale.io.appschema.AppSchemaIO;
+import it.geosolutions.hale.io.appschema.model.FeatureChaining;
+import it.geosolutions.hale.io.appschema.model.WorkspaceConfiguration;
+import it.geosolutions.hale.io.appschema.writer.internal.SchemaBundle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Element;
+
+import de.fhg.igd.slf4jplus.ALogger;
+import de.fhg.igd.slf4jplus.ALoggerFactory;
+import eu.esdihumboldt.hale.common.align.io.impl.JaxbAlignmentReader;
+import eu.esdihumboldt.hale.common.align.model.Alignment;
+import eu.esdihumboldt.hale.common.core.HalePlatform;
+import eu.esdihumboldt.hale.common.core.io.HaleIO;
+import eu.esdihumboldt.hale.common.core.io.PathUpdate;
+import eu.esdihumboldt.hale.common.core.io.ProgressIndicator;
+import eu.esdihumboldt.hale.common.core.io.Value;
+import eu.esdihumboldt.hale.common.core.io.impl.ComplexValue;
+import eu.esdihumboldt.hale.common.core.io.impl.LogProgressIndicator;
+import eu.esdihumboldt.hale.common.core.io.report.IOReport;
+import eu.esdihumboldt.hale.common.core.io.report.IOReporter;
+import eu.esdihumboldt.hale.common.core.io.supplier.DefaultInputSupplier;
+import eu.esdihumboldt.hale.common.core.io.supplier.FileIOSupplier;
+import eu.esdihumboldt.hale.common.schema.SchemaSpaceID;
+import eu.esdihumboldt.hale.common.schema.io.SchemaReader;
+import eu.esdihumboldt.hale.common.schema.model.Schema;
+import eu.esdihumboldt.hale.common.schema.model.impl.DefaultSchemaSpace;
+import eu.esdihumboldt.hale.common.schema.model.impl.DefaultTypeIndex;
+import eu.esdihumboldt.hale.common.schema.persist.hsd.HaleSchemaReader;
+import eu.esdihumboldt.hale.common.test.TestUtil;
+import eu.esdihumboldt.hale.io.xsd.reader.XmlSchemaReader;
+
+/**
+ * Measures archive build time and size of the different archive compression
+ * strategies.
+ * 
+ * <p>
+ * This is a benchmark rather than a unit test: it is not picked up by the
+ * default test includes and must be run explicitly. The target schema bundle
+ * is built once from local schema resources, so that the measurements do not
+ * depend on network access and only cover writing the archive.
+ * </p>
+ */
+public class ArchiveCompressionBenchmark {
+
+	private static final ALogger log = ALoggerFactory.getLogger(ArchiveCompressionBenchmark.class);
+
+	private static final String SOURCE_SCHEMA_PATH = "/data/isolated_workspaces_source.haleschema";
+	private static final String TARGET_SCHEMA_PATH = "/data/stations_gml32.xsd";
+	private static final String ALIGNMENT_PATH = "/data/isolated_workspaces_test.halex.alignment.xml";
+	private static final String FEATURE_CHAINING_CONF = "/data/feature-chaining-isolated-workspaces.xml";
+	private static final String WORKSPACES_CONF = "/data/workspace-conf-isolated-workspaces.xml";
+	private static final QName MEASUREMENTS_QNAME = new QName(
+			"http://www.measurements_gml32.org/1.0", "MeasurementType");
+
+	private static final String SCHEMAS_FOLDER = "schemas";
+
+	private static final int WARMUP_ITERATIONS = 2;
+	private static final int MEASURED_ITERATIONS = 5;
+
+	/**
+	 * Compression levels of schemas, mappings and catalog files, by strategy.
+	 */
+	private static final Map<String, String[]> STRATEGIES = new LinkedHashMap<>();
+
+	static {
+		STRATEGIES.put("default", new String[] { "stored", "default", "default" });
+		STRATEGIES.put("deflated", new String[] { "default", "default", "default" });
+		STRATEGIES.put("best", new String[] { "9", "9", "9" });
+		STRATEGIES.put("stored", new String[] { "stored", "stored", "stored" });
+	}
+
+	private static DefaultSchemaSpace sourceSchemaSpace;
+	private static DefaultSchemaSpace targetSchemaSpace;
+	private static Alignment alignment;
+	private static FeatureChaining featureChainingConf;
+	private static WorkspaceConfiguration workspaceConf;
+
+	/**
+	 * Temporary folder holding the schema bundles and archives.
+	 */
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	/**
+	 * Load the schemas, alignment and configuration of the isolated
+	 * workspaces stations mapping.
+	 * 
+	 * @throws Exception if an error occurs
+	 */
+	@BeforeClass
+	public static void loadStations() throws Exception {
+		TestUtil.startConversionService();
+
+		sourceSchemaSpace = new DefaultSchemaSpace();
+		sourceSchemaSpace.addSchema(loadSchema(new HaleSchemaReader(), SOURCE_SCHEMA_PATH));
+		targetSchemaSpace = new DefaultSchemaSpace();
+		targetSchemaSpace.addSchema(loadSchema(new XmlSchemaReader(), TARGET_SCHEMA_PATH));
+		targetSchemaSpace.toggleMappingRelevant(Collections.singletonList(targetSchemaSpace
+				.getType(MEASUREMENTS_QNAME)));
+
+		JaxbAlignmentReader alignReader = new JaxbAlignmentReader();
+		alignReader.setSource(new DefaultInputSupplier(getResourceURI(ALIGNMENT_PATH)));
+		alignReader.setSourceSchema(sourceSchemaSpace);
+		alignReader.setTargetSchema(targetSchemaSpace);
+		alignReader.setPathUpdater(new PathUpdate(null, null));
+		assertTrue(alignReader.execute(new LogProgressIndicator()).isSuccess());
+		alignment = alignReader.getAlignment();
+
+		featureChainingConf = HaleIO.getComplexValue(loadXmlResource(FEATURE_CHAINING_CONF),
+				FeatureChaining.class, null);
+		AppSchemaMappingUtils.resolvePropertyTypes(featureChainingConf, targetSchemaSpace,
+				SchemaSpaceID.TARGET);
+		workspaceConf = HaleIO.getComplexValue(loadXmlResource(WORKSPACES_CONF),
+				WorkspaceConfiguration.class, null);
+	}
+
+	/**
+	 * Benchmark the archive of the isolated workspaces stations mapping.
+	 * 
+	 * @throws Exception if an error occurs
+	 */
+	@Test
+	public void testStations() throws Exception {
+		Map<String, Result> results = run("stations", new String[] { TARGET_SCHEMA_PATH,
+				"/data/measurements_gml32.xsd" }, writer -> {
+			writer.setAlignment(alignment);
+			writer.setSourceSchema(sourceSchemaSpace);
+			writer.setTargetSchema(targetSchemaSpace);
+			writer.setParameter(AppSchemaIO.PARAM_CHAINING, new ComplexValue(featureChainingConf));
+			writer.setParameter(AppSchemaIO.PARAM_WORKSPACE, new ComplexValue(workspaceConf));
+		});
+
+		assertTrue(results.get("stored").getSize() > results.get("best").getSize());
+		assertTrue(results.get("default").getSize() < results.get("stored").getSize());
+	}
+
+	private static Schema loadSchema(SchemaReader schemaReader, String resource)
+			throws Exception {
+		schemaReader.setSharedTypes(new DefaultTypeIndex());
+		schemaReader.setSource(new DefaultInputSupplier(getResourceURI(resource)));
+		assertTrue(schemaReader.execute(null).isSuccess());
+		return schemaReader.getSchema();
+	}
+
+	private static Element loadXmlResource(String resource) throws Exception {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		try (InputStream in = ArchiveCompressionBenchmark.class.getResourceAsStream(resource)) {
+			return factory.newDocumentBuilder().parse(in).getDocumentElement();
+		}
+	}
+
+	private static URI getResourceURI(String resource) throws URISyntaxException {
+		return ArchiveCompressionBenchmark.class.getResource(resource).toURI();
+	}
+
+	/**
+	 * Configures the writer under test.
+	 */
+	@FunctionalInterface
+	private interface WriterConfigurer {
+
+		/**
+		 * @param writer the writer to configure
+		 * @throws Exception if an error occurs
+		 */
+		void configure(AppSchemaMappingFileWriter writer) throws Exception;
+	}
+
+	/**
+	 * Result of a benchmark run.
+	 */
+	private static class Result {
+
+		private final long averageMillis;
+		private final long size;
+
+		private Result(long averageMillis, long size) {
+			this.averageMillis = averageMillis;
+			this.size = size;
+		}
+
+		/**
+		 * @return the average archive build time in milliseconds
+		 */
+		long getAverageMillis() {
+			return averageMillis;
+		}
+
+		/**
+		 * @return the archive size in bytes
+		 */
+		long getSize() {
+			return size;
+		}
+	}
+
+	/**
+	 * Run the benchmark for all compression strategies, bundling the provided
+	 * schema resources.
+	 * 
+	 * @param dataset the name of the dataset, used for logging
+	 * @param schemaResources the class path resources of the target schema
+	 * @param configurer configures the writer
+	 * @return the results, by strategy name
+	 * @throws Exception if an error occurs
+	 */
+	private Map<String, Result> run(String dataset, String[] schemaResources,
+			WriterConfigurer configurer) throws Exception {
+		File workDir = tmpFolder.newFolder(dataset);
+		SchemaBundle bundle = createBundle(schemaResources, workDir);
+
+		Map<String, Result> results = new LinkedHashMap<>();
+		for (Map.Entry<String, String[]> strategy : STRATEGIES.entrySet()) {
+			File archive = new File(workDir, dataset + "-" + strategy.getKey() + ".zip");
+			for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+				writeArchive(configurer, bundle, strategy.getValue(), archive);
+			}
+			long start = System.nanoTime();
+			for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+				writeArchive(configurer, bundle, strategy.getValue(), archive);
+			}
+			long averageMillis = (System.nanoTime() - start) / MEASURED_ITERATIONS / 1000000;
+
+			Result result = new Result(averageMillis, archive.length());
+			log.info("{} archive, {} compression: {} ms, {} bytes", dataset, strategy.getKey(),
+					result.getAverageMillis(), result.getSize());
+			results.put(strategy.getKey(), result);
+		}
+
+		return results;
+	}
+
+	private SchemaBundle createBundle(String[] schemaResources, File workDir)
+			throws IOException {
+		File schemaDir = new File(workDir, "schema-sources");
+		for (String resource : schemaResources) {
+			try (InputStream in = getClass().getResourceAsStream(resource)) {
+				assertNotNull(resource, in);
+				FileUtils.copyInputStreamToFile(in,
+						new File(schemaDir, resource.substring(resource.lastIndexOf('/') + 1)));
+			}
+		}
+		Map<String, String> schemaURIs = new HashMap<>();
+		for (String resource : schemaResources) {
+			schemaURIs.put(getClass().getResource(resource).toString(), SCHEMAS_FOLDER + "/"
+					+ resource.substring(resource.lastIndexOf('/') + 1));
+		}
+		return SchemaBundle.create(new File(workDir, "bundle"),
+				Collections.singletonMap(SCHEMAS_FOLDER, schemaDir), schemaURIs);
+	}
+
+	private void writeArchive(WriterConfigurer configurer, final SchemaBundle bundle,
+			String[] levels, File archive) throws Exception {
+		AppSchemaMappingFileWriter writer = new AppSchemaMappingFileWriter() {
+
+			@Override
+			protected SchemaBundle getSchemaBundle(ProgressIndicator progress,
+					IOReporter reporter) {
+				return bundle;
+			}
+		};
+		configurer.configure(writer);
+		writer.setParameter(AppSchemaIO.PARAM_INCLUDE_SCHEMA, Value.of(true));
+		writer.setParameter(AppSchemaIO.PARAM_COMPRESSION_SCHEMAS, Value.of(levels[0]));
+		writer.setParameter(AppSchemaIO.PARAM_COMPRESSION_MAPPINGS, Value.of(levels[1]));
+		writer.setParameter(AppSchemaIO.PARAM_COMPRESSION_CATALOG, Value.of(levels[2]));
+		writer.setTarget(new FileIOSupplier(archive));
+		writer.setContentType(HalePlatform.getContentTypeManager().getContentType(
+				AppSchemaIO.CONTENT_TYPE_ARCHIVE));
+
+		IOReport report = writer.execute(new LogProgressIndicator());
+		assertNotNull(report);
+		assertTrue(report.isSuccess());
+	}
+
+}
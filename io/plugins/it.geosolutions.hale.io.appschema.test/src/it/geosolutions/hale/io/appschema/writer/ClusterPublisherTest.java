@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import it.geosolutions.hale.io.geoserver.rest.ResourceException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.esdihumboldt.hale.common.core.io.report.IOReporter;
+import eu.esdihumboldt.hale.common.core.io.report.impl.DefaultIOReporter;
+import eu.esdihumboldt.hale.common.core.io.supplier.Locatable;
+
+/**
+ * Tests publishing to the nodes of a cluster with {@link ClusterPublisher},
+ * against stubbed nodes.
+ */
+public class ClusterPublisherTest {
+
+	private URL node1;
+	private URL node2;
+	private URL node3;
+	private Map<URL, AtomicInteger> attempts;
+	private IOReporter reporter;
+
+	/**
+	 * Set up the node URLs and the reporter.
+	 * 
+	 * @throws Exception if a node URL is invalid
+	 */
+	@Before
+	public void setUp() throws Exception {
+		node1 = new URL("http://node1:8080/geoserver");
+		node2 = new URL("http://node2:8080/geoserver");
+		node3 = new URL("http://node3:8080/geoserver");
+		attempts = new ConcurrentHashMap<URL, AtomicInteger>();
+		reporter = new DefaultIOReporter(new Locatable() {
+
+			@Override
+			public URI getLocation() {
+				return null;
+			}
+		}, "Publish to cluster", "test", false);
+	}
+
+	/**
+	 * Tests that all nodes are published to concurrently.
+	 * 
+	 * @throws Exception if publishing fails
+	 */
+	@Test
+	public void testFanOut() throws Exception {
+		List<URL> nodes = Arrays.asList(node1, node2, node3);
+		// every node waits for all the others to be started
+		CountDownLatch started = new CountDownLatch(nodes.size());
+
+		new ClusterPublisher(1, 0).publish(nodes, nodeURL -> {
+			countAttempt(nodeURL);
+			started.countDown();
+			try {
+				if (!started.await(10, TimeUnit.SECONDS)) {
+					throw new IOException("Nodes were not published to concurrently");
+				}
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+		}, reporter);
+
+		for (URL node : nodes) {
+			assertEquals(1, attempts.get(node).get());
+		}
+		assertEquals(nodes.size(), reporter.getInfos().size());
+		assertTrue(reporter.getErrors().isEmpty());
+	}
+
+	/**
+	 * Tests that each node is retried independently of the others.
+	 * 
+	 * @throws Exception if publishing fails
+	 */
+	@Test
+	public void testRetryPerNode() throws Exception {
+		new ClusterPublisher(3, 0).publish(Arrays.asList(node1, node2, node3), nodeURL -> {
+			int attempt = countAttempt(nodeURL);
+			if (nodeURL.equals(node2) && attempt < 3) {
+				throw new IOException("Connection refused");
+			}
+			if (nodeURL.equals(node3) && attempt < 2) {
+				throw new ResourceException("Service unavailable");
+			}
+		}, reporter);
+
+		assertEquals(1, attempts.get(node1).get());
+		assertEquals(3, attempts.get(node2).get());
+		assertEquals(2, attempts.get(node3).get());
+		assertEquals(3, reporter.getInfos().size());
+		assertTrue(reporter.getErrors().isEmpty());
+	}
+
+	/**
+	 * Tests that a node failing all attempts does not prevent publishing to
+	 * the others, and that the failure is reported.
+	 */
+	@Test
+	public void testPartialFailure() {
+		try {
+			new ClusterPublisher(2, 0).publish(Arrays.asList(node1, node2, node3), nodeURL -> {
+				countAttempt(nodeURL);
+				if (nodeURL.equals(node2)) {
+					throw new IOException("Connection refused");
+				}
+			}, reporter);
+			fail("Publishing should have failed");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("1 of 3"));
+			assertTrue(e.getMessage().contains(node2.toString()));
+		}
+
+		assertEquals(1, attempts.get(node1).get());
+		assertEquals(2, attempts.get(node2).get());
+		assertEquals(1, attempts.get(node3).get());
+		assertEquals(2, reporter.getInfos().size());
+		assertEquals(1, reporter.getErrors().size());
+		assertTrue(reporter.getErrors().iterator().next().getMessage().contains(node2.toString()));
+	}
+
+	private int countAttempt(URL nodeURL) {
+		attempts.putIfAbsent(nodeURL, new AtomicInteger());
+		return attempts.get(nodeURL).incrementAndGet();
+	}
+
+}
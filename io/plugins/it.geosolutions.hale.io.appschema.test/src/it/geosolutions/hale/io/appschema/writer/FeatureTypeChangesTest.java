@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests computing the feature type changes of an incremental datastore update
+ * with {@link FeatureTypeChanges}.
+ */
+public class FeatureTypeChangesTest {
+
+	/**
+	 * Tests that feature types no longer mapped are deleted, newly mapped ones
+	 * are created and all others are kept.
+	 */
+	@Test
+	public void testChanges() {
+		FeatureTypeChanges changes = new FeatureTypeChanges(
+				names("MappedFeature", "GeologicUnit", "Borehole"),
+				names("GeologicUnit", "MappedFeature", "GeologicEvent", "ShearDisplacement"));
+
+		assertEquals(Arrays.asList("Borehole"), new ArrayList<String>(changes.getToDelete()));
+		assertEquals(Arrays.asList("GeologicEvent", "ShearDisplacement"),
+				new ArrayList<String>(changes.getToCreate()));
+		assertEquals(Arrays.asList("GeologicUnit", "MappedFeature"),
+				new ArrayList<String>(changes.getToKeep()));
+	}
+
+	/**
+	 * Tests that nothing is changed if the same feature types are mapped.
+	 */
+	@Test
+	public void testNoChanges() {
+		FeatureTypeChanges changes = new FeatureTypeChanges(
+				names("MappedFeature", "GeologicUnit"), names("GeologicUnit", "MappedFeature"));
+
+		assertTrue(changes.getToDelete().isEmpty());
+		assertTrue(changes.getToCreate().isEmpty());
+		assertEquals(2, changes.getToKeep().size());
+	}
+
+	/**
+	 * Tests that all feature types are created in an empty datastore, and all
+	 * are deleted if none is mapped.
+	 */
+	@Test
+	public void testEmpty() {
+		Set<String> none = Collections.emptySet();
+
+		FeatureTypeChanges changes = new FeatureTypeChanges(none,
+				names("MappedFeature", "GeologicUnit"));
+		assertEquals(names("MappedFeature", "GeologicUnit"), changes.getToCreate());
+		assertTrue(changes.getToDelete().isEmpty());
+		assertTrue(changes.getToKeep().isEmpty());
+
+		changes = new FeatureTypeChanges(names("MappedFeature", "GeologicUnit"), none);
+		assertEquals(names("MappedFeature", "GeologicUnit"), changes.getToDelete());
+		assertTrue(changes.getToCreate().isEmpty());
+		assertTrue(changes.getToKeep().isEmpty());
+	}
+
+	private Set<String> names(String... names) {
+		return new LinkedHashSet<String>(Arrays.asList(names));
+	}
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import it.geosolutions.hale.io.geoserver.Namespace;
+import it.geosolutions.hale.io.geoserver.ResourceBuilder;
+import it.geosolutions.hale.io.geoserver.rest.AsyncResourceManager;
+import it.geosolutions.hale.io.geoserver.rest.NamespaceManager;
+import it.geosolutions.hale.io.geoserver.rest.ResourceException;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests publishing namespaces with {@link NamespacePublisher}, against a
+ * stubbed GeoServer node where no namespace exists yet.
+ */
+public class NamespacePublisherTest {
+
+	private ExecutorService executor;
+	private List<String> events;
+	private Set<String> failingPrefixes;
+	private NamespacePublisher publisher;
+
+	/**
+	 * Create a publisher backed by stub namespace managers, which don't issue
+	 * any request.
+	 * 
+	 * @throws Exception if the GeoServer URL is invalid
+	 */
+	@Before
+	public void setUp() throws Exception {
+		URL geoserverURL = new URL("http://localhost:8080/geoserver");
+		executor = Executors.newFixedThreadPool(4);
+		events = Collections.synchronizedList(new ArrayList<String>());
+		failingPrefixes = Collections.emptySet();
+		publisher = new NamespacePublisher(new AsyncResourceManager<Namespace>(
+				() -> new StubNamespaceManager(geoserverURL), executor));
+	}
+
+	/**
+	 * Shut down the executor.
+	 */
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Tests that the main namespace is created before any secondary one.
+	 */
+	@Test
+	public void testMainNamespaceFirst() {
+		publisher.publish(namespace("main"),
+				Arrays.asList(namespace("ns1"), namespace("ns2"), namespace("ns3"))).join();
+
+		assertEquals(8, events.size());
+		int mainCreated = events.indexOf("created main");
+		assertEquals(1, mainCreated);
+		for (String prefix : Arrays.asList("ns1", "ns2", "ns3")) {
+			assertTrue(events.indexOf("create " + prefix) > mainCreated);
+			assertTrue(events.contains("created " + prefix));
+		}
+	}
+
+	/**
+	 * Tests that secondary namespaces are not created if the main one fails.
+	 */
+	@Test
+	public void testMainNamespaceFailure() {
+		failingPrefixes = ImmutableSet.of("main");
+		try {
+			publisher.publish(namespace("main"), Arrays.asList(namespace("ns1"))).join();
+			fail("Expected failure");
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof ResourceException);
+		}
+
+		assertEquals(Arrays.asList("create main"), events);
+	}
+
+	/**
+	 * Tests that all failures of secondary namespaces are collected in a
+	 * single exception, after every secondary namespace was attempted.
+	 */
+	@Test
+	public void testSecondaryNamespaceFailures() {
+		failingPrefixes = ImmutableSet.of("ns1", "ns3");
+		try {
+			publisher.publish(namespace("main"),
+					Arrays.asList(namespace("ns1"), namespace("ns2"), namespace("ns3"))).join();
+			fail("Expected failure");
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof ResourceException);
+			String message = e.getCause().getMessage();
+			assertTrue(message, message.contains("2 of 3 namespaces"));
+			assertTrue(message, message.contains("ns1 (ns1 could not be created)"));
+			assertTrue(message, message.contains("ns3 (ns3 could not be created)"));
+			assertFalse(message, message.contains("ns2 ("));
+
+			// the first failure is the cause, the others are suppressed
+			assertEquals("ns1 could not be created", e.getCause().getCause().getMessage());
+			Throwable[] suppressed = e.getCause().getSuppressed();
+			assertEquals(1, suppressed.length);
+			assertEquals("ns3 could not be created", suppressed[0].getMessage());
+		}
+
+		assertTrue(events.contains("created ns2"));
+	}
+
+	private static Namespace namespace(String prefix) {
+		return ResourceBuilder.namespace(prefix)
+				.setAttribute(Namespace.URI, "http://www.example.com/" + prefix).build();
+	}
+
+	private class StubNamespaceManager extends NamespaceManager {
+
+		private StubNamespaceManager(URL geoserverURL) {
+			super(geoserverURL);
+		}
+
+		@Override
+		public Document list() {
+			// no namespace exists
+			return null;
+		}
+
+		@Override
+		public URL create(Map<String, String> parameters) {
+			String prefix = resource.name();
+			events.add("create " + prefix);
+			if (failingPrefixes.contains(prefix)) {
+				throw new ResourceException(prefix + " could not be created");
+			}
+			try {
+				// give secondary namespaces a chance to overtake the main one
+				Thread.sleep(prefix.equals("main") ? 50 : 1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			events.add("created " + prefix);
+			return null;
+		}
+	}
+
+}
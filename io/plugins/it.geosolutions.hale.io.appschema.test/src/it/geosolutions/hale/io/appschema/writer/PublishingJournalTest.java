@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.hale.io.appschema.writer.PublishingJournal.Step;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests recording and resuming publishing steps with
+ * {@link PublishingJournal}.
+ */
+public class PublishingJournalTest {
+
+	private static final String TARGET = "http://localhost:8080/geoserver/gsml/ds";
+
+	/**
+	 * Temporary folder holding the journals.
+	 */
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	/**
+	 * Tests that completed steps are resumed for the same content only, and
+	 * forgotten once the journal is closed.
+	 * 
+	 * @throws Exception if the journal cannot be read or written
+	 */
+	@Test
+	public void testResume() throws Exception {
+		File dir = tmpFolder.getRoot();
+
+		PublishingJournal journal = PublishingJournal.open(dir, TARGET, "digest1");
+		assertFalse(journal.isResuming());
+		journal.complete(Step.NAMESPACES);
+		journal.complete(Step.DATASTORE_REMOVED);
+
+		// same content: resume after the last completed step
+		journal = PublishingJournal.open(dir, TARGET, "digest1");
+		assertTrue(journal.isResuming());
+		assertTrue(journal.isCompleted(Step.NAMESPACES));
+		assertTrue(journal.isCompleted(Step.DATASTORE_REMOVED));
+		assertFalse(journal.isCompleted(Step.MAPPING_UPLOADED));
+
+		// other target: nothing to resume
+		assertFalse(PublishingJournal.open(dir, TARGET + "2", "digest1").isResuming());
+
+		// changed content: start over
+		assertFalse(PublishingJournal.open(dir, TARGET, "digest2").isResuming());
+
+		journal.close();
+		assertFalse(PublishingJournal.open(dir, TARGET, "digest1").isResuming());
+	}
+
+	/**
+	 * Tests that a transient journal never resumes.
+	 * 
+	 * @throws Exception if the journal cannot be written
+	 */
+	@Test
+	public void testTransient() throws Exception {
+		PublishingJournal journal = PublishingJournal.transientJournal();
+		journal.complete(Step.NAMESPACES);
+		assertTrue(journal.isCompleted(Step.NAMESPACES));
+		journal.close();
+		assertFalse(journal.isCompleted(Step.NAMESPACES));
+	}
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import it.geosolutions.hale.io.appschema.writer.internal.ArchiveCompression.EntryClass;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+/**
+ * Tests {@link ArchiveBuilder}.
+ */
+public class ArchiveBuilderTest {
+
+	/**
+	 * Temporary folder holding directory output.
+	 */
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private static final int ENTRY_COUNT = 50;
+
+	/**
+	 * Test that the archive does not depend on the parallelism.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Test
+	public void testDeterministicOrder() throws IOException {
+		Map<String, byte[]> sequential = readEntries(build(1));
+		Map<String, byte[]> parallel = readEntries(build(8));
+
+		assertEquals(2 * ENTRY_COUNT + 1, sequential.size());
+		assertEquals(new ArrayList<>(sequential.keySet()), new ArrayList<>(parallel.keySet()));
+		for (Map.Entry<String, byte[]> entry : sequential.entrySet()) {
+			assertArrayEquals(entry.getKey(), entry.getValue(), parallel.get(entry.getKey()));
+		}
+	}
+
+	/**
+	 * Test that entries added after a step are rendered after the step has
+	 * run.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Test
+	public void testStepIsBarrier() throws IOException {
+		final AtomicReference<String> value = new AtomicReference<>("before");
+		ArchiveBuilder builder = new ArchiveBuilder(new ArchiveCompression(), 4);
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			builder.addEntry("before" + i, EntryClass.MAPPING, out -> out.write(value.get()
+					.getBytes(StandardCharsets.UTF_8)));
+		}
+		builder.addStep(() -> value.set("after"));
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			builder.addEntry("after" + i, EntryClass.MAPPING, out -> out.write(value.get()
+					.getBytes(StandardCharsets.UTF_8)));
+		}
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (ZipOutputStream zos = new ZipOutputStream(bos)) {
+			builder.writeTo(zos);
+		}
+
+		Map<String, byte[]> entries = readEntries(bos.toByteArray());
+		assertEquals(2 * ENTRY_COUNT, entries.size());
+		for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+			assertTrue(entry.getKey().startsWith(new String(entry.getValue(),
+					StandardCharsets.UTF_8)));
+		}
+	}
+
+	/**
+	 * Test that entries written to a directory match those of the archive.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Test
+	public void testWriteToDirectory() throws IOException {
+		ArchiveBuilder builder = createBuilder(4);
+		File directory = tmpFolder.newFolder("archive");
+		builder.writeTo(directory);
+
+		Map<String, byte[]> entries = readEntries(build(1));
+		for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+			File file = new File(directory, entry.getKey());
+			if (entry.getKey().endsWith("/")) {
+				assertTrue(file.isDirectory());
+			}
+			else {
+				assertArrayEquals(entry.getKey(), entry.getValue(), Files.toByteArray(file));
+			}
+		}
+	}
+
+	/**
+	 * Test that rendering errors are propagated.
+	 */
+	@Test
+	public void testRenderingError() {
+		ArchiveBuilder builder = new ArchiveBuilder(new ArchiveCompression(), 4);
+		builder.addEntry("ok", EntryClass.CATALOG, out -> out.write(1));
+		builder.addEntry("failing", EntryClass.CATALOG, out -> {
+			throw new IOException("rendering failed");
+		});
+
+		try (ZipOutputStream zos = new ZipOutputStream(new ByteArrayOutputStream())) {
+			builder.writeTo(zos);
+			fail("Rendering error was not propagated");
+		} catch (IOException e) {
+			assertEquals("rendering failed", e.getMessage());
+		}
+	}
+
+	private byte[] build(int parallelism) throws IOException {
+		ArchiveBuilder builder = createBuilder(parallelism);
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (ZipOutputStream zos = new ZipOutputStream(bos)) {
+			builder.writeTo(zos);
+		}
+		return bos.toByteArray();
+	}
+
+	private ArchiveBuilder createBuilder(int parallelism) {
+		ArchiveBuilder builder = new ArchiveBuilder(new ArchiveCompression(), parallelism);
+		builder.addDirectory("root/");
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			final String content = "entry " + i;
+			builder.addEntry("root/catalog" + i + ".xml", EntryClass.CATALOG,
+					out -> out.write(content.getBytes(StandardCharsets.UTF_8)));
+			builder.addEntry("root/mapping" + i + ".xml", EntryClass.MAPPING, out -> {
+				for (int j = 0; j < 100; j++) {
+					out.write(content.getBytes(StandardCharsets.UTF_8));
+				}
+			});
+		}
+		return builder;
+	}
+
+	private Map<String, byte[]> readEntries(byte[] archive) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(archive))) {
+			ZipEntry entry;
+			while ((entry = zis.getNextEntry()) != null) {
+				entries.put(entry.getName(), ByteStreams.toByteArray(zis));
+			}
+		}
+		return entries;
+	}
+
+}
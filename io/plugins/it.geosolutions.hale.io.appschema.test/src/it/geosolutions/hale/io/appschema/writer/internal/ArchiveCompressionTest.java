@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import it.geosolutions.hale.io.appschema.writer.internal.ArchiveCompression.EntryClass;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Tests {@link ArchiveCompression}.
+ */
+public class ArchiveCompressionTest {
+
+	private static final byte[] MAPPING = Strings.repeat("<mapping/>", 100).getBytes(
+			StandardCharsets.UTF_8);
+	private static final byte[] CATALOG = "<workspace/>".getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * Test parsing of compression levels.
+	 */
+	@Test
+	public void testParseLevel() {
+		assertEquals(ArchiveCompression.STORED, ArchiveCompression.parseLevel("stored"));
+		assertEquals(ArchiveCompression.STORED, ArchiveCompression.parseLevel(" STORED "));
+		assertEquals(Deflater.DEFAULT_COMPRESSION, ArchiveCompression.parseLevel("default"));
+		assertEquals(0, ArchiveCompression.parseLevel("0"));
+		assertEquals(9, ArchiveCompression.parseLevel("9"));
+	}
+
+	/**
+	 * Test that invalid compression levels are rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseInvalidLevel() {
+		ArchiveCompression.parseLevel("10");
+	}
+
+	/**
+	 * Test the default levels of the entry classes.
+	 */
+	@Test
+	public void testDefaultLevels() {
+		// bundled schemas are copied as-is, generated entries are deflated
+		ArchiveCompression compression = new ArchiveCompression();
+		assertEquals(ArchiveCompression.STORED, compression.getLevel(EntryClass.SCHEMA));
+		assertEquals(Deflater.DEFAULT_COMPRESSION, compression.getLevel(EntryClass.MAPPING));
+		assertEquals(Deflater.DEFAULT_COMPRESSION, compression.getLevel(EntryClass.CATALOG));
+
+		compression = ArchiveCompression.uniform(Deflater.BEST_COMPRESSION);
+		for (EntryClass entryClass : EntryClass.values()) {
+			assertEquals(Deflater.BEST_COMPRESSION, compression.getLevel(entryClass));
+		}
+	}
+
+	/**
+	 * Test that stored and deflated entries are written with the expected
+	 * method and can be read back.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Test
+	public void testWriteEntries() throws IOException {
+		ArchiveCompression compression = new ArchiveCompression();
+		compression.setLevel(EntryClass.CATALOG, ArchiveCompression.STORED);
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (ZipOutputStream zos = new ZipOutputStream(bos)) {
+			compression.writeEntry(zos, "workspace.xml", EntryClass.CATALOG,
+					out -> out.write(CATALOG));
+			compression.writeEntry(zos, "mapping.appschema", EntryClass.MAPPING,
+					out -> out.write(MAPPING));
+		}
+
+		try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(
+				bos.toByteArray()))) {
+			ZipEntry entry = zis.getNextEntry();
+			assertNotNull(entry);
+			assertEquals("workspace.xml", entry.getName());
+			assertEquals(ZipEntry.STORED, entry.getMethod());
+			assertEquals(CATALOG.length, entry.getSize());
+			assertArrayEquals(CATALOG, ByteStreams.toByteArray(zis));
+
+			entry = zis.getNextEntry();
+			assertNotNull(entry);
+			assertEquals("mapping.appschema", entry.getName());
+			assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+			assertArrayEquals(MAPPING, ByteStreams.toByteArray(zis));
+
+			assertNull(zis.getNextEntry());
+		}
+	}
+
+}
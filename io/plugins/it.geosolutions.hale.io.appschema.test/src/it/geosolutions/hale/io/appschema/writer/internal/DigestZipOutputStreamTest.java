@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import org.junit.Test;
+
+/**
+ * Tests the stability of the digest computed by {@link DigestZipOutputStream}.
+ */
+public class DigestZipOutputStreamTest {
+
+	/**
+	 * Tests that the digest depends neither on entry timestamps nor on the
+	 * compression level, but only on entry names and contents.
+	 * 
+	 * @throws Exception if an error occurs writing the archives
+	 */
+	@Test
+	public void testDigestIsStable() throws Exception {
+		byte[] digest = digest(Deflater.DEFAULT_COMPRESSION, 1000L, "mapping", "content");
+
+		assertArrayEquals(digest,
+				digest(Deflater.NO_COMPRESSION, 2000L, "mapping", "content"));
+		assertFalse(Arrays.equals(digest,
+				digest(Deflater.DEFAULT_COMPRESSION, 1000L, "mapping", "changed")));
+		assertFalse(Arrays.equals(digest,
+				digest(Deflater.DEFAULT_COMPRESSION, 1000L, "renamed", "content")));
+		// moving bytes from the entry name to its contents changes the digest
+		assertFalse(Arrays.equals(digest,
+				digest(Deflater.DEFAULT_COMPRESSION, 1000L, "mappin", "gcontent")));
+	}
+
+	private byte[] digest(int level, long time, String entryName, String content)
+			throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		try (DigestZipOutputStream zos = new DigestZipOutputStream(new ByteArrayOutputStream(),
+				digest)) {
+			zos.setLevel(level);
+			ZipEntry entry = new ZipEntry(entryName);
+			entry.setTime(time);
+			zos.putNextEntry(entry);
+			zos.write(content.getBytes(StandardCharsets.UTF_8));
+			zos.closeEntry();
+		}
+
+		return digest.digest();
+	}
+
+}
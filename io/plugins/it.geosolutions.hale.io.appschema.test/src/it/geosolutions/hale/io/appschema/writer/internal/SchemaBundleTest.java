@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+/**
+ * Tests creation and splicing of {@link SchemaBundle}s.
+ */
+public class SchemaBundleTest {
+
+	/**
+	 * Temporary folder holding the bundled resources and the bundles.
+	 */
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private Map<String, File> folders;
+	private Map<String, String> schemaURIs;
+
+	/**
+	 * Create the resource folders to bundle.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Before
+	public void setUp() throws IOException {
+		File resources = tmpFolder.newFolder("resources");
+		write(new File(resources, "a/test.xsd"), "<schema name=\"test\"/>");
+		write(new File(resources, "a/include/included.xsd"), "<schema name=\"included\"/>");
+		write(new File(resources, "b/gml.xsd"), "<schema name=\"gml\"/>");
+
+		// insertion order differs from name order
+		folders = new LinkedHashMap<String, File>();
+		folders.put("_schemas1", new File(resources, "b"));
+		folders.put("_schemas", new File(resources, "a"));
+		schemaURIs = new LinkedHashMap<String, String>();
+		schemaURIs.put("http://www.example.com/test.xsd", "_schemas/test.xsd");
+		schemaURIs.put("http://www.opengis.net/gml/3.2.1/gml.xsd", "_schemas1/gml.xsd");
+	}
+
+	/**
+	 * Tests that a bundle is spliced into an archive as stored entries, in
+	 * folder name order.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Test
+	public void testWriteTo() throws IOException {
+		File bundleDir = new File(tmpFolder.getRoot(), "bundles/test");
+		assertNull(SchemaBundle.open(bundleDir));
+		SchemaBundle bundle = SchemaBundle.create(bundleDir, folders, schemaURIs);
+		assertEquals(schemaURIs, bundle.getSchemaURIs());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ZipOutputStream zos = new ZipOutputStream(out)) {
+			zos.putNextEntry(new ZipEntry("ws/"));
+			bundle.writeTo(zos, "ws/");
+		}
+
+		List<String> names = new ArrayList<String>();
+		try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+			ZipEntry entry;
+			while ((entry = zis.getNextEntry()) != null) {
+				names.add(entry.getName());
+				if (!entry.isDirectory()) {
+					assertEquals(ZipEntry.STORED, entry.getMethod());
+				}
+				if (entry.getName().equals("ws/_schemas/include/included.xsd")) {
+					assertEquals("<schema name=\"included\"/>", new String(
+							ByteStreams.toByteArray(zis), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		assertEquals(Arrays.asList("ws/", "ws/_schemas/", "ws/_schemas/test.xsd",
+				"ws/_schemas/include/", "ws/_schemas/include/included.xsd", "ws/_schemas1/",
+				"ws/_schemas1/gml.xsd"), names);
+	}
+
+	/**
+	 * Tests that an existing bundle is reused.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Test
+	public void testReuse() throws IOException {
+		File bundleDir = new File(tmpFolder.getRoot(), "bundles/test");
+		SchemaBundle.create(bundleDir, folders, schemaURIs);
+
+		// resources are not read again
+		Map<String, File> otherFolders = new LinkedHashMap<String, File>();
+		otherFolders.put("_schemas", tmpFolder.newFolder("empty"));
+		SchemaBundle bundle = SchemaBundle.create(bundleDir, otherFolders, schemaURIs);
+		assertNotNull(bundle);
+		assertEquals("<schema name=\"test\"/>", Files.toString(new File(bundle.getDirectory(),
+				"files/_schemas/test.xsd"), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Tests that the digest of a directory tree depends on file names and
+	 * contents.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Test
+	public void testDigest() throws IOException {
+		File dir = folders.get("_schemas");
+		String digest = SchemaBundle.digest(dir);
+		assertEquals(digest, SchemaBundle.digest(dir));
+
+		write(new File(dir, "include/included.xsd"), "<schema name=\"changed\"/>");
+		assertNotEquals(digest, SchemaBundle.digest(dir));
+	}
+
+	private static void write(File file, String content) throws IOException {
+		file.getParentFile().mkdirs();
+		Files.write(content, file, StandardCharsets.UTF_8);
+	}
+
+}
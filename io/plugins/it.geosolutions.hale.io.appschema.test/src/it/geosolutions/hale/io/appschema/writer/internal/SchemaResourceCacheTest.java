@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.Files;
+
+import it.geosolutions.hale.io.appschema.writer.internal.SchemaResourceCache.ResourceCopier;
+
+/**
+ * Tests lookup and population of the {@link SchemaResourceCache}.
+ */
+public class SchemaResourceCacheTest {
+
+	private static final URI SCHEMA_URI = URI.create("http://www.example.com/schemas/test.xsd");
+
+	/**
+	 * Temporary folder holding the cache.
+	 */
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private SchemaResourceCache cache;
+	private AtomicInteger copyCount;
+
+	/**
+	 * Create an empty cache whose entries never expire.
+	 * 
+	 * @throws IOException if the cache directory cannot be created
+	 */
+	@Before
+	public void setUp() throws IOException {
+		cache = new SchemaResourceCache(tmpFolder.newFolder("cache"), Long.MAX_VALUE);
+		copyCount = new AtomicInteger();
+	}
+
+	/**
+	 * Tests that a resource is copied only once while its entry is valid.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Test
+	public void testValidEntry() throws IOException {
+		File entry = cache.get(SCHEMA_URI, "test.xsd", copier("v1", "v1"));
+		assertEquals("v1", read(new File(entry, "test.xsd")));
+		assertEquals("v1", read(new File(entry, "include/included.xsd")));
+
+		File cachedEntry = cache.get(SCHEMA_URI, "test.xsd", copier("v2", "v2"));
+		assertEquals(entry, cachedEntry);
+		assertEquals("v1", read(new File(cachedEntry, "test.xsd")));
+		assertEquals(1, copyCount.get());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	/**
+	 * Tests that an expired entry is copied again, and that a change to an
+	 * included schema alone gets a new entry.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Test
+	public void testExpiredEntry() throws IOException {
+		SchemaResourceCache expiring = new SchemaResourceCache(cache.getDirectory(), 0);
+
+		File entry = expiring.get(SCHEMA_URI, "test.xsd", copier("v1", "v1"));
+		File unchangedEntry = expiring.get(SCHEMA_URI, "test.xsd", copier("v1", "v1"));
+		assertEquals(entry, unchangedEntry);
+		assertEquals(2, copyCount.get());
+
+		File changedEntry = expiring.get(SCHEMA_URI, "test.xsd", copier("v1", "v2"));
+		assertNotEquals(entry, changedEntry);
+		assertEquals("v1", read(new File(changedEntry, "test.xsd")));
+		assertEquals("v2", read(new File(changedEntry, "include/included.xsd")));
+		assertEquals(3, copyCount.get());
+		assertEquals(3, expiring.getMissCount());
+
+		// the previous entry is left untouched
+		assertEquals("v1", read(new File(entry, "include/included.xsd")));
+	}
+
+	/**
+	 * Tests that the latest entry of a resource can be retrieved even if it
+	 * has expired, e.g. when the resource cannot be retrieved.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Test
+	public void testLatest() throws IOException {
+		assertNull(cache.getLatest(SCHEMA_URI, "test.xsd"));
+
+		SchemaResourceCache expiring = new SchemaResourceCache(cache.getDirectory(), 0);
+		expiring.get(SCHEMA_URI, "test.xsd", copier("v1", "v1"));
+		File latest = expiring.get(SCHEMA_URI, "test.xsd", copier("v2", "v2"));
+
+		// a new instance sharing the directory, e.g. in a later session
+		SchemaResourceCache reopened = new SchemaResourceCache(cache.getDirectory(), 0);
+		assertEquals(latest, reopened.getLatest(SCHEMA_URI, "test.xsd"));
+		assertNull(reopened.getLatest(SCHEMA_URI, "other.xsd"));
+		assertNull(reopened.getLatest(URI.create("http://www.example.com/other.xsd"),
+				"test.xsd"));
+	}
+
+	/**
+	 * Tests that a failed copy leaves no entry behind.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Test
+	public void testFailedCopy() throws IOException {
+		try {
+			cache.get(SCHEMA_URI, "test.xsd", target -> {
+				throw new IOException("Connection refused");
+			});
+		} catch (IOException e) {
+			// expected
+		}
+		assertNull(cache.getLatest(SCHEMA_URI, "test.xsd"));
+
+		File entry = cache.get(SCHEMA_URI, "test.xsd", copier("v1", "v1"));
+		assertTrue(new File(entry, "test.xsd").isFile());
+	}
+
+	private ResourceCopier copier(String content, String includedContent) {
+		return new ResourceCopier() {
+
+			@Override
+			public void copy(Path target) throws IOException {
+				copyCount.incrementAndGet();
+				File schema = target.toFile();
+				File included = new File(schema.getParentFile(), "include/included.xsd");
+				included.getParentFile().mkdirs();
+				Files.write(content, schema, StandardCharsets.UTF_8);
+				Files.write(includedContent, included, StandardCharsets.UTF_8);
+			}
+		};
+	}
+
+	private static String read(File file) throws IOException {
+		return Files.toString(file, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.Files;
+
+/**
+ * Tests {@link StagedDirectory}.
+ */
+public class StagedDirectoryTest {
+
+	/**
+	 * Temporary folder holding the target and staging directories.
+	 */
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private File targetDir;
+
+	/**
+	 * Create the target directory path.
+	 */
+	@Before
+	public void setUp() {
+		targetDir = new File(tmpFolder.getRoot(), "workspaces");
+	}
+
+	/**
+	 * Test that staged files are moved to the target directory and the
+	 * staging directory is removed.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Test
+	public void testCommit() throws IOException {
+		try (StagedDirectory directory = new StagedDirectory(targetDir)) {
+			stage(directory, "ws/workspace.xml", "workspace");
+			stage(directory, "ws/ds/datastore.xml", "datastore");
+			directory.commit();
+
+			assertEquals(Arrays.asList("ws/ds/datastore.xml", "ws/workspace.xml"),
+					directory.getWrittenFiles());
+			assertEquals(0, directory.getUnchangedCount());
+		}
+
+		assertContent("workspace", "ws/workspace.xml");
+		assertContent("datastore", "ws/ds/datastore.xml");
+		// only the target directory is left
+		assertEquals(Collections.singletonList(targetDir.getName()),
+				Arrays.asList(tmpFolder.getRoot().list()));
+	}
+
+	/**
+	 * Test that unchanged files are not replaced, while changed and new files
+	 * are.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Test
+	public void testSkipUnchanged() throws IOException {
+		try (StagedDirectory directory = new StagedDirectory(targetDir)) {
+			stage(directory, "ws/workspace.xml", "workspace");
+			stage(directory, "ws/namespace.xml", "namespace");
+			stage(directory, "stale.xml", "stale");
+			directory.commit();
+		}
+		File unchanged = new File(targetDir, "ws/workspace.xml");
+		assertTrue(unchanged.setLastModified(1000));
+
+		try (StagedDirectory directory = new StagedDirectory(targetDir)) {
+			stage(directory, "ws/workspace.xml", "workspace");
+			stage(directory, "ws/namespace.xml", "namespace changed");
+			stage(directory, "ws/ds/datastore.xml", "datastore");
+			directory.commit();
+
+			assertEquals(Arrays.asList("ws/ds/datastore.xml", "ws/namespace.xml"),
+					directory.getWrittenFiles());
+			assertEquals(1, directory.getUnchangedCount());
+		}
+
+		assertEquals(1000, unchanged.lastModified());
+		assertContent("namespace changed", "ws/namespace.xml");
+		assertContent("datastore", "ws/ds/datastore.xml");
+		// files that are not staged are left untouched
+		assertContent("stale", "stale.xml");
+	}
+
+	/**
+	 * Test that nothing is written to the target directory if the changes are
+	 * not committed.
+	 * 
+	 * @throws IOException if an error occurs
+	 */
+	@Test
+	public void testNoCommit() throws IOException {
+		try (StagedDirectory directory = new StagedDirectory(targetDir)) {
+			stage(directory, "ws/workspace.xml", "workspace");
+		}
+
+		assertTrue(targetDir.isDirectory());
+		assertEquals(0, targetDir.list().length);
+		assertFalse(new File(targetDir, "ws").exists());
+	}
+
+	private void stage(StagedDirectory directory, String path, String content)
+			throws IOException {
+		File file = new File(directory.getStagingDirectory(), path);
+		Files.createParentDirs(file);
+		Files.write(content.getBytes(StandardCharsets.UTF_8), file);
+	}
+
+	private void assertContent(String expected, String path) throws IOException {
+		assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8),
+				Files.toByteArray(new File(targetDir, path)));
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer.internal.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Test;
+
+import eu.esdihumboldt.hale.common.align.model.ChildContext;
+import eu.esdihumboldt.hale.common.schema.model.PropertyDefinition;
+import eu.esdihumboldt.hale.common.schema.model.impl.DefaultPropertyDefinition;
+import eu.esdihumboldt.hale.common.schema.model.impl.DefaultTypeDefinition;
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.AppSchemaDataAccessType;
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.AttributeMappingType;
+import it.geosolutions.hale.io.appschema.writer.AppSchemaMappingUtils;
+
+/**
+ * Tests that attribute mappings are kept apart for different mappings of the
+ * same feature type.
+ */
+public class AppSchemaMappingWrapperAttributeMappingTest {
+
+	private static final String NS = "http://www.example.com/test";
+
+	private static final DefaultTypeDefinition ABSTRACT_FEATURE_TYPE = new DefaultTypeDefinition(
+			new QName(AppSchemaMappingUtils.GML_BASE_NAMESPACE + "/3.2",
+					AppSchemaMappingUtils.GML_ABSTRACT_FEATURE_TYPE));
+
+	@Test
+	public void testAttributeMappingsByMappingName() {
+		AppSchemaMappingWrapper wrapper = new AppSchemaMappingWrapper(
+				new AppSchemaDataAccessType());
+		DefaultTypeDefinition featureType = createFeatureType();
+		List<ChildContext> path = createPath(featureType);
+
+		assertAttributeMappingsByMappingName(wrapper, featureType, path);
+	}
+
+	@Test
+	public void testMongoAttributeMappingsByMappingName() {
+		MongoAppSchemaMappingWrapper wrapper = new MongoAppSchemaMappingWrapper(
+				new AppSchemaDataAccessType());
+		DefaultTypeDefinition featureType = createFeatureType();
+		List<ChildContext> path = createPath(featureType);
+
+		assertAttributeMappingsByMappingName(wrapper, featureType, path);
+
+		// attribute mappings without a path are always distinct
+		List<ChildContext> emptyPath = Collections.emptyList();
+		assertNotSame(wrapper.getOrCreateAttributeMapping(featureType, "first", emptyPath),
+				wrapper.getOrCreateAttributeMapping(featureType, "first", emptyPath));
+	}
+
+	private void assertAttributeMappingsByMappingName(AppSchemaMappingWrapperBase wrapper,
+			DefaultTypeDefinition featureType, List<ChildContext> path) {
+		AttributeMappingType unnamed = wrapper.getOrCreateAttributeMapping(featureType, null,
+				path);
+		AttributeMappingType first = wrapper.getOrCreateAttributeMapping(featureType, "first",
+				path);
+		AttributeMappingType second = wrapper.getOrCreateAttributeMapping(featureType,
+				"second", path);
+
+		assertNotSame(unnamed, first);
+		assertNotSame(unnamed, second);
+		assertNotSame(first, second);
+
+		// the same mapping name yields the same attribute mapping
+		assertSame(unnamed, wrapper.getOrCreateAttributeMapping(featureType, "", path));
+		assertSame(first, wrapper.getOrCreateAttributeMapping(featureType, "first", path));
+		assertSame(second, wrapper.getOrCreateAttributeMapping(featureType, "second", path));
+
+		// each attribute mapping is added to its own feature type mapping
+		assertEquals(Arrays.asList(unnamed), wrapper.getOrCreateFeatureTypeMapping(featureType)
+				.getAttributeMappings().getAttributeMapping());
+		assertEquals(Arrays.asList(first),
+				wrapper.getOrCreateFeatureTypeMapping(featureType, "first")
+						.getAttributeMappings().getAttributeMapping());
+		assertEquals(Arrays.asList(second),
+				wrapper.getOrCreateFeatureTypeMapping(featureType, "second")
+						.getAttributeMappings().getAttributeMapping());
+	}
+
+	private DefaultTypeDefinition createFeatureType() {
+		DefaultTypeDefinition featureType = new DefaultTypeDefinition(
+				new QName(NS, "FeatureType", "test"));
+		featureType.setSuperType(ABSTRACT_FEATURE_TYPE);
+		return featureType;
+	}
+
+	private List<ChildContext> createPath(DefaultTypeDefinition featureType) {
+		PropertyDefinition property = new DefaultPropertyDefinition(new QName(NS, "name"),
+				featureType, new DefaultTypeDefinition(new QName(NS, "NameType")));
+		return Arrays.asList(new ChildContext(property));
+	}
+}
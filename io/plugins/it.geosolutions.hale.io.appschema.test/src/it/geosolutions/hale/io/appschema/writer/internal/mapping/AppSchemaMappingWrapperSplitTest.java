@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer.internal.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Test;
+
+import eu.esdihumboldt.hale.common.schema.model.impl.DefaultTypeDefinition;
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.AppSchemaDataAccessType;
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.TypeMappingsPropertyType.FeatureTypeMapping;
+import it.geosolutions.hale.io.appschema.writer.AppSchemaMappingUtils;
+
+/**
+ * Tests splitting type mappings between the main and the included types
+ * mapping configuration, for large numbers of type mappings.
+ */
+public class AppSchemaMappingWrapperSplitTest {
+
+	private static final String NS = "http://www.example.com/test";
+
+	private static final DefaultTypeDefinition ABSTRACT_FEATURE_TYPE = new DefaultTypeDefinition(
+			new QName(AppSchemaMappingUtils.GML_BASE_NAMESPACE + "/3.2",
+					AppSchemaMappingUtils.GML_ABSTRACT_FEATURE_TYPE));
+
+	@Test
+	public void testSplitMappings() {
+		AppSchemaMappingWrapper wrapper = createWrapper(100);
+
+		AppSchemaDataAccessType mainMapping = wrapper.getMainMapping();
+		AppSchemaDataAccessType includedTypesMapping = wrapper.getIncludedTypesMapping();
+		assertNotNull(includedTypesMapping);
+
+		// one mapping per feature type in the main file, the rest is included
+		assertEquals(100, mainMapping.getTypeMappings().getFeatureTypeMapping().size());
+		assertEquals(200,
+				includedTypesMapping.getTypeMappings().getFeatureTypeMapping().size());
+
+		Set<FeatureTypeMapping> all = new HashSet<FeatureTypeMapping>();
+		all.addAll(mainMapping.getTypeMappings().getFeatureTypeMapping());
+		all.addAll(includedTypesMapping.getTypeMappings().getFeatureTypeMapping());
+		assertEquals(300, all.size());
+		assertEquals(wrapper.getAppSchemaMapping().getTypeMappings().getFeatureTypeMapping()
+				.size(), all.size());
+
+		// top level mappings are the unnamed ones
+		for (FeatureTypeMapping ftMapping : mainMapping.getTypeMappings()
+				.getFeatureTypeMapping()) {
+			assertEquals(null, ftMapping.getMappingName());
+		}
+		assertEquals(1, mainMapping.getSourceDataStores().getDataStore().size());
+		assertEquals(1, includedTypesMapping.getSourceDataStores().getDataStore().size());
+	}
+
+	@Test
+	public void testSplitManyMappings() {
+		AppSchemaMappingWrapper wrapper = createWrapper(10000);
+
+		AppSchemaDataAccessType mainMapping = wrapper.getMainMapping();
+		AppSchemaDataAccessType includedTypesMapping = wrapper.getIncludedTypesMapping();
+
+		assertEquals(10000, mainMapping.getTypeMappings().getFeatureTypeMapping().size());
+		assertEquals(20000,
+				includedTypesMapping.getTypeMappings().getFeatureTypeMapping().size());
+	}
+
+	/**
+	 * Create a wrapper holding three mappings for each of
+	 * <code>featureTypes</code> feature types: an unnamed one and two named
+	 * ones.
+	 */
+	private AppSchemaMappingWrapper createWrapper(int featureTypes) {
+		AppSchemaMappingWrapper wrapper = new AppSchemaMappingWrapper(
+				new AppSchemaDataAccessType());
+		for (int i = 0; i < featureTypes; i++) {
+			DefaultTypeDefinition featureType = new DefaultTypeDefinition(
+					new QName(NS, "Feature" + i + "Type", "test"));
+			featureType.setSuperType(ABSTRACT_FEATURE_TYPE);
+
+			wrapper.getOrCreateFeatureTypeMapping(featureType);
+			wrapper.getOrCreateFeatureTypeMapping(featureType, "first" + i);
+			wrapper.getOrCreateFeatureTypeMapping(featureType, "second" + i);
+		}
+
+		return wrapper;
+	}
+}
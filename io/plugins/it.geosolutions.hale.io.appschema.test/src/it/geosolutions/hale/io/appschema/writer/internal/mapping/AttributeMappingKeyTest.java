@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer.internal.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Test;
+
+import it.geosolutions.hale.io.appschema.writer.internal.mapping.AttributeMappingKey.PathStep;
+
+/**
+ * Unit tests for {@link AttributeMappingKey} and {@link FeatureTypeMappingKey}.
+ */
+public class AttributeMappingKeyTest {
+
+	private static final String NS = "http://www.example.com/test";
+	private static final QName OWNING_TYPE = new QName(NS, "OwningType");
+
+	@Test
+	public void testEqualKeys() {
+		AttributeMappingKey key1 = new AttributeMappingKey(OWNING_TYPE,
+				Arrays.asList(new PathStep(new QName(NS, "a"), null),
+						new PathStep(new QName(NS, "b"), 1)));
+		AttributeMappingKey key2 = new AttributeMappingKey(new QName(NS, "OwningType"),
+				Arrays.asList(new PathStep(new QName(NS, "a"), null),
+						new PathStep(new QName(NS, "b"), 1)));
+
+		assertEquals(key1, key2);
+		assertEquals(key1.hashCode(), key2.hashCode());
+		// path steps are interned
+		assertSame(key1.getPath().get(1), key2.getPath().get(1));
+	}
+
+	@Test
+	public void testCollidingStringsAreDistinct() {
+		// "Aa" and "BB" have the same String hash code
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+
+		AttributeMappingKey key1 = new AttributeMappingKey(OWNING_TYPE,
+				Arrays.asList(new PathStep(new QName(NS, "Aa"), null)));
+		AttributeMappingKey key2 = new AttributeMappingKey(OWNING_TYPE,
+				Arrays.asList(new PathStep(new QName(NS, "BB"), null)));
+		assertNotEquals(key1, key2);
+
+		// context name must not be confused with the property name
+		AttributeMappingKey key3 = new AttributeMappingKey(OWNING_TYPE,
+				Arrays.asList(new PathStep(new QName(NS, "a1"), null)));
+		AttributeMappingKey key4 = new AttributeMappingKey(OWNING_TYPE,
+				Arrays.asList(new PathStep(new QName(NS, "a"), 1)));
+		assertNotEquals(key3, key4);
+	}
+
+	@Test
+	public void testManyNearIdenticalPaths() {
+		final int count = 20000;
+		Map<AttributeMappingKey, Integer> keys = new HashMap<AttributeMappingKey, Integer>();
+		for (int i = 0; i < count; i++) {
+			keys.put(createNearIdenticalKey(i), i);
+		}
+
+		assertEquals(count, keys.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(Integer.valueOf(i), keys.get(createNearIdenticalKey(i)));
+		}
+	}
+
+	@Test
+	public void testFeatureTypeMappingKey() {
+		QName typeName = new QName(NS, "FeatureType");
+
+		assertEquals(new FeatureTypeMappingKey(typeName, null),
+				new FeatureTypeMappingKey(typeName, ""));
+		assertNotEquals(new FeatureTypeMappingKey(typeName, null),
+				new FeatureTypeMappingKey(typeName, "mapping"));
+		assertNotEquals(new FeatureTypeMappingKey(typeName, "Aa"),
+				new FeatureTypeMappingKey(typeName, "BB"));
+	}
+
+	@Test
+	public void testMappingName() {
+		List<PathStep> path = Arrays.asList(new PathStep(new QName(NS, "a"), null));
+
+		assertEquals(new AttributeMappingKey(OWNING_TYPE, path),
+				new AttributeMappingKey(OWNING_TYPE, "", path));
+		assertNotEquals(new AttributeMappingKey(OWNING_TYPE, path),
+				new AttributeMappingKey(OWNING_TYPE, "mapping", path));
+		assertNotEquals(new AttributeMappingKey(OWNING_TYPE, "Aa", path),
+				new AttributeMappingKey(OWNING_TYPE, "BB", path));
+	}
+
+	@Test
+	public void testUniqueKeys() {
+		assertNotEquals(AttributeMappingKey.unique(OWNING_TYPE, null),
+				AttributeMappingKey.unique(OWNING_TYPE, null));
+	}
+
+	/**
+	 * Builds paths that only differ in the last step, alternating between
+	 * names whose strings have the same hash code.
+	 */
+	private AttributeMappingKey createNearIdenticalKey(int i) {
+		List<PathStep> path = new ArrayList<PathStep>();
+		path.add(new PathStep(new QName(NS, "feature"), null));
+		path.add(new PathStep(new QName(NS, "property"), null));
+		String name = (i % 2 == 0) ? "Aa" : "BB";
+		path.add(new PathStep(new QName(NS, name + (i / 2)), i % 3));
+		return new AttributeMappingKey(OWNING_TYPE, path);
+	}
+
+}
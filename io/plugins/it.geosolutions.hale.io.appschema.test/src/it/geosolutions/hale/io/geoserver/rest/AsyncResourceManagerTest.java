@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.geoserver.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import it.geosolutions.hale.io.geoserver.Namespace;
+import it.geosolutions.hale.io.geoserver.ResourceBuilder;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that {@link AsyncResourceManager} isolates concurrent requests and
+ * propagates failures.
+ */
+public class AsyncResourceManagerTest {
+
+	private ExecutorService executor;
+	private AtomicInteger managerCount;
+	private AsyncResourceManager<Namespace> namespaces;
+
+	/**
+	 * Create an asynchronous manager backed by fake namespace managers, which
+	 * don't issue any request.
+	 */
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+		managerCount = new AtomicInteger();
+		namespaces = new AsyncResourceManager<Namespace>(() -> {
+			managerCount.incrementAndGet();
+			return new FakeNamespaceManager();
+		}, executor);
+	}
+
+	/**
+	 * Shut down the executor.
+	 */
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Tests that concurrent requests for different resources don't interfere
+	 * with each other, each one using a manager of its own.
+	 */
+	@Test
+	public void testConcurrentRequests() {
+		List<CompletableFuture<Boolean>> results = new ArrayList<CompletableFuture<Boolean>>();
+		for (int i = 0; i < 50; i++) {
+			results.add(namespaces.existsAsync(namespace("ns" + i)));
+		}
+
+		for (int i = 0; i < 50; i++) {
+			// the fake manager reports even namespaces as existing
+			assertEquals(i % 2 == 0, results.get(i).join());
+		}
+		assertEquals(50, managerCount.get());
+	}
+
+	/**
+	 * Tests that failed requests complete the returned future exceptionally.
+	 */
+	@Test
+	public void testFailure() {
+		try {
+			namespaces.createAsync(namespace("ns0"), null).join();
+			fail("Expected failure");
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof ResourceException);
+			assertEquals("ns0 already exists", e.getCause().getMessage());
+		}
+	}
+
+	private static Namespace namespace(String prefix) {
+		return ResourceBuilder.namespace(prefix)
+				.setAttribute(Namespace.URI, "http://www.example.com/" + prefix).build();
+	}
+
+	private static class FakeNamespaceManager extends NamespaceManager {
+
+		private FakeNamespaceManager() {
+			super(newURL());
+		}
+
+		private static URL newURL() {
+			try {
+				return new URL("http://localhost:8080/geoserver");
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public boolean exists() {
+			String name = resource.name();
+			try {
+				// give other requests a chance to overwrite the resource, if
+				// it were shared
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (!name.equals(resource.name())) {
+				throw new IllegalStateException("Resource changed by another request");
+			}
+			return Integer.parseInt(name.substring(2)) % 2 == 0;
+		}
+
+		@Override
+		public URL create(Map<String, String> parameters) {
+			throw new ResourceException(resource.name() + " already exists");
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.geoserver.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.hale.io.geoserver.FeatureType;
+import it.geosolutions.hale.io.geoserver.ResourceBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Tests the serialization and parsing of feature type resources.
+ */
+public class FeatureTypeResourceTest extends ResourceTestBase {
+
+	private static final String TEST_NAME = "MappedFeature";
+
+	private static final String ELEMENT_FEATURE_TYPE = "featureType";
+	private static final String ELEMENT_NAME = "name";
+	private static final String ELEMENT_ID = "id";
+	private static final String ELEMENT_STORE = "store";
+
+	/**
+	 * Tests that a feature type resource where only the name is set does not
+	 * reference any id, so that it can be created in an existing datastore.
+	 * 
+	 * @throws Exception if an error occurs parsing the resource as XML
+	 */
+	@Test
+	public void testSerializeNameOnly() throws Exception {
+		FeatureType featureType = ResourceBuilder.featureType(TEST_NAME).build();
+
+		Document doc = parseResource(featureType);
+		assertEquals(1, doc.getElementsByTagName(ELEMENT_FEATURE_TYPE).getLength());
+		assertEquals(TEST_NAME, doc.getElementsByTagName(ELEMENT_NAME).item(0).getTextContent()
+				.trim());
+		assertEquals(0, doc.getElementsByTagName(ELEMENT_ID).getLength());
+		assertEquals(0, doc.getElementsByTagName(ELEMENT_STORE).getLength());
+	}
+
+	/**
+	 * Tests that a name-only feature type carries nothing but its name and
+	 * native name, so that GeoServer computes all other properties when it is
+	 * created.
+	 * 
+	 * @throws Exception if an error occurs parsing the resource as XML
+	 */
+	@Test
+	public void testSerializeForCreation() throws Exception {
+		FeatureType featureType = ResourceBuilder.featureType(TEST_NAME, true).build();
+
+		Document doc = parseResource(featureType);
+		Map<String, String> expectedValues = new HashMap<>();
+		expectedValues.put(ELEMENT_NAME, TEST_NAME);
+		expectedValues.put("nativeName", TEST_NAME);
+		checkResource(doc.getElementsByTagName(ELEMENT_FEATURE_TYPE).item(0), expectedValues);
+	}
+
+	/**
+	 * Tests parsing the names of the feature types returned by a
+	 * {@code GET /rest/workspaces/{ws}/datastores/{ds}/featuretypes} request.
+	 * 
+	 * @throws Exception if an error occurs parsing the feature type list
+	 */
+	@Test
+	public void testParseFeatureTypeList() throws Exception {
+		String featureTypeList = "<featureTypes>"
+				+ "<featureType><name>MappedFeature</name>"
+				+ "<atom:link xmlns:atom=\"http://www.w3.org/2005/Atom\" rel=\"alternate\""
+				+ " href=\"http://localhost:8080/geoserver/rest/workspaces/gsml/datastores/"
+				+ "ds/featuretypes/MappedFeature.xml\" type=\"application/xml\"/></featureType>"
+				+ "<featureType><name>GeologicUnit</name></featureType>" + "</featureTypes>";
+		Document doc = dbf.newDocumentBuilder().parse(
+				new ByteArrayInputStream(featureTypeList.getBytes(StandardCharsets.UTF_8)));
+
+		Set<String> names = FeatureType.namesFromListDocument(doc);
+		// document order is preserved
+		assertEquals(Arrays.asList(TEST_NAME, "GeologicUnit"), new ArrayList<String>(names));
+
+		Document emptyDoc = dbf.newDocumentBuilder().parse(
+				new ByteArrayInputStream("<featureTypes/>".getBytes(StandardCharsets.UTF_8)));
+		assertTrue(FeatureType.namesFromListDocument(emptyDoc).isEmpty());
+	}
+
+}
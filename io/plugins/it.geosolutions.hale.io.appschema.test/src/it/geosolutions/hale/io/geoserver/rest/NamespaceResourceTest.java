@@ -16,11 +16,15 @@
 package it.geosolutions.hale.io.geoserver.rest;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import it.geosolutions.hale.io.geoserver.Namespace;
 import it.geosolutions.hale.io.geoserver.ResourceBuilder;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Test;
 import org.w3c.dom.Document;
@@ -114,4 +118,31 @@ public class NamespaceResourceTest extends ResourceTestBase {
 		checkResource(namespaceEl, expectedValues);
 	}
 
+	/**
+	 * Tests parsing the prefixes of the namespaces returned by a
+	 * {@code GET /rest/namespaces} request.
+	 * 
+	 * @throws Exception if an error occurs parsing the namespace list
+	 */
+	@Test
+	public void testParseNamespaceList() throws Exception {
+		String namespaceList = "<namespaces>"
+				+ "<namespace><name>test_ns</name>"
+				+ "<atom:link xmlns:atom=\"http://www.w3.org/2005/Atom\" rel=\"alternate\""
+				+ " href=\"http://localhost:8080/geoserver/rest/namespaces/test_ns.xml\""
+				+ " type=\"application/xml\"/></namespace>"
+				+ "<namespace><name>other_ns</name></namespace>" + "</namespaces>";
+		Document doc = dbf.newDocumentBuilder().parse(
+				new ByteArrayInputStream(namespaceList.getBytes(StandardCharsets.UTF_8)));
+
+		Set<String> prefixes = Namespace.prefixesFromListDocument(doc);
+		assertEquals(2, prefixes.size());
+		assertTrue(prefixes.contains(TEST_PREFIX));
+		assertTrue(prefixes.contains("other_ns"));
+
+		Document emptyDoc = dbf.newDocumentBuilder().parse(
+				new ByteArrayInputStream("<namespaces/>".getBytes(StandardCharsets.UTF_8)));
+		assertTrue(Namespace.prefixesFromListDocument(emptyDoc).isEmpty());
+	}
+
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.geoserver.rest;
+
+import static org.junit.Assert.assertEquals;
+import it.geosolutions.hale.io.geoserver.FeatureType;
+import it.geosolutions.hale.io.geoserver.Layer;
+import it.geosolutions.hale.io.geoserver.Namespace;
+import it.geosolutions.hale.io.geoserver.Resource;
+import it.geosolutions.hale.io.geoserver.ResourceBuilder;
+import it.geosolutions.hale.io.geoserver.Workspace;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.fhg.igd.slf4jplus.ALogger;
+import de.fhg.igd.slf4jplus.ALoggerFactory;
+
+/**
+ * Measures the rendering throughput of the resources written to an app-schema
+ * archive.
+ * 
+ * <p>
+ * This is a benchmark rather than a unit test: it is not picked up by the
+ * default test includes and must be run explicitly.
+ * </p>
+ */
+public class ResourceRenderingBenchmark {
+
+	private static final ALogger log = ALoggerFactory.getLogger(ResourceRenderingBenchmark.class);
+
+	private static final int WARMUP_ITERATIONS = 500;
+	private static final int MEASURED_ITERATIONS = 2000;
+
+	/**
+	 * Measures workspace, namespace, feature type and layer rendering
+	 * throughput.
+	 * 
+	 * @throws Exception if an error occurs writing the resources
+	 */
+	@Test
+	public void testRenderingThroughput() throws Exception {
+		for (Resource resource : createResources()) {
+			render(resource, new CountingOutputStream(), WARMUP_ITERATIONS);
+
+			CountingOutputStream counter = new CountingOutputStream();
+			long start = System.nanoTime();
+			render(resource, counter, MEASURED_ITERATIONS);
+			long elapsed = Math.max(System.nanoTime() - start, 1);
+
+			assertEquals(resource.asByteArray().length * (long) MEASURED_ITERATIONS,
+					counter.count);
+			log.info(String.format("%s: %.0f ops/s, %.1f MB/s", resource.getClass()
+					.getSimpleName(), MEASURED_ITERATIONS * 1e9 / elapsed, counter.count * 1e3
+					/ elapsed));
+		}
+	}
+
+	private void render(Resource resource, OutputStream out, int iterations)
+			throws IOException {
+		for (int i = 0; i < iterations; i++) {
+			resource.write(out);
+		}
+	}
+
+	private List<Resource> createResources() {
+		Resource workspace = ResourceBuilder.workspace("test_ws")
+				.setAttribute(Workspace.ID, "ws-1234").build();
+		Resource namespace = ResourceBuilder.namespace("test_ws")
+				.setAttribute(Namespace.ID, "ws-1234")
+				.setAttribute(Namespace.URI, "http://www.example.com").build();
+		Resource featureType = ResourceBuilder.featureType("TestFeature")
+				.setAttribute(FeatureType.ID, "ft-1234")
+				.setAttribute(FeatureType.NAMESPACE_ID, "ws-1234")
+				.setAttribute(FeatureType.DATASTORE_ID, "ds-1234").build();
+		Resource layer = ResourceBuilder.layer("TestFeature").setAttribute(Layer.ID, "l-1234")
+				.setAttribute(Layer.FEATURE_TYPE_ID, "ft-1234").build();
+
+		return Arrays.asList(workspace, namespace, featureType, layer);
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+
+		private long count = 0;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
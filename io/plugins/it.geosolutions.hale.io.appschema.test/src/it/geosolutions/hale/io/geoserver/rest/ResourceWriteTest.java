@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.geoserver.rest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import it.geosolutions.hale.io.geoserver.FeatureType;
+import it.geosolutions.hale.io.geoserver.Layer;
+import it.geosolutions.hale.io.geoserver.Namespace;
+import it.geosolutions.hale.io.geoserver.Resource;
+import it.geosolutions.hale.io.geoserver.ResourceBuilder;
+import it.geosolutions.hale.io.geoserver.Workspace;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.junit.Test;
+
+/**
+ * Tests writing resources to streams and channels.
+ */
+public class ResourceWriteTest {
+
+	/**
+	 * Tests that writing a resource does not close the target stream, so that
+	 * multiple resources can be written in sequence.
+	 * 
+	 * @throws Exception if an error occurs writing the resources
+	 */
+	@Test
+	public void testWriteDoesNotCloseStream() throws Exception {
+		CloseTrackingOutputStream out = new CloseTrackingOutputStream(
+				new ByteArrayOutputStream());
+		for (Resource resource : createResources()) {
+			resource.write(out);
+			assertFalse(out.closed);
+		}
+	}
+
+	/**
+	 * Tests that writing a resource to a stream or a channel produces the same
+	 * content as {@link Resource#asByteArray()}.
+	 * 
+	 * @throws Exception if an error occurs writing the resources
+	 */
+	@Test
+	public void testWriteToChannel() throws Exception {
+		for (Resource resource : createResources()) {
+			byte[] expected = resource.asByteArray();
+			assertTrue(expected.length > 0);
+
+			ByteArrayOutputStream streamOut = new ByteArrayOutputStream();
+			resource.write(streamOut);
+			assertArrayEquals(expected, streamOut.toByteArray());
+
+			ByteArrayOutputStream channelOut = new ByteArrayOutputStream();
+			WritableByteChannel channel = Channels.newChannel(channelOut);
+			resource.writeTo(channel);
+			assertTrue(channel.isOpen());
+			assertArrayEquals(expected, channelOut.toByteArray());
+		}
+	}
+
+	/**
+	 * Tests that the request entities of both stream-based and
+	 * writer-based datastore files can be written more than once, so that
+	 * requests can be sent again, e.g. on retry.
+	 * 
+	 * @throws Exception if an error occurs writing the entities
+	 */
+	@Test
+	public void testDataStoreFileEntityIsRepeatable() throws Exception {
+		final byte[] content = "test content".getBytes("UTF-8");
+		final AtomicInteger writes = new AtomicInteger();
+		DataStoreFileManager manager = new DataStoreFileManager(
+				"http://localhost:8080/geoserver");
+
+		manager.setResource(ResourceBuilder.dataStoreFile(
+				new ByteArrayInputStream(content), ContentType.APPLICATION_OCTET_STREAM)
+				.build());
+		assertEntityRepeatable(manager.createEntity(), content);
+
+		manager.setResource(ResourceBuilder.dataStoreFile(out -> {
+			writes.incrementAndGet();
+			out.write(content);
+		}, ContentType.APPLICATION_OCTET_STREAM).build());
+		assertEntityRepeatable(manager.createEntity(), content);
+		// contents are produced once per write, never buffered
+		assertEquals(2, writes.get());
+	}
+
+	private void assertEntityRepeatable(HttpEntity entity, byte[] content) throws IOException {
+		assertTrue(entity.isRepeatable());
+		for (int i = 0; i < 2; i++) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			entity.writeTo(out);
+			assertArrayEquals(content, out.toByteArray());
+		}
+	}
+
+	private List<Resource> createResources() {
+		Resource workspace = ResourceBuilder.workspace("test_ws")
+				.setAttribute(Workspace.ID, "ws-1234").build();
+		Resource namespace = ResourceBuilder.namespace("test_ws")
+				.setAttribute(Namespace.ID, "ws-1234")
+				.setAttribute(Namespace.URI, "http://www.example.com").build();
+		Resource featureType = ResourceBuilder.featureType("TestFeature")
+				.setAttribute(FeatureType.ID, "ft-1234")
+				.setAttribute(FeatureType.NAMESPACE_ID, "ws-1234")
+				.setAttribute(FeatureType.DATASTORE_ID, "ds-1234").build();
+		Resource layer = ResourceBuilder.layer("TestFeature").setAttribute(Layer.ID, "l-1234")
+				.setAttribute(Layer.FEATURE_TYPE_ID, "ft-1234").build();
+
+		return Arrays.asList(workspace, namespace, featureType, layer);
+	}
+
+	private static class CloseTrackingOutputStream extends FilterOutputStream {
+
+		private boolean closed = false;
+
+		private CloseTrackingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void close() throws IOException {
+			closed = true;
+			super.close();
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.geoserver.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Tests caching and persistence of GeoServer responses in
+ * {@link ResponseCache}.
+ */
+public class ResponseCacheTest {
+
+	private static final String KEY = "http://localhost:8080/geoserver/rest/namespaces.xml admin";
+
+	/**
+	 * Temporary folder holding the persisted cache.
+	 */
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	/**
+	 * Tests that cached documents are isolated from changes made by callers.
+	 * 
+	 * @throws Exception if an error occurs
+	 */
+	@Test
+	public void testCachedDocumentIsCopied() throws Exception {
+		ResponseCache cache = new ResponseCache();
+		Document document = createNamespaceList("ns1");
+		cache.put(KEY, "\"abc\"", null, document);
+		document.getDocumentElement().setAttribute("modified", "true");
+
+		ResponseCache.Entry entry = cache.get(KEY);
+		assertNotNull(entry);
+		assertEquals("\"abc\"", entry.getETag());
+		assertNull(entry.getLastModified());
+		Document cached = entry.getDocument();
+		assertEquals("", cached.getDocumentElement().getAttribute("modified"));
+		cached.getDocumentElement().setAttribute("modified", "true");
+		assertNotSame(cached, entry.getDocument());
+		assertEquals("", entry.getDocument().getDocumentElement().getAttribute("modified"));
+	}
+
+	/**
+	 * Tests that documents returned without validators are not cached, and
+	 * replace previously cached ones.
+	 * 
+	 * @throws Exception if an error occurs
+	 */
+	@Test
+	public void testNoValidators() throws Exception {
+		ResponseCache cache = new ResponseCache();
+		cache.put(KEY, "\"abc\"", null, createNamespaceList("ns1"));
+		assertNotNull(cache.get(KEY));
+
+		cache.put(KEY, null, null, createNamespaceList("ns1", "ns2"));
+		assertNull(cache.get(KEY));
+	}
+
+	/**
+	 * Tests that a persisted cache is reused by a new cache instance.
+	 * 
+	 * @throws Exception if an error occurs
+	 */
+	@Test
+	public void testPersistence() throws Exception {
+		File directory = tmpFolder.newFolder("cache");
+		String lastModified = "Sat, 17 Oct 2026 10:00:00 GMT";
+		new ResponseCache(directory).put(KEY, null, lastModified,
+				createNamespaceList("ns1", "ns2"));
+
+		ResponseCache reloaded = new ResponseCache(directory);
+		ResponseCache.Entry entry = reloaded.get(KEY);
+		assertNotNull(entry);
+		assertNull(entry.getETag());
+		assertEquals(lastModified, entry.getLastModified());
+		assertEquals(2, entry.getDocument().getElementsByTagName("namespace").getLength());
+		assertNull(reloaded.get(KEY.replace("admin", "other")));
+
+		reloaded.remove(KEY);
+		assertNull(new ResponseCache(directory).get(KEY));
+	}
+
+	private Document createNamespaceList(String... prefixes)
+			throws ParserConfigurationException {
+		Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.newDocument();
+		Element namespaces = document.createElement("namespaces");
+		document.appendChild(namespaces);
+		for (String prefix : prefixes) {
+			Element namespace = document.createElement("namespace");
+			Element name = document.createElement("name");
+			name.setTextContent(prefix);
+			namespace.appendChild(name);
+			namespaces.appendChild(namespace);
+		}
+		return document;
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.geoserver.rest;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.ConnectException;
+
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.HttpResponseException;
+import org.junit.Test;
+
+/**
+ * Tests the backoff and the failure classification of {@link RetryPolicy}.
+ */
+public class RetryPolicyTest {
+
+	/**
+	 * Tests that only transient failures are retried, up to the maximum number
+	 * of attempts.
+	 */
+	@Test
+	public void testShouldRetry() {
+		RetryPolicy policy = new RetryPolicy(3, 100, 1000);
+
+		assertTrue(policy.shouldRetry(new HttpResponseException(503, "Unavailable"), 1));
+		assertTrue(policy.shouldRetry(new HttpResponseException(502, "Bad Gateway"), 2));
+		assertTrue(policy.shouldRetry(new ConnectException("Connection refused"), 1));
+		// no attempts left
+		assertFalse(policy.shouldRetry(new HttpResponseException(503, "Unavailable"), 3));
+		// permanent failures
+		assertFalse(policy.shouldRetry(new HttpResponseException(404, "Not Found"), 1));
+		assertFalse(policy.shouldRetry(new HttpResponseException(500, "Server Error"), 1));
+		assertFalse(policy.shouldRetry(new ClientProtocolException("Malformed XML"), 1));
+		assertFalse(policy.shouldRetry(new IllegalStateException(), 1));
+
+		assertFalse(RetryPolicy.NONE.shouldRetry(new HttpResponseException(503, ""), 1));
+	}
+
+	/**
+	 * Tests that the delay grows exponentially, is capped and jittered within
+	 * the upper half of the backoff.
+	 */
+	@Test
+	public void testDelay() {
+		RetryPolicy policy = new RetryPolicy(10, 100, 1000);
+
+		for (int i = 0; i < 100; i++) {
+			assertBetween(50, 100, policy.getDelay(1));
+			assertBetween(100, 200, policy.getDelay(2));
+			assertBetween(200, 400, policy.getDelay(3));
+			assertBetween(500, 1000, policy.getDelay(5));
+			assertBetween(500, 1000, policy.getDelay(60));
+		}
+	}
+
+	private void assertBetween(long min, long max, long actual) {
+		assertTrue(actual + " not in [" + min + ", " + max + "]", actual >= min && actual <= max);
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.geoserver.template;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Tests rendering templates with {@link Templates}.
+ */
+public class TemplatesTest {
+
+	private static final String WORKSPACE_TEMPLATE = "/it/geosolutions/hale/io/geoserver/template/data/workspace-template.vm";
+
+	/**
+	 * Tests that a template is parsed only once and then reused.
+	 * 
+	 * @throws Exception if an error occurs rendering the template
+	 */
+	@Test
+	public void testTemplateIsCached() throws Exception {
+		Templates templates = Templates.getInstance();
+
+		render(templates, "ws_first");
+		int parsedTemplates = templates.getParsedTemplateCount();
+		for (int i = 0; i < 100; i++) {
+			String output = render(templates, "ws_" + i);
+			assertTrue(output.contains("<name>ws_" + i + "</name>"));
+		}
+		assertEquals(parsedTemplates, templates.getParsedTemplateCount());
+	}
+
+	/**
+	 * Tests that the output stream is not closed after merging a template.
+	 * 
+	 * @throws Exception if an error occurs rendering the template
+	 */
+	@Test
+	public void testMergeDoesNotCloseStream() throws Exception {
+		Templates templates = Templates.getInstance();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		templates.mergeTemplate(WORKSPACE_TEMPLATE, createVariables("ws_a"), out);
+		templates.mergeTemplate(WORKSPACE_TEMPLATE, createVariables("ws_b"), out);
+
+		String output = new String(out.toByteArray(), StandardCharsets.UTF_8);
+		assertTrue(output.indexOf("<name>ws_a</name>") < output.indexOf("<name>ws_b</name>"));
+	}
+
+	/**
+	 * Tests rendering the same template from multiple threads.
+	 * 
+	 * @throws Exception if an error occurs rendering the template
+	 */
+	@Test
+	public void testConcurrentRendering() throws Exception {
+		final Templates templates = Templates.getInstance();
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				final String name = "ws_" + i;
+				results.add(executor.submit(new Callable<String>() {
+
+					@Override
+					public String call() throws Exception {
+						return render(templates, name);
+					}
+				}));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				assertTrue(results.get(i).get().contains("<name>ws_" + i + "</name>"));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private String render(Templates templates, String workspaceName) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		templates.mergeTemplate(WORKSPACE_TEMPLATE, createVariables(workspaceName), out);
+
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private Map<String, Object> createVariables(String workspaceName) {
+		Map<String, Object> variables = new HashMap<>();
+		variables.put("workspaceId", null);
+		variables.put("workspaceName", workspaceName);
+		variables.put("isIsolated", null);
+		return variables;
+	}
+}
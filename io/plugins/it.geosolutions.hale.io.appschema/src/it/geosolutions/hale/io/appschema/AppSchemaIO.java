@@ -54,6 +54,11 @@ public abstract class AppSchemaIO {
 	 * ID of app-schema configuration archive content type.
 	 */
 	public static final String CONTENT_TYPE_ARCHIVE = "it.geosolutions.hale.io.appschema.archive";
+	/**
+	 * ID of app-schema configuration directory content type, i.e. the
+	 * configuration files written straight into a GeoServer data directory.
+	 */
+	public static final String CONTENT_TYPE_DIRECTORY = "it.geosolutions.hale.io.appschema.directory";
 	/**
 	 * ID of app-schema configuration REST content type
 	 */
@@ -74,6 +79,68 @@ public abstract class AppSchemaIO {
 	 * Workspace configuration parameter name.
 	 */
 	public static final String PARAM_WORKSPACE = "appschema.workspace.conf";
+	/**
+	 * Type cell parallelism configuration parameter name, i.e. the maximum
+	 * number of type cells translated concurrently.
+	 */
+	public static final String PARAM_TYPE_CELL_PARALLELISM = "appschema.typecell.parallelism";
+	/**
+	 * Schema parallelism configuration parameter name, i.e. the maximum number
+	 * of target schema resources copied concurrently.
+	 */
+	public static final String PARAM_SCHEMA_PARALLELISM = "appschema.schema.parallelism";
+	/**
+	 * Schema cache configuration parameter name: if <code>true</code> (the
+	 * default), target schema resources other than local files are cached
+	 * locally, keyed by URI and a digest of the copied schemas.
+	 */
+	public static final String PARAM_SCHEMA_CACHE = "appschema.schema.cache";
+	/**
+	 * Schema cache directory configuration parameter name; the cache can be
+	 * populated beforehand and is used when resources cannot be retrieved.
+	 */
+	public static final String PARAM_SCHEMA_CACHE_DIRECTORY = "appschema.schema.cache.directory";
+	/**
+	 * Schema cache time-to-live (in milliseconds) configuration parameter
+	 * name, i.e. how long a cached resource is used before it is retrieved
+	 * again (defaults to one day).
+	 */
+	public static final String PARAM_SCHEMA_CACHE_TTL = "appschema.schema.cache.ttl";
+	/**
+	 * Archive parallelism configuration parameter name, i.e. the maximum
+	 * number of archive entries rendered concurrently (defaults to the number
+	 * of available processors).
+	 */
+	public static final String PARAM_ARCHIVE_PARALLELISM = "appschema.archive.parallelism";
+	/**
+	 * Compression level of the target schema files in archives: either
+	 * <code>stored</code> (the default: bundled schemas are copied as-is,
+	 * which is faster but yields a larger archive), <code>default</code> or a
+	 * deflate level between 0 and 9.
+	 */
+	public static final String PARAM_COMPRESSION_SCHEMAS = "appschema.compression.schemas";
+	/**
+	 * Compression level of the mapping files in archives (<code>default</code>
+	 * if not set), see {@link #PARAM_COMPRESSION_SCHEMAS} for allowed values.
+	 */
+	public static final String PARAM_COMPRESSION_MAPPINGS = "appschema.compression.mappings";
+	/**
+	 * Compression level of the GeoServer catalog files in archives
+	 * (<code>default</code> if not set), see {@link #PARAM_COMPRESSION_SCHEMAS}
+	 * for allowed values.
+	 */
+	public static final String PARAM_COMPRESSION_CATALOG = "appschema.compression.catalog";
+	/**
+	 * Streaming output configuration parameter name: if <code>true</code>,
+	 * mapping files are written with a streaming XML writer instead of being
+	 * marshalled with JAXB.
+	 */
+	public static final String PARAM_STREAMING_OUTPUT = "appschema.output.streaming";
+	/**
+	 * Pretty print configuration parameter name, only used for streaming
+	 * output.
+	 */
+	public static final String PARAM_PRETTY_PRINT = "appschema.output.prettyprint";
 	/**
 	 * REST user configuration parameter name.
 	 */
@@ -82,6 +149,87 @@ public abstract class AppSchemaIO {
 	 * REST password configuration parameter name.
 	 */
 	public static final String PARAM_PASSWORD = "appschema.rest.password";
+	/**
+	 * REST maximum connections per route configuration parameter name.
+	 */
+	public static final String PARAM_REST_MAX_CONNECTIONS = "appschema.rest.maxconnections";
+	/**
+	 * REST connect timeout (in milliseconds) configuration parameter name.
+	 */
+	public static final String PARAM_REST_CONNECT_TIMEOUT = "appschema.rest.connect.timeout";
+	/**
+	 * REST socket timeout (in milliseconds) configuration parameter name. 0,
+	 * the default, disables the timeout.
+	 */
+	public static final String PARAM_REST_SOCKET_TIMEOUT = "appschema.rest.socket.timeout";
+	/**
+	 * REST connection keep-alive time (in milliseconds) configuration
+	 * parameter name, i.e. how long an idle connection is kept for reuse if
+	 * the server does not specify it.
+	 */
+	public static final String PARAM_REST_KEEP_ALIVE = "appschema.rest.keepalive";
+	/**
+	 * REST parallelism configuration parameter name, i.e. the maximum number
+	 * of resources published concurrently.
+	 */
+	public static final String PARAM_REST_PARALLELISM = "appschema.rest.parallelism";
+	/**
+	 * Incremental publishing configuration parameter name: if
+	 * <code>true</code>, an existing datastore is updated in place and only
+	 * the feature types that were added or removed are created or deleted.
+	 */
+	public static final String PARAM_REST_INCREMENTAL = "appschema.rest.incremental";
+	/**
+	 * Skip unchanged uploads configuration parameter name: if
+	 * <code>true</code> (the default), the upload is skipped when the digest
+	 * of the generated content matches the one stored in the existing
+	 * datastore's metadata.
+	 */
+	public static final String PARAM_REST_SKIP_UNCHANGED = "appschema.rest.skipunchanged";
+	/**
+	 * Cluster nodes configuration parameter name, i.e. a comma separated list
+	 * of the base URLs of additional GeoServer instances to publish to.
+	 */
+	public static final String PARAM_REST_CLUSTER_NODES = "appschema.rest.cluster.nodes";
+	/**
+	 * Cluster attempts configuration parameter name, i.e. the maximum number
+	 * of times publishing to a single cluster node is attempted. Each attempt
+	 * retries its requests according to {@link #PARAM_REST_RETRY_ATTEMPTS},
+	 * so a request may be sent up to the product of the two.
+	 */
+	public static final String PARAM_REST_CLUSTER_ATTEMPTS = "appschema.rest.cluster.attempts";
+	/**
+	 * REST retry attempts configuration parameter name, i.e. the maximum
+	 * number of times an idempotent request is attempted.
+	 */
+	public static final String PARAM_REST_RETRY_ATTEMPTS = "appschema.rest.retry.attempts";
+	/**
+	 * REST retry delay configuration parameter name, i.e. the delay before the
+	 * first retry, in milliseconds; it doubles at every retry.
+	 */
+	public static final String PARAM_REST_RETRY_DELAY = "appschema.rest.retry.delay";
+	/**
+	 * REST retry maximum delay configuration parameter name, in milliseconds.
+	 */
+	public static final String PARAM_REST_RETRY_MAX_DELAY = "appschema.rest.retry.maxdelay";
+	/**
+	 * Resume configuration parameter name: if <code>true</code> (the
+	 * default), publishing the same content again after a failure resumes
+	 * after the last successful step.
+	 */
+	public static final String PARAM_REST_RESUME = "appschema.rest.resume";
+	/**
+	 * REST compression configuration parameter name: if <code>true</code> (the
+	 * default), GeoServer responses are requested gzip compressed.
+	 */
+	public static final String PARAM_REST_COMPRESSION = "appschema.rest.compression";
+	/**
+	 * REST cache directory configuration parameter name: if set, the documents
+	 * read from GeoServer are cached in this directory and revalidated with
+	 * conditional requests across uploads; otherwise, they are cached in
+	 * memory for the duration of a single upload.
+	 */
+	public static final String PARAM_REST_CACHE_DIRECTORY = "appschema.rest.cache.directory";
 
 	/**
 	 * Location of the default mapping file template.
@@ -3,25 +3,33 @@ package it.geosolutions.hale.io.appschema.writer;
 import static it.geosolutions.hale.io.appschema.writer.AppSchemaMappingUtils.resolvePropertyTypes;
 
 import java.io.File;
-import java.io.FileFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.DirectoryFileFilter;
-import org.apache.commons.io.filefilter.FileFileFilter;
 import org.eclipse.core.runtime.content.IContentType;
 
+import com.google.common.base.Joiner;
+import com.google.common.io.BaseEncoding;
 import com.google.common.io.Files;
 
 import eu.esdihumboldt.hale.common.align.io.impl.AbstractAlignmentWriter;
@@ -35,7 +43,9 @@ import eu.esdihumboldt.hale.common.core.io.extension.ResourceAdvisorExtension;
 import eu.esdihumboldt.hale.common.core.io.project.model.IOConfiguration;
 import eu.esdihumboldt.hale.common.core.io.project.model.Project;
 import eu.esdihumboldt.hale.common.core.io.report.IOReport;
+import eu.esdihumboldt.hale.common.core.io.report.IOMessage;
 import eu.esdihumboldt.hale.common.core.io.report.IOReporter;
+import eu.esdihumboldt.hale.common.core.io.report.impl.DefaultIOReporter;
 import eu.esdihumboldt.hale.common.core.io.report.impl.IOMessageImpl;
 import eu.esdihumboldt.hale.common.core.io.supplier.DefaultInputSupplier;
 import eu.esdihumboldt.hale.common.core.io.supplier.LocatableInputSupplier;
@@ -46,6 +56,11 @@ import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.Sour
 import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.SourceDataStoresPropertyType.DataStore.Parameters.Parameter;
 import it.geosolutions.hale.io.appschema.model.FeatureChaining;
 import it.geosolutions.hale.io.appschema.model.WorkspaceConfiguration;
+import it.geosolutions.hale.io.appschema.writer.internal.ArchiveCompression;
+import it.geosolutions.hale.io.appschema.writer.internal.ArchiveCompression.EntryClass;
+import it.geosolutions.hale.io.appschema.writer.internal.SchemaBundle;
+import it.geosolutions.hale.io.appschema.writer.internal.SchemaResourceCache;
+import it.geosolutions.hale.io.appschema.writer.internal.SchemaResourceCache.ResourceCopier;
 
 /**
  * Base class for HALE alignment to app-schema mapping translators.
@@ -59,6 +74,19 @@ public abstract class AbstractAppSchemaConfigurator extends AbstractAlignmentWri
 	 */
 	protected MappingGenerator generator;
 
+	/**
+	 * Default maximum number of schema resources copied concurrently.
+	 */
+	private static final int DEFAULT_SCHEMA_PARALLELISM = 4;
+
+	/**
+	 * Directory of the schema bundles, in the schema resource cache.
+	 */
+	private static final String BUNDLES_DIRECTORY = "bundles";
+
+	private SchemaBundle schemaBundle;
+	private File schemaBundleTmpDir;
+
 	@Override
 	public boolean isCancelable() {
 		return false;
@@ -112,17 +140,29 @@ public abstract class AbstractAppSchemaConfigurator extends AbstractAlignmentWri
 		// get the db uri
 		String dataStoreURI = fetchDataStoreUri(dataStoreParam);
 		// decide MappingGeneratot implementation
+		AppSchemaMappingGenerator appSchemaGenerator;
 		if (dataStoreURI != null && dataStoreURI.startsWith("mongodb")) {
-			generator = new MongoMappingGenerator(getAlignment(), getTargetSchema(), dataStoreParam,
-					featureChainingParam, workspaceConfParam);
+			appSchemaGenerator = new MongoMappingGenerator(getAlignment(), getTargetSchema(),
+					dataStoreParam, featureChainingParam, workspaceConfParam);
 		}
 		else {
-			generator = new AppSchemaMappingGenerator(getAlignment(), getTargetSchema(),
+			appSchemaGenerator = new AppSchemaMappingGenerator(getAlignment(), getTargetSchema(),
 					dataStoreParam, featureChainingParam, workspaceConfParam);
 		}
+		configureGenerator(appSchemaGenerator);
+		generator = appSchemaGenerator;
 		generator.generateMapping(reporter);
 	}
 
+	/**
+	 * Configure the mapping generator before the mapping is generated.
+	 * 
+	 * @param appSchemaGenerator the mapping generator
+	 */
+	protected void configureGenerator(AppSchemaMappingGenerator appSchemaGenerator) {
+		appSchemaGenerator.setTypeCellParallelism(getTypeCellParallelismParameter());
+	}
+
 	private String fetchDataStoreUri(DataStore dataStoreParam) {
 		if (dataStoreParam == null || dataStoreParam.getParameters() == null
 				|| dataStoreParam.getParameters().getParameter() == null)
@@ -149,6 +189,8 @@ public abstract class AbstractAppSchemaConfigurator extends AbstractAlignmentWri
 			reporter.error(new IOMessageImpl(e.getMessage(), e));
 			reporter.setSuccess(false);
 			return reporter;
+		} finally {
+			releaseSchemaBundle();
 		}
 
 		progress.end();
@@ -192,6 +234,21 @@ public abstract class AbstractAppSchemaConfigurator extends AbstractAlignmentWri
 		}
 	}
 
+	/**
+	 * @return the maximum number of type cells to translate concurrently (1,
+	 *         i.e. sequential translation, if not set)
+	 */
+	protected int getTypeCellParallelismParameter() {
+		Value parameterValue = getParameter(AppSchemaIO.PARAM_TYPE_CELL_PARALLELISM);
+		if (Value.NULL.equals(parameterValue)) {
+			return 1;
+		}
+		else {
+			Integer parallelism = parameterValue.as(Integer.class);
+			return (parallelism != null) ? parallelism : 1;
+		}
+	}
+
 	/**
 	 * Retrieves the Workspace configuration.
 	 * 
@@ -223,6 +280,12 @@ public abstract class AbstractAppSchemaConfigurator extends AbstractAlignmentWri
 	 * properly updated.
 	 * </p>
 	 * 
+	 * <p>
+	 * Schemas are spliced into the archive from a {@link SchemaBundle}, built
+	 * once per export and, if the schema resource cache is enabled, shared
+	 * with later exports of the same schemas.
+	 * </p>
+	 * 
 	 * @param zip the zip archive to copy to
 	 * @param parentEntry the parent zip entry (may be null)
 	 * @param progress the progress indicator
@@ -231,31 +294,157 @@ public abstract class AbstractAppSchemaConfigurator extends AbstractAlignmentWri
 	 */
 	protected void addTargetSchemaToZip(ZipOutputStream zip, ZipEntry parentEntry,
 			ProgressIndicator progress, IOReporter reporter) throws IOException {
+		addTargetSchemaToZip(zip, parentEntry, getArchiveCompressionParameter(), progress,
+				reporter);
+	}
+
+	/**
+	 * Copies the target schema to the provided {@link ZipOutputStream}, using
+	 * the provided compression strategy.
+	 * 
+	 * @param zip the zip archive to copy to
+	 * @param parentEntry the parent zip entry (may be null)
+	 * @param compression the compression strategy
+	 * @param progress the progress indicator
+	 * @param reporter the reporter
+	 * @throws IOException if an error occurs
+	 * @see #addTargetSchemaToZip(ZipOutputStream, ZipEntry, ProgressIndicator,
+	 *      IOReporter)
+	 */
+	protected void addTargetSchemaToZip(ZipOutputStream zip, ZipEntry parentEntry,
+			ArchiveCompression compression, ProgressIndicator progress, IOReporter reporter)
+			throws IOException {
+		SchemaBundle bundle = getSchemaBundle(progress, reporter);
+		bundle.writeTo(zip, (parentEntry != null) ? parentEntry.getName() : null,
+				compression.getLevel(EntryClass.SCHEMA));
+		for (Entry<String, String> schemaURI : bundle.getSchemaURIs().entrySet()) {
+			generator.updateSchemaURI(schemaURI.getKey(), schemaURI.getValue());
+		}
+	}
+
+	/**
+	 * Copies the target schema to the provided directory.
+	 * 
+	 * <p>
+	 * Included / imported schemas are also copied and schema locations are
+	 * properly updated.
+	 * </p>
+	 * 
+	 * @param directory the directory to copy to
+	 * @param progress the progress indicator
+	 * @param reporter the reporter
+	 * @throws IOException if an error occurs
+	 * @see #addTargetSchemaToZip(ZipOutputStream, ZipEntry, ProgressIndicator,
+	 *      IOReporter)
+	 */
+	protected void addTargetSchemaToDirectory(File directory, ProgressIndicator progress,
+			IOReporter reporter) throws IOException {
+		SchemaBundle bundle = getSchemaBundle(progress, reporter);
+		bundle.copyTo(directory);
+		for (Entry<String, String> schemaURI : bundle.getSchemaURIs().entrySet()) {
+			generator.updateSchemaURI(schemaURI.getKey(), schemaURI.getValue());
+		}
+	}
+
+	/**
+	 * Return the bundle of the target schema resources, building it on first
+	 * access.
+	 * 
+	 * <p>
+	 * Remote schema resources are copied into a local
+	 * {@link SchemaResourceCache} and copied again only when their entry
+	 * expires (see {@link AppSchemaIO#PARAM_SCHEMA_CACHE_TTL}); resources are
+	 * copied concurrently (see {@link AppSchemaIO#PARAM_SCHEMA_PARALLELISM}).
+	 * The bundle is stored in the cache as well, identified by a fingerprint
+	 * of the bundled resources; if caching is disabled, it is discarded at the
+	 * end of the export.
+	 * </p>
+	 * 
+	 * @param progress the progress indicator
+	 * @param reporter the reporter
+	 * @return the schema bundle
+	 * @throws IOException if an error occurs
+	 */
+	protected SchemaBundle getSchemaBundle(ProgressIndicator progress, IOReporter reporter)
+			throws IOException {
+		if (schemaBundle != null) {
+			return schemaBundle;
+		}
+
+		SchemaResourceCache cache = getSchemaResourceCache();
 		File tmpDir = Files.createTempDir();
 		try {
-			Map<URI, String> resources = updateTargetSchemaResources(tmpDir, progress, reporter);
-			File[] dirs = tmpDir.listFiles((FileFilter) DirectoryFileFilter.DIRECTORY);
-			for (File dir : dirs) {
-				addDirToZip(dir, parentEntry, zip);
+			List<SchemaResource> resources = updateTargetSchemaResources(tmpDir, cache,
+					progress, reporter);
+
+			Map<String, File> folders = new HashMap<String, File>();
+			Map<String, String> schemaURIs = new LinkedHashMap<String, String>();
+			for (SchemaResource resource : resources) {
+				folders.put(resource.folder, resource.directory);
+				schemaURIs.put(resource.uri.toString(), resource.folder + "/" + resource.name);
 			}
-			for (Entry<URI, String> resource : resources.entrySet()) {
-				String oldSchemaURI = resource.getKey().toString();
-				String newSchemaURI = resource.getValue();
-				generator.updateSchemaURI(oldSchemaURI, newSchemaURI);
+
+			File bundleDir;
+			if (cache != null) {
+				bundleDir = new File(new File(cache.getDirectory(), BUNDLES_DIRECTORY),
+						fingerprint(resources));
+			}
+			else {
+				schemaBundleTmpDir = Files.createTempDir();
+				bundleDir = new File(schemaBundleTmpDir, "bundle");
 			}
+			schemaBundle = SchemaBundle.create(bundleDir, folders, schemaURIs);
 		} finally {
 			FileUtils.deleteQuietly(tmpDir);
 		}
+
+		return schemaBundle;
+	}
+
+	/**
+	 * Release the schema bundle built during the current export, deleting it
+	 * if it is not cached.
+	 */
+	protected void releaseSchemaBundle() {
+		schemaBundle = null;
+		if (schemaBundleTmpDir != null) {
+			FileUtils.deleteQuietly(schemaBundleTmpDir);
+			schemaBundleTmpDir = null;
+		}
+	}
+
+	private String fingerprint(List<SchemaResource> resources) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		List<SchemaResource> sortedResources = new ArrayList<SchemaResource>(resources);
+		sortedResources.sort(Comparator.comparing(resource -> resource.folder));
+		for (SchemaResource resource : sortedResources) {
+			// cache entries are content-addressed, other resources are
+			// identified by their copied contents
+			String contentId = resource.cached ? resource.directory.getName() : SchemaBundle
+					.digest(resource.directory);
+			String line = Joiner.on('\t').join(resource.folder, resource.uri, resource.name,
+					contentId) + "\n";
+			digest.update(line.getBytes(StandardCharsets.UTF_8));
+		}
+
+		return BaseEncoding.base16().lowerCase().encode(digest.digest());
 	}
 
 	// TODO: code adapted from ArchiveProjectWriter: how to avoid duplication?
-	private Map<URI, String> updateTargetSchemaResources(File targetDirectory,
-			ProgressIndicator progress, IOReporter reporter) throws IOException {
+	private List<SchemaResource> updateTargetSchemaResources(File targetDirectory,
+			SchemaResourceCache cache, ProgressIndicator progress, IOReporter reporter)
+			throws IOException {
 		progress.begin("Copy resources", ProgressIndicator.UNKNOWN);
 
 		Project project = (Project) getProjectInfo();
-		// resource locations mapped to new resource path
-		Map<URI, String> handledResources = new HashMap<>();
+		// resource locations mapped to the resources to copy
+		Map<URI, SchemaResource> handledResources = new LinkedHashMap<>();
 		try {
 			List<IOConfiguration> resources = project.getResources();
 			// every resource needs his own directory
@@ -306,21 +495,12 @@ public abstract class AbstractAppSchemaConfigurator extends AbstractAlignmentWri
 						continue;
 					}
 
-					progress.setCurrentTask("Copying resource at " + path);
-
 					// every resource file is copied into an own resource
 					// directory in the target directory
 					String resourceFolder = "_schemas";
 					if (count > 0) {
 						resourceFolder += count;
 					}
-					File newDirectory = new File(targetDirectory, resourceFolder);
-					try {
-						newDirectory.mkdir();
-					} catch (SecurityException e) {
-						throw new IOException("Can not create directory " + newDirectory.toString(),
-								e);
-					}
 
 					// the filename
 					String name = path.toString().substring(path.lastIndexOf("/") + 1,
@@ -336,9 +516,6 @@ public abstract class AbstractAppSchemaConfigurator extends AbstractAlignmentWri
 						name = "file";
 					}
 
-					File newFile = new File(newDirectory, name);
-					Path target = newFile.toPath();
-
 					// retrieve the resource advisor
 					Value ct = providerConfig.get(ImportProvider.PARAM_CONTENT_TYPE);
 					IContentType contentType = null;
@@ -349,43 +526,211 @@ public abstract class AbstractAppSchemaConfigurator extends AbstractAlignmentWri
 					ResourceAdvisor ra = ResourceAdvisorExtension.getInstance()
 							.getAdvisor(contentType);
 
-					// copy the resource
-					progress.setCurrentTask("Copying resource at " + path);
-					ra.copyResource(input, target, contentType, true, reporter);
-
 					// store new path for resource
-					String newPath = resourceFolder + "/" + name;
-					handledResources.put(pathUri, newPath);
+					handledResources.put(pathUri, new SchemaResource(pathUri, input, contentType,
+							ra, resourceFolder, name));
 					count++;
 				}
 			}
+
+			copySchemaResources(new ArrayList<SchemaResource>(handledResources.values()),
+					targetDirectory, cache, progress, reporter);
 		} finally {
 			progress.end();
 		}
 
-		return handledResources;
+		return new ArrayList<SchemaResource>(handledResources.values());
 	}
 
-	private void addDirToZip(File inputDir, ZipEntry parentEntry, ZipOutputStream zos)
+	/**
+	 * Copy schema resources concurrently, each one to its own directory. Each
+	 * copy reports to its own reporter, whose messages are then forwarded in
+	 * resource order.
+	 */
+	private void copySchemaResources(List<SchemaResource> resources, File targetDirectory,
+			SchemaResourceCache cache, ProgressIndicator progress, IOReporter reporter)
 			throws IOException {
-		String parentEntryName = (parentEntry != null) ? parentEntry.getName() : null;
-		String currentDirEntryName = (parentEntryName != null) ? parentEntryName : "";
-		currentDirEntryName += inputDir.getName() + "/";
-		ZipEntry currentDirEntry = new ZipEntry(currentDirEntryName);
-		zos.putNextEntry(currentDirEntry);
-
-		// add files
-		File[] files = inputDir.listFiles((FileFilter) FileFileFilter.FILE);
-		for (File f : files) {
-			zos.putNextEntry(new ZipEntry(currentDirEntry.getName() + f.getName()));
-			Files.copy(f, zos);
-			zos.closeEntry();
-		}
-
-		// add sub-directories
-		File[] dirs = inputDir.listFiles((FileFilter) DirectoryFileFilter.DIRECTORY);
-		for (File d : dirs) {
-			addDirToZip(d, currentDirEntry, zos);
+		int parallelism = Math.max(1,
+				Math.min(getSchemaParallelismParameter(), resources.size()));
+
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		try {
+			List<Future<File>> directories = new ArrayList<Future<File>>();
+			for (SchemaResource resource : resources) {
+				resource.reporter = new DefaultIOReporter(getTarget(),
+						"Copy resource at " + resource.uri, AppSchemaIO.CONTENT_TYPE_ARCHIVE,
+						false);
+				directories.add(executor
+						.submit(() -> copySchemaResource(resource, targetDirectory, cache)));
+			}
+
+			for (int i = 0; i < resources.size(); i++) {
+				SchemaResource resource = resources.get(i);
+				progress.setCurrentTask("Copying resource at " + resource.uri);
+				try {
+					resource.directory = directories.get(i).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while copying resources", e);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					throw new IOException("Error copying resource at " + resource.uri,
+							e.getCause());
+				} finally {
+					forwardMessages(resource.reporter, reporter);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private File copySchemaResource(SchemaResource resource, File targetDirectory,
+			SchemaResourceCache cache) throws IOException {
+		ResourceCopier copier = target -> resource.advisor.copyResource(resource.input, target,
+				resource.contentType, true, resource.reporter);
+
+		// local files are not cached, as the files they include may change
+		// even if they don't
+		String scheme = resource.uri.getScheme();
+		if (cache != null && !scheme.equals("file")) {
+			File entry;
+			try {
+				entry = cache.get(resource.uri, resource.name, copier);
+			} catch (IOException e) {
+				entry = cache.getLatest(resource.uri, resource.name);
+				if (entry == null) {
+					throw e;
+				}
+				resource.reporter.warn(new IOMessageImpl("Could not retrieve resource at "
+						+ resource.uri + ", using cached copy", e));
+			}
+			resource.cached = true;
+			return entry;
+		}
+
+		File newDirectory = new File(targetDirectory, resource.folder);
+		try {
+			newDirectory.mkdir();
+		} catch (SecurityException e) {
+			throw new IOException("Can not create directory " + newDirectory.toString(), e);
+		}
+		copier.copy(new File(newDirectory, resource.name).toPath());
+		return newDirectory;
+	}
+
+	private void forwardMessages(IOReporter source, IOReporter target) {
+		for (IOMessage message : source.getErrors()) {
+			target.error(message);
+		}
+		for (IOMessage message : source.getWarnings()) {
+			target.warn(message);
+		}
+		for (IOMessage message : source.getInfos()) {
+			target.info(message);
+		}
+	}
+
+	/**
+	 * @return the schema resource cache, or <code>null</code> if caching is
+	 *         disabled
+	 */
+	protected SchemaResourceCache getSchemaResourceCache() {
+		Value enabled = getParameter(AppSchemaIO.PARAM_SCHEMA_CACHE);
+		if (!Value.NULL.equals(enabled) && Boolean.FALSE.equals(enabled.as(Boolean.class))) {
+			return null;
+		}
+
+		long timeToLive = SchemaResourceCache.DEFAULT_TIME_TO_LIVE;
+		Value timeToLiveValue = getParameter(AppSchemaIO.PARAM_SCHEMA_CACHE_TTL);
+		if (!Value.NULL.equals(timeToLiveValue) && timeToLiveValue.as(Long.class) != null) {
+			timeToLive = timeToLiveValue.as(Long.class);
+		}
+
+		Value directory = getParameter(AppSchemaIO.PARAM_SCHEMA_CACHE_DIRECTORY);
+		if (Value.NULL.equals(directory) || directory.as(String.class) == null) {
+			return new SchemaResourceCache(SchemaResourceCache.DEFAULT_DIRECTORY, timeToLive);
+		}
+		return new SchemaResourceCache(new File(directory.as(String.class)), timeToLive);
+	}
+
+	/**
+	 * @return the archive compression strategy
+	 */
+	protected ArchiveCompression getArchiveCompressionParameter() {
+		ArchiveCompression compression = new ArchiveCompression();
+		setCompressionLevel(compression, EntryClass.SCHEMA, AppSchemaIO.PARAM_COMPRESSION_SCHEMAS);
+		setCompressionLevel(compression, EntryClass.MAPPING,
+				AppSchemaIO.PARAM_COMPRESSION_MAPPINGS);
+		setCompressionLevel(compression, EntryClass.CATALOG,
+				AppSchemaIO.PARAM_COMPRESSION_CATALOG);
+		return compression;
+	}
+
+	private void setCompressionLevel(ArchiveCompression compression, EntryClass entryClass,
+			String parameterName) {
+		Value parameterValue = getParameter(parameterName);
+		if (!Value.NULL.equals(parameterValue) && parameterValue.as(String.class) != null) {
+			compression.setLevel(entryClass,
+					ArchiveCompression.parseLevel(parameterValue.as(String.class)));
+		}
+	}
+
+	/**
+	 * @return the maximum number of schema resources to copy concurrently
+	 */
+	protected int getSchemaParallelismParameter() {
+		Value parameterValue = getParameter(AppSchemaIO.PARAM_SCHEMA_PARALLELISM);
+		if (Value.NULL.equals(parameterValue)) {
+			return DEFAULT_SCHEMA_PARALLELISM;
+		}
+		else {
+			Integer parallelism = parameterValue.as(Integer.class);
+			return (parallelism != null) ? parallelism : DEFAULT_SCHEMA_PARALLELISM;
+		}
+	}
+
+	/**
+	 * @return the maximum number of archive entries to render concurrently
+	 *         (the number of available processors, if not set)
+	 */
+	protected int getArchiveParallelismParameter() {
+		int defaultParallelism = Runtime.getRuntime().availableProcessors();
+		Value parameterValue = getParameter(AppSchemaIO.PARAM_ARCHIVE_PARALLELISM);
+		if (Value.NULL.equals(parameterValue)) {
+			return defaultParallelism;
+		}
+		else {
+			Integer parallelism = parameterValue.as(Integer.class);
+			return (parallelism != null) ? parallelism : defaultParallelism;
+		}
+	}
+
+	/**
+	 * A target schema resource, along with the directory it is copied to.
+	 */
+	private static class SchemaResource {
+
+		private final URI uri;
+		private final LocatableInputSupplier<? extends InputStream> input;
+		private final IContentType contentType;
+		private final ResourceAdvisor advisor;
+		private final String folder;
+		private final String name;
+		private IOReporter reporter;
+		private File directory;
+		private boolean cached;
+
+		private SchemaResource(URI uri, LocatableInputSupplier<? extends InputStream> input,
+				IContentType contentType, ResourceAdvisor advisor, String folder, String name) {
+			this.uri = uri;
+			this.input = input;
+			this.contentType = contentType;
+			this.advisor = advisor;
+			this.folder = folder;
+			this.name = name;
 		}
 	}
 
@@ -21,6 +21,12 @@ import static it.geosolutions.hale.io.appschema.AppSchemaIO.LAYER_FILE;
 import static it.geosolutions.hale.io.appschema.AppSchemaIO.NAMESPACE_FILE;
 import static it.geosolutions.hale.io.appschema.AppSchemaIO.WORKSPACE_FILE;
 import it.geosolutions.hale.io.appschema.AppSchemaIO;
+import it.geosolutions.hale.io.appschema.writer.internal.AppSchemaMappingStreamWriter;
+import it.geosolutions.hale.io.appschema.writer.internal.ArchiveBuilder;
+import it.geosolutions.hale.io.appschema.writer.internal.ArchiveBuilder.ArchiveStep;
+import it.geosolutions.hale.io.appschema.writer.internal.ArchiveCompression;
+import it.geosolutions.hale.io.appschema.writer.internal.ArchiveCompression.EntryClass;
+import it.geosolutions.hale.io.appschema.writer.internal.StagedDirectory;
 import it.geosolutions.hale.io.geoserver.DataStore;
 import it.geosolutions.hale.io.geoserver.FeatureType;
 import it.geosolutions.hale.io.geoserver.Layer;
@@ -31,19 +37,23 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URI;
+import java.text.MessageFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
-import com.google.common.io.ByteStreams;
-
+import de.fhg.igd.slf4jplus.ALogger;
+import de.fhg.igd.slf4jplus.ALoggerFactory;
 import eu.esdihumboldt.hale.common.core.HalePlatform;
 import eu.esdihumboldt.hale.common.core.io.IOProviderConfigurationException;
 import eu.esdihumboldt.hale.common.core.io.ProgressIndicator;
+import eu.esdihumboldt.hale.common.core.io.Value;
 import eu.esdihumboldt.hale.common.core.io.report.IOReporter;
+import eu.esdihumboldt.hale.common.core.io.report.impl.IOMessageImpl;
 
 /**
  * Writes the generated app-schema configuration to file.
@@ -60,11 +70,20 @@ import eu.esdihumboldt.hale.common.core.io.report.IOReporter;
  * archive must be uncompressed in GeoServer's data directory to publish the
  * app-schema datastore.
  * </p>
+ * <p>
+ * If content type is set to
+ * <code>it.geosolutions.hale.io.appschema.directory</code>, the same files are
+ * written straight into the target directory, typically the
+ * <code>workspaces</code> directory of GeoServer's data directory. Files are
+ * staged first and only those whose content has changed are then replaced.
+ * </p>
  * 
  * @author Stefano Costa, GeoSolutions
  */
 public class AppSchemaMappingFileWriter extends AbstractAppSchemaConfigurator {
 
+	private static final ALogger log = ALoggerFactory.getLogger(AppSchemaMappingFileWriter.class);
+
 	private static final String DEFAULT_CONTENT_TYPE_ID = AppSchemaIO.CONTENT_TYPE_MAPPING;
 
 	/**
@@ -86,12 +105,57 @@ public class AppSchemaMappingFileWriter extends AbstractAppSchemaConfigurator {
 		else if (getContentType().getId().equals(AppSchemaIO.CONTENT_TYPE_ARCHIVE)) {
 			writeArchive(progress, reporter);
 		}
+		else if (getContentType().getId().equals(AppSchemaIO.CONTENT_TYPE_DIRECTORY)) {
+			writeDirectory(progress, reporter);
+		}
 		else {
 			throw new IOProviderConfigurationException("Unsupported content type: "
 					+ getContentType().getName());
 		}
 	}
 
+	/**
+	 * @see it.geosolutions.hale.io.appschema.writer.AbstractAppSchemaConfigurator#configureGenerator(it.geosolutions.hale.io.appschema.writer.AppSchemaMappingGenerator)
+	 */
+	@Override
+	protected void configureGenerator(AppSchemaMappingGenerator appSchemaGenerator) {
+		super.configureGenerator(appSchemaGenerator);
+
+		if (getStreamingOutputParameter()) {
+			appSchemaGenerator
+					.setStreamWriter(new AppSchemaMappingStreamWriter(getPrettyPrintParameter()));
+		}
+	}
+
+	/**
+	 * @return the streaming output parameter value (<code>false</code> if not
+	 *         set)
+	 */
+	protected boolean getStreamingOutputParameter() {
+		Value parameterValue = getParameter(AppSchemaIO.PARAM_STREAMING_OUTPUT);
+		if (Value.NULL.equals(parameterValue)) {
+			return false;
+		}
+		else {
+			Boolean value = parameterValue.as(Boolean.class);
+			return (value != null) ? value : false;
+		}
+	}
+
+	/**
+	 * @return the pretty print parameter value (<code>true</code> if not set)
+	 */
+	protected boolean getPrettyPrintParameter() {
+		Value parameterValue = getParameter(AppSchemaIO.PARAM_PRETTY_PRINT);
+		if (Value.NULL.equals(parameterValue)) {
+			return true;
+		}
+		else {
+			Boolean value = parameterValue.as(Boolean.class);
+			return (value != null) ? value : true;
+		}
+	}
+
 	private void writeMappingFile() throws IOException {
 		OutputStream out = getTarget().getOutput();
 		generator.writeMappingConf(out);
@@ -111,49 +175,94 @@ public class AppSchemaMappingFileWriter extends AbstractAppSchemaConfigurator {
 		return inclTypesMappingFile;
 	}
 
-	private void writeArchive(ProgressIndicator progress, IOReporter reporter) throws IOException {
-		Workspace ws = generator.getMainWorkspace();
-		Namespace mainNs = generator.getMainNamespace();
-		DataStore ds = generator.getAppSchemaDataStore();
+	private void writeArchive(final ProgressIndicator progress, final IOReporter reporter)
+			throws IOException {
+		final ArchiveCompression compression = getArchiveCompressionParameter();
 
 		// save to archive
 		final ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(getTarget()
 				.getOutput()));
+		ArchiveBuilder archive = createArchive(compression,
+				dataStoreFolder -> () -> addTargetSchemaToZip(zip, new ZipEntry(dataStoreFolder),
+						compression, progress, reporter));
+		archive.writeTo(zip);
+		zip.close();
+	}
+
+	private void writeDirectory(final ProgressIndicator progress, final IOReporter reporter)
+			throws IOProviderConfigurationException, IOException {
+		URI location = getTarget().getLocation();
+		if (location == null || !"file".equals(location.getScheme())) {
+			throw new IOProviderConfigurationException(
+					"The target of the configuration directory must be a local directory");
+		}
+
+		// the whole configuration is written to a staging directory first,
+		// then only changed files are moved to the target directory
+		try (StagedDirectory directory = new StagedDirectory(new File(location))) {
+			final File stagingDir = directory.getStagingDirectory();
+			ArchiveBuilder archive = createArchive(getArchiveCompressionParameter(),
+					dataStoreFolder -> () -> addTargetSchemaToDirectory(new File(stagingDir,
+							dataStoreFolder), progress, reporter));
+			archive.writeTo(stagingDir);
+			directory.commit();
+
+			for (String writtenFile : directory.getWrittenFiles()) {
+				log.debug("Updated " + writtenFile);
+			}
+			reporter.info(new IOMessageImpl(MessageFormat.format(
+					"{0} files written to {1}, {2} files unchanged", directory.getWrittenFiles()
+							.size(), directory.getTargetDirectory(), directory
+							.getUnchangedCount()), null));
+		}
+	}
+
+	/**
+	 * Declare the entries of the app-schema configuration archive, i.e. the
+	 * GeoServer data directory layout of the configuration.
+	 * 
+	 * @param compression the compression strategy
+	 * @param targetSchemaStep creates the step adding the target schema, given
+	 *            the name of the datastore folder
+	 * @return the archive builder
+	 */
+	private ArchiveBuilder createArchive(ArchiveCompression compression,
+			Function<String, ArchiveStep> targetSchemaStep) {
+		Workspace ws = generator.getMainWorkspace();
+		Namespace mainNs = generator.getMainNamespace();
+		DataStore ds = generator.getAppSchemaDataStore();
+
+		// entries are rendered concurrently, but written in this order
+		ArchiveBuilder archive = new ArchiveBuilder(compression,
+				getArchiveParallelismParameter());
 		// add workspace folder
-		ZipEntry workspaceFolder = new ZipEntry(ws.getAttribute(Workspace.NAME) + "/");
-		zip.putNextEntry(workspaceFolder);
+		final String workspaceFolder = ws.getAttribute(Workspace.NAME) + "/";
+		archive.addDirectory(workspaceFolder);
 		// add workspace file
-		zip.putNextEntry(new ZipEntry(workspaceFolder.getName() + WORKSPACE_FILE));
-		copyAndCloseInputStream(ws.asStream(), zip);
-		zip.closeEntry();
+		archive.addEntry(workspaceFolder + WORKSPACE_FILE, EntryClass.CATALOG,
+				out -> ws.write(out));
 		// add namespace file
-		zip.putNextEntry(new ZipEntry(workspaceFolder.getName() + NAMESPACE_FILE));
-		copyAndCloseInputStream(mainNs.asStream(), zip);
-		zip.closeEntry();
+		archive.addEntry(workspaceFolder + NAMESPACE_FILE, EntryClass.CATALOG,
+				out -> mainNs.write(out));
 		// add datastore folder
-		ZipEntry dataStoreFolder = new ZipEntry(workspaceFolder.getName()
-				+ ds.getAttribute(DataStore.NAME) + "/");
-		zip.putNextEntry(dataStoreFolder);
+		String dataStoreFolder = workspaceFolder + ds.getAttribute(DataStore.NAME) + "/";
+		archive.addDirectory(dataStoreFolder);
 		// add datastore file
-		zip.putNextEntry(new ZipEntry(dataStoreFolder.getName() + DATASTORE_FILE));
-		copyAndCloseInputStream(ds.asStream(), zip);
-		zip.closeEntry();
-		// add target schema to zip
+		archive.addEntry(dataStoreFolder + DATASTORE_FILE, EntryClass.CATALOG,
+				out -> ds.write(out));
+		// add target schema: this updates the schema URIs in the mapping, so
+		// mapping files are only rendered afterwards
 		if (getIncludeSchemaParameter()) {
-			addTargetSchemaToZip(zip, dataStoreFolder, progress, reporter);
+			archive.addStep(targetSchemaStep.apply(dataStoreFolder));
 		}
 		// add main mapping file
 		Map<String, String> connectionParams = ds.getConnectionParameters();
-		zip.putNextEntry(new ZipEntry(dataStoreFolder.getName()
-				+ connectionParams.get("mappingFileName")));
-		generator.writeMappingConf(zip);
-		zip.closeEntry();
+		archive.addEntry(dataStoreFolder + connectionParams.get("mappingFileName"),
+				EntryClass.MAPPING, out -> generator.writeMappingConf(out));
 		// add included types mapping file, if necessary
 		if (generator.getGeneratedMapping().requiresMultipleFiles()) {
-			zip.putNextEntry(new ZipEntry(dataStoreFolder.getName()
-					+ AppSchemaIO.INCLUDED_TYPES_MAPPING_FILE));
-			generator.writeIncludedTypesMappingConf(zip);
-			zip.closeEntry();
+			archive.addEntry(dataStoreFolder + AppSchemaIO.INCLUDED_TYPES_MAPPING_FILE,
+					EntryClass.MAPPING, out -> generator.writeIncludedTypesMappingConf(out));
 		}
 
 		// add feature type entries
@@ -162,17 +271,15 @@ public class AppSchemaMappingFileWriter extends AbstractAppSchemaConfigurator {
 			Layer layer = generator.getLayer(ft);
 
 			// add feature type folder
-			ZipEntry featureTypeFolder = new ZipEntry(dataStoreFolder.getName()
-					+ ft.getAttribute(FeatureType.NAME) + "/");
-			zip.putNextEntry(featureTypeFolder);
+			String featureTypeFolder = dataStoreFolder
+					+ ft.getAttribute(FeatureType.NAME) + "/";
+			archive.addDirectory(featureTypeFolder);
 			// add feature type file
-			zip.putNextEntry(new ZipEntry(featureTypeFolder.getName() + FEATURETYPE_FILE));
-			copyAndCloseInputStream(ft.asStream(), zip);
-			zip.closeEntry();
+			archive.addEntry(featureTypeFolder + FEATURETYPE_FILE, EntryClass.CATALOG,
+					out -> ft.write(out));
 			// add layer file
-			zip.putNextEntry(new ZipEntry(featureTypeFolder.getName() + LAYER_FILE));
-			copyAndCloseInputStream(layer.asStream(), zip);
-			zip.closeEntry();
+			archive.addEntry(featureTypeFolder + LAYER_FILE, EntryClass.CATALOG,
+					out -> layer.write(out));
 		}
 
 		// add secondary namespaces
@@ -181,31 +288,16 @@ public class AppSchemaMappingFileWriter extends AbstractAppSchemaConfigurator {
 			Workspace secWs = generator.getWorkspace(secNs);
 
 			// add workspace folder
-			ZipEntry secondaryWorkspaceFolder = new ZipEntry(secWs.name() + "/");
-			zip.putNextEntry(secondaryWorkspaceFolder);
+			String secondaryWorkspaceFolder = secWs.name() + "/";
+			archive.addDirectory(secondaryWorkspaceFolder);
 			// add workspace file
-			zip.putNextEntry(new ZipEntry(secondaryWorkspaceFolder.getName() + WORKSPACE_FILE));
-			copyAndCloseInputStream(secWs.asStream(), zip);
-			zip.closeEntry();
+			archive.addEntry(secondaryWorkspaceFolder + WORKSPACE_FILE, EntryClass.CATALOG,
+					out -> secWs.write(out));
 			// add namespace file
-			zip.putNextEntry(new ZipEntry(secondaryWorkspaceFolder.getName() + NAMESPACE_FILE));
-			copyAndCloseInputStream(secNs.asStream(), zip);
-			zip.closeEntry();
+			archive.addEntry(secondaryWorkspaceFolder + NAMESPACE_FILE, EntryClass.CATALOG,
+					out -> secNs.write(out));
 		}
 
-		zip.close();
-	}
-
-	private void copyAndCloseInputStream(InputStream from, OutputStream to) throws IOException {
-		try {
-			ByteStreams.copy(from, to);
-		} finally {
-			try {
-				from.close();
-			} catch (IOException e) {
-				// ignore
-			}
-
-		}
+		return archive;
 	}
 }
@@ -15,10 +15,7 @@
 
 package it.geosolutions.hale.io.appschema.writer;
 
-import static it.geosolutions.hale.io.appschema.AppSchemaIO.isHrefClientPropertyCompatible;
-
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.text.MessageFormat;
@@ -28,16 +25,17 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
 import javax.xml.namespace.QName;
-import javax.xml.transform.stream.StreamSource;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -49,10 +47,9 @@ import eu.esdihumboldt.hale.common.align.model.Alignment;
 import eu.esdihumboldt.hale.common.align.model.Cell;
 import eu.esdihumboldt.hale.common.align.model.ChildContext;
 import eu.esdihumboldt.hale.common.align.model.Entity;
-import eu.esdihumboldt.hale.common.align.model.EntityDefinition;
+import eu.esdihumboldt.hale.common.core.io.report.IOMessage;
 import eu.esdihumboldt.hale.common.core.io.report.IOReporter;
 import eu.esdihumboldt.hale.common.core.io.report.impl.IOMessageImpl;
-import eu.esdihumboldt.hale.common.schema.model.ChildDefinition;
 import eu.esdihumboldt.hale.common.schema.model.DefinitionGroup;
 import eu.esdihumboldt.hale.common.schema.model.PropertyDefinition;
 import eu.esdihumboldt.hale.common.schema.model.Schema;
@@ -61,7 +58,6 @@ import eu.esdihumboldt.hale.common.schema.model.impl.AbstractPropertyDecorator;
 import eu.esdihumboldt.hale.common.schema.model.impl.DefaultPropertyDefinition;
 import eu.esdihumboldt.hale.common.schema.model.impl.DefaultTypeDefinition;
 import eu.esdihumboldt.hale.io.xsd.reader.internal.XmlTypeDefinition;
-import it.geosolutions.hale.io.appschema.AppSchemaIO;
 import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.AppSchemaDataAccessType;
 import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.NamespacesPropertyType.Namespace;
 import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.ObjectFactory;
@@ -70,6 +66,8 @@ import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.Sour
 import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.TypeMappingsPropertyType.FeatureTypeMapping;
 import it.geosolutions.hale.io.appschema.model.FeatureChaining;
 import it.geosolutions.hale.io.appschema.model.WorkspaceConfiguration;
+import it.geosolutions.hale.io.appschema.writer.internal.AppSchemaMappingStreamWriter;
+import it.geosolutions.hale.io.appschema.writer.internal.JaxbContextCache;
 import it.geosolutions.hale.io.appschema.writer.internal.PropertyTransformationHandler;
 import it.geosolutions.hale.io.appschema.writer.internal.PropertyTransformationHandlerFactory;
 import it.geosolutions.hale.io.appschema.writer.internal.TypeTransformationHandler;
@@ -77,6 +75,10 @@ import it.geosolutions.hale.io.appschema.writer.internal.TypeTransformationHandl
 import it.geosolutions.hale.io.appschema.writer.internal.UnsupportedTransformationException;
 import it.geosolutions.hale.io.appschema.writer.internal.mapping.AppSchemaMappingContext;
 import it.geosolutions.hale.io.appschema.writer.internal.mapping.AppSchemaMappingWrapper;
+import it.geosolutions.hale.io.appschema.writer.internal.mapping.AppSchemaMappingWrapperBase;
+import it.geosolutions.hale.io.appschema.writer.internal.mapping.ClasspathMappingTemplateSource;
+import it.geosolutions.hale.io.appschema.writer.internal.mapping.MappingTemplateCache;
+import it.geosolutions.hale.io.appschema.writer.internal.mapping.MappingTemplateSource;
 import it.geosolutions.hale.io.appschema.writer.internal.mapping.MappingWrapper;
 import it.geosolutions.hale.io.geoserver.AppSchemaDataStore;
 import it.geosolutions.hale.io.geoserver.FeatureType;
@@ -93,9 +95,6 @@ public class AppSchemaMappingGenerator implements MappingGenerator {
 
 	private static final ALogger log = ALoggerFactory.getLogger(AppSchemaMappingGenerator.class);
 
-	private static final String NET_OPENGIS_OGC_CONTEXT = "it.geosolutions.hale.io.appschema.impl.internal.generated.net_opengis_ogc";
-	private static final String APP_SCHEMA_CONTEXT = "it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema";
-
 	protected final Alignment alignment;
 	protected final SchemaSpace targetSchemaSpace;
 	protected final Schema targetSchema;
@@ -104,6 +103,10 @@ public class AppSchemaMappingGenerator implements MappingGenerator {
 	protected final WorkspaceConfiguration workspaceConf;
 	protected MappingWrapper mappingWrapper;
 	protected AppSchemaMappingContext context;
+	private MappingTemplateSource templateSource = ClasspathMappingTemplateSource.DEFAULT;
+	private int typeCellParallelism = 1;
+	private int mergedTypeCellCount;
+	private AppSchemaMappingStreamWriter streamWriter;
 	protected AppSchemaDataAccessType mainMapping;
 	protected AppSchemaDataAccessType includedTypesMapping;
 
@@ -145,10 +148,7 @@ public class AppSchemaMappingGenerator implements MappingGenerator {
 					targetSchema.getMappingRelevantTypes(), chainingConf, workspaceConf);
 
 			// create namespace objects for all target types / properties
-			// TODO: this removes all namespaces that were defined in the
-			// template file, add code to cope with pre-configured namespaces
-			// instead
-			mapping.getNamespaces().getNamespace().clear();
+			// (template namespaces are removed by MappingTemplateCache)
 			createNamespaces();
 
 			// apply datastore configuration, if any
@@ -161,7 +161,7 @@ public class AppSchemaMappingGenerator implements MappingGenerator {
 			// populate typeMappings element
 			createTypeMappings(context, reporter);
 
-			// cache mainMapping and includedTypesMapping for performance
+			// cache mainMapping and includedTypesMapping views
 			mainMapping = mappingWrapper.getMainMapping();
 			includedTypesMapping = mappingWrapper.getIncludedTypesMapping();
 
@@ -177,6 +177,7 @@ public class AppSchemaMappingGenerator implements MappingGenerator {
 		mappingWrapper = null;
 		mainMapping = null;
 		includedTypesMapping = null;
+		mergedTypeCellCount = 0;
 	}
 
 	/**
@@ -220,10 +221,10 @@ public class AppSchemaMappingGenerator implements MappingGenerator {
 	public void updateSchemaURI(String oldSchemaURI, String newSchemaURI) {
 		checkMappingGenerated();
 
+		// the cached main and included types mappings are views sharing the
+		// target types with the wrapped mapping, so the update will be
+		// reflected when they are written
 		mappingWrapper.updateSchemaURI(oldSchemaURI, newSchemaURI);
-		// regenerate cached mappings
-		mainMapping = mappingWrapper.getMainMapping();
-		includedTypesMapping = mappingWrapper.getIncludedTypesMapping();
 	}
 
 	/**
@@ -587,94 +588,228 @@ public class AppSchemaMappingGenerator implements MappingGenerator {
 	}
 
 	protected void createTypeMappings(AppSchemaMappingContext context, IOReporter reporter) {
+		// index property cells once, instead of scanning all cells for each
+		// type cell
+		PropertyCellIndex propertyCellIndex = new PropertyCellIndex(alignment);
 		Collection<? extends Cell> typeCells = alignment.getTypeCells();
-		for (Cell typeCell : typeCells) {
-			Collection<? extends Cell> propertyCells = getPropertyCells(typeCell);
-			String typeTransformId = typeCell.getTransformationIdentifier();
-			TypeTransformationHandler typeTransformHandler = null;
-
-			try {
-				typeTransformHandler = TypeTransformationHandlerFactory.getInstance()
-						.createTypeTransformationHandler(typeTransformId);
-				FeatureTypeMapping ftMapping = typeTransformHandler
-						.handleTypeTransformation(typeCell, context);
-
-				for (Cell propertyCell : propertyCells) {
-					String propertyTransformId = propertyCell.getTransformationIdentifier();
-					PropertyTransformationHandler propertyTransformHandler = null;
-					try {
-						propertyTransformHandler = PropertyTransformationHandlerFactory
-								.getInstance()
-								.createPropertyTransformationHandler(propertyTransformId);
-						propertyTransformHandler.handlePropertyTransformation(typeCell,
-								propertyCell, context);
-					} catch (UnsupportedTransformationException e) {
-						String errMsg = MessageFormat.format("Error processing property cell {0}",
-								propertyCell.getId());
-						log.warn(errMsg, e);
-						if (reporter != null) {
-							reporter.warn(new IOMessageImpl(errMsg, e));
+
+		if (typeCellParallelism > 1 && typeCells.size() > 1
+				&& mappingWrapper instanceof AppSchemaMappingWrapperBase) {
+			createTypeMappingsInParallel(context, typeCells, propertyCellIndex, reporter);
+		}
+		else {
+			for (Cell typeCell : typeCells) {
+				List<IOMessage> warnings = new ArrayList<IOMessage>();
+				handleTypeCell(context, typeCell, propertyCellIndex, warnings);
+				reportWarnings(warnings, reporter);
+			}
+		}
+	}
+
+	/**
+	 * Translates type cells concurrently, each against its own partial mapping
+	 * wrapper. Partial mappings are then merged in type cell order; if a
+	 * partial mapping cannot be merged without altering the result (e.g.
+	 * because it defines new namespaces or shares a type mapping with a
+	 * previous cell), its type cell is translated again against the shared
+	 * mapping. This way, the output is the same as in sequential mode.
+	 */
+	private void createTypeMappingsInParallel(final AppSchemaMappingContext context,
+			Collection<? extends Cell> typeCells, final PropertyCellIndex propertyCellIndex,
+			IOReporter reporter) {
+		AppSchemaMappingWrapperBase sharedWrapper = (AppSchemaMappingWrapperBase) mappingWrapper;
+		List<Cell> cells = new ArrayList<Cell>(typeCells);
+		List<Future<PartialTypeMapping>> partialMappings = new ArrayList<Future<PartialTypeMapping>>();
+
+		ExecutorService executor = Executors
+				.newFixedThreadPool(Math.min(typeCellParallelism, cells.size()));
+		try {
+			for (final Cell typeCell : cells) {
+				// partial wrappers are created here, as the shared wrapper
+				// must be accessed by this thread only
+				final AppSchemaMappingWrapperBase partialWrapper = sharedWrapper
+						.createPartialWrapper();
+				partialMappings.add(executor.submit(new Callable<PartialTypeMapping>() {
+
+					@Override
+					public PartialTypeMapping call() {
+						PartialTypeMapping partial = new PartialTypeMapping(partialWrapper);
+						try {
+							handleTypeCell(context.createPartialContext(partialWrapper), typeCell,
+									propertyCellIndex, partial.warnings);
+						} catch (RuntimeException e) {
+							// translation will be repeated sequentially
+							partial.failed = true;
 						}
+						return partial;
 					}
+				}));
+			}
+
+			for (int i = 0; i < cells.size(); i++) {
+				PartialTypeMapping partial = getPartialTypeMapping(partialMappings.get(i));
+				if (!partial.failed && sharedWrapper.mergePartialWrapper(partial.wrapper)) {
+					mergedTypeCellCount++;
+					reportWarnings(partial.warnings, reporter);
 				}
-			} catch (UnsupportedTransformationException e) {
-				String errMsg = MessageFormat.format("Error processing type cell{0}",
-						typeCell.getId());
-				log.warn(errMsg, e);
-				if (reporter != null) {
-					reporter.warn(new IOMessageImpl(errMsg, e));
+				else {
+					List<IOMessage> warnings = new ArrayList<IOMessage>();
+					handleTypeCell(context, cells.get(i), propertyCellIndex, warnings);
+					reportWarnings(warnings, reporter);
 				}
 			}
+		} finally {
+			executor.shutdownNow();
 		}
 	}
 
-	private Collection<? extends Cell> getPropertyCells(Cell typeCell) {
-		// get property cells from alignment
-		Collection<? extends Cell> propertyCells = alignment.getPropertyCells(typeCell);
-		// now check if there are property cells for Nested ReferenceType
-		// chainingConf.
-		Collection<? extends Cell> extraCells = alignment.getCells().stream().filter(c -> {
-			Optional<EntityDefinition> definitionOpt = c.getTarget().values().stream().findFirst()
-					.map(e -> e.getDefinition());
-			Optional<? extends Entity> typeCellEntityOpt = typeCell.getTarget().values().stream()
-					.findFirst();
-			Optional<QName> typeCellQnameOpt = typeCellEntityOpt.map(x -> x.getDefinition())
-					.map(x -> x.getType()).map(x -> x.getName());
-			if (!definitionOpt.isPresent() || !typeCellEntityOpt.isPresent())
-				return false;
-			return isHrefClientPropertyCompatible(c)
-					&& definitionOpt.map(x -> x.getLastPathElement()).map(x -> x.getChild())
-							.filter(x -> isHref(x)).isPresent()
-					&& definitionOpt.map(x -> x.getType()).map(x -> x.getName())
-							.filter(x -> Objects.equals(x, typeCellQnameOpt.get())).isPresent();
-		}).collect(Collectors.toList());
-		List<Cell> resultList = new ArrayList<>(propertyCells);
-		resultList.addAll(extraCells);
-		return resultList;
-	}
-
-	private boolean isHref(ChildDefinition<?> childDefinition) {
-		if (childDefinition.getName() == null)
-			return false;
-		return Objects.equals(childDefinition.getName().getLocalPart(), "href") && Objects.equals(
-				"http://www.w3.org/1999/xlink", childDefinition.getName().getNamespaceURI());
+	private PartialTypeMapping getPartialTypeMapping(Future<PartialTypeMapping> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while translating type cells", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Error translating type cells", e.getCause());
+		}
 	}
 
-	protected AppSchemaDataAccessType loadMappingTemplate() throws IOException {
-		InputStream is = getClass().getResourceAsStream(AppSchemaIO.MAPPING_TEMPLATE);
+	private void handleTypeCell(AppSchemaMappingContext context, Cell typeCell,
+			PropertyCellIndex propertyCellIndex, List<IOMessage> warnings) {
+		// property cells include those for Nested ReferenceType (xlink:href)
+		// chaining
+		Collection<? extends Cell> propertyCells = propertyCellIndex.getPropertyCells(typeCell);
+		String typeTransformId = typeCell.getTransformationIdentifier();
+		TypeTransformationHandler typeTransformHandler = null;
 
-		JAXBElement<AppSchemaDataAccessType> templateElement = null;
 		try {
-			JAXBContext context = createJaxbContext();
-			Unmarshaller unmarshaller = context.createUnmarshaller();
+			typeTransformHandler = TypeTransformationHandlerFactory.getInstance()
+					.createTypeTransformationHandler(typeTransformId);
+			FeatureTypeMapping ftMapping = typeTransformHandler.handleTypeTransformation(typeCell,
+					context);
+
+			for (Cell propertyCell : propertyCells) {
+				String propertyTransformId = propertyCell.getTransformationIdentifier();
+				PropertyTransformationHandler propertyTransformHandler = null;
+				try {
+					propertyTransformHandler = PropertyTransformationHandlerFactory.getInstance()
+							.createPropertyTransformationHandler(propertyTransformId);
+					propertyTransformHandler.handlePropertyTransformation(typeCell, propertyCell,
+							context);
+				} catch (UnsupportedTransformationException e) {
+					String errMsg = MessageFormat.format("Error processing property cell {0}",
+							propertyCell.getId());
+					log.warn(errMsg, e);
+					warnings.add(new IOMessageImpl(errMsg, e));
+				}
+			}
+		} catch (UnsupportedTransformationException e) {
+			String errMsg = MessageFormat.format("Error processing type cell{0}",
+					typeCell.getId());
+			log.warn(errMsg, e);
+			warnings.add(new IOMessageImpl(errMsg, e));
+		}
+	}
 
-			templateElement = unmarshaller.unmarshal(new StreamSource(is),
-					AppSchemaDataAccessType.class);
-		} catch (JAXBException e) {
-			throw new IOException(e);
+	private void reportWarnings(List<IOMessage> warnings, IOReporter reporter) {
+		if (reporter != null) {
+			for (IOMessage warning : warnings) {
+				reporter.warn(warning);
+			}
 		}
+	}
 
-		return templateElement.getValue();
+	/**
+	 * @return the maximum number of type cells translated concurrently
+	 */
+	public int getTypeCellParallelism() {
+		return typeCellParallelism;
+	}
+
+	/**
+	 * @return the number of type cells whose concurrent translation was merged
+	 *         into the mapping during the last generation, i.e. that did not
+	 *         have to be translated again sequentially
+	 */
+	public int getMergedTypeCellCount() {
+		return mergedTypeCellCount;
+	}
+
+	/**
+	 * Set the maximum number of type cells translated concurrently. Values
+	 * lower than or equal to 1 (the default) disable parallel translation.
+	 * 
+	 * <p>
+	 * The generated mapping is the same, regardless of this setting.
+	 * </p>
+	 * 
+	 * @param typeCellParallelism the maximum number of concurrent type cell
+	 *            translations
+	 */
+	public void setTypeCellParallelism(int typeCellParallelism) {
+		this.typeCellParallelism = typeCellParallelism;
+	}
+
+	/**
+	 * @return the writer used to stream the mapping configuration, or
+	 *         <code>null</code> if the configuration is marshalled with JAXB
+	 */
+	public AppSchemaMappingStreamWriter getStreamWriter() {
+		return streamWriter;
+	}
+
+	/**
+	 * Set the writer used to stream the mapping configuration to the output
+	 * in {@link #writeMappingConf(OutputStream)} and
+	 * {@link #writeIncludedTypesMappingConf(OutputStream)}. If
+	 * <code>null</code> (the default), the configuration is marshalled with
+	 * JAXB.
+	 * 
+	 * @param streamWriter the stream writer to use
+	 */
+	public void setStreamWriter(AppSchemaMappingStreamWriter streamWriter) {
+		this.streamWriter = streamWriter;
+	}
+
+	/**
+	 * Result of the translation of a type cell against a partial mapping
+	 * wrapper.
+	 */
+	private static class PartialTypeMapping {
+
+		private final AppSchemaMappingWrapperBase wrapper;
+		private final List<IOMessage> warnings = new ArrayList<IOMessage>();
+		private boolean failed;
+
+		private PartialTypeMapping(AppSchemaMappingWrapperBase wrapper) {
+			this.wrapper = wrapper;
+		}
+	}
+
+	protected AppSchemaDataAccessType loadMappingTemplate() throws IOException {
+		return MappingTemplateCache.getInstance().getMappingTemplate(templateSource);
+	}
+
+	/**
+	 * @return the source of the mapping template used as starting point for
+	 *         the generated mapping
+	 */
+	public MappingTemplateSource getTemplateSource() {
+		return templateSource;
+	}
+
+	/**
+	 * Set the source of the mapping template used as starting point for the
+	 * generated mapping. Parsed templates are cached, see
+	 * {@link MappingTemplateCache}.
+	 * 
+	 * @param templateSource the template source to set
+	 */
+	public void setTemplateSource(MappingTemplateSource templateSource) {
+		if (templateSource == null) {
+			throw new IllegalArgumentException("templateSource must be set");
+		}
+		this.templateSource = templateSource;
 	}
 
 	/**
@@ -684,12 +819,7 @@ public class AppSchemaMappingGenerator implements MappingGenerator {
 	public void writeMappingConf(OutputStream out) throws IOException {
 		checkMappingGenerated();
 
-		try {
-			writeMapping(out, mainMapping);
-		} catch (JAXBException e) {
-			throw new IOException(e);
-		}
-
+		writeMappingConf(out, mainMapping);
 	}
 
 	/**
@@ -704,31 +834,38 @@ public class AppSchemaMappingGenerator implements MappingGenerator {
 					"No included types configuration is available for the generated mapping");
 		}
 
+		writeMappingConf(out, includedTypesMapping);
+	}
+
+	private void writeMappingConf(OutputStream out, AppSchemaDataAccessType mapping)
+			throws IOException {
 		try {
-			writeMapping(out, includedTypesMapping);
-		} catch (JAXBException e) {
+			if (streamWriter != null) {
+				streamWriter.write(out, mapping);
+			}
+			else {
+				writeMapping(out, mapping);
+			}
+		} catch (JAXBException | XMLStreamException e) {
 			throw new IOException(e);
 		}
-
 	}
 
 	static void writeMapping(OutputStream out, AppSchemaDataAccessType mapping)
 			throws JAXBException {
-		JAXBContext context = createJaxbContext();
-
-		Marshaller marshaller = context.createMarshaller();
-		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-
-		JAXBElement<AppSchemaDataAccessType> mappingConfElement = new ObjectFactory()
-				.createAppSchemaDataAccess(mapping);
-
-		marshaller.marshal(mappingConfElement, out);
-	}
+		JaxbContextCache jaxbCache = JaxbContextCache.getInstance();
+		Marshaller marshaller = jaxbCache.acquireMarshaller(
+				JaxbContextCache.APP_SCHEMA_CONTEXT_PATH,
+				AppSchemaMappingGenerator.class.getClassLoader());
+		try {
+			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
 
-	private static JAXBContext createJaxbContext() throws JAXBException {
-		JAXBContext context = JAXBContext
-				.newInstance(NET_OPENGIS_OGC_CONTEXT + ":" + APP_SCHEMA_CONTEXT);
+			JAXBElement<AppSchemaDataAccessType> mappingConfElement = new ObjectFactory()
+					.createAppSchemaDataAccess(mapping);
 
-		return context;
+			marshaller.marshal(mappingConfElement, out);
+		} finally {
+			jaxbCache.releaseMarshaller(JaxbContextCache.APP_SCHEMA_CONTEXT_PATH, marshaller);
+		}
 	}
 }
@@ -16,32 +16,73 @@
 package it.geosolutions.hale.io.appschema.writer;
 
 import it.geosolutions.hale.io.appschema.AppSchemaIO;
+import it.geosolutions.hale.io.appschema.writer.PublishingJournal.Step;
+import it.geosolutions.hale.io.appschema.writer.internal.ArchiveCompression;
+import it.geosolutions.hale.io.appschema.writer.internal.ArchiveCompression.EntryClass;
+import it.geosolutions.hale.io.appschema.writer.internal.DigestZipOutputStream;
+import it.geosolutions.hale.io.geoserver.AppSchemaDataStore;
 import it.geosolutions.hale.io.geoserver.DataStore;
 import it.geosolutions.hale.io.geoserver.DataStoreFile;
+import it.geosolutions.hale.io.geoserver.FeatureType;
 import it.geosolutions.hale.io.geoserver.Namespace;
 import it.geosolutions.hale.io.geoserver.ResourceBuilder;
 import it.geosolutions.hale.io.geoserver.Workspace;
+import it.geosolutions.hale.io.geoserver.rest.AbstractResourceManager;
+import it.geosolutions.hale.io.geoserver.rest.AsyncResourceManager;
 import it.geosolutions.hale.io.geoserver.rest.DataStoreFileManager;
 import it.geosolutions.hale.io.geoserver.rest.DataStoreManager;
+import it.geosolutions.hale.io.geoserver.rest.FeatureTypeManager;
 import it.geosolutions.hale.io.geoserver.rest.NamespaceManager;
 import it.geosolutions.hale.io.geoserver.rest.ResourceException;
+import it.geosolutions.hale.io.geoserver.rest.ResponseCache;
+import it.geosolutions.hale.io.geoserver.rest.RestSession;
+import it.geosolutions.hale.io.geoserver.rest.RetryPolicy;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.ZipEntry;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
 import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.http.entity.ContentType;
 
+import com.google.common.base.Joiner;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.Files;
+
+import de.fhg.igd.slf4jplus.ALogger;
+import de.fhg.igd.slf4jplus.ALoggerFactory;
 import eu.esdihumboldt.hale.common.core.io.IOProviderConfigurationException;
 import eu.esdihumboldt.hale.common.core.io.ProgressIndicator;
+import eu.esdihumboldt.hale.common.core.io.Value;
 import eu.esdihumboldt.hale.common.core.io.report.IOReporter;
+import eu.esdihumboldt.hale.common.core.io.report.impl.IOMessageImpl;
 import eu.esdihumboldt.hale.common.core.io.supplier.LocatableOutputSupplier;
 
 /**
@@ -51,14 +92,55 @@ import eu.esdihumboldt.hale.common.core.io.supplier.LocatableOutputSupplier;
  * The current implementation checks for the existence of namespaces/workspaces
  * and does not create nor update them if they already exist. On the contrary,
  * if the target app-schema datastore already exists, it is destroyed and then
- * re-created.
+ * re-created, unless incremental publishing is enabled (see
+ * {@link AppSchemaIO#PARAM_REST_INCREMENTAL}): in that case, the mapping files
+ * of the existing datastore are replaced and only the feature types that were
+ * added or removed are created or deleted.
+ * </p>
+ * <p>
+ * Unless disabled via {@link AppSchemaIO#PARAM_REST_SKIP_UNCHANGED}, a digest of
+ * the published content is stored in the datastore metadata, and the upload is
+ * skipped entirely if the digest of the generated content matches it.
+ * </p>
+ * <p>
+ * Additional GeoServer nodes not sharing the data directory of the target one
+ * can be listed in {@link AppSchemaIO#PARAM_REST_CLUSTER_NODES}: the content is
+ * then generated once and published to all nodes concurrently.
+ * </p>
+ * <p>
+ * Transient REST failures of idempotent requests are retried with exponential
+ * backoff. The publishing steps completed on each node are recorded, so that a
+ * failed upload of the same content resumes after the last successful step
+ * (see {@link AppSchemaIO#PARAM_REST_RESUME}).
+ * </p>
+ * <p>
+ * GeoServer responses are requested compressed, and the documents read are
+ * revalidated with conditional requests rather than downloaded again (see
+ * {@link AppSchemaIO#PARAM_REST_CACHE_DIRECTORY}).
  * </p>
  * 
  * @author Stefano Costa, GeoSolutions
  */
 public class AppSchemaMappingUploader extends AbstractAppSchemaConfigurator {
 
-	private URL geoserverURL;
+	private static final ALogger log = ALoggerFactory.getLogger(AppSchemaMappingUploader.class);
+
+	/**
+	 * Key of the datastore metadata entry holding the digest of the last
+	 * published content.
+	 */
+	public static final String CONTENT_DIGEST_KEY = "hale.appschema.contentDigest";
+
+	private static final String CONTENT_DIGEST_ALGORITHM = "SHA-256";
+
+	private static final int DEFAULT_REST_PARALLELISM = 4;
+
+	private static final File JOURNAL_DIRECTORY = new File(
+			System.getProperty("java.io.tmpdir"), "hale-appschema-journal");
+
+	private static final int DEFAULT_CLUSTER_ATTEMPTS = 3;
+	private static final long CLUSTER_RETRY_DELAY = 1000;
+
 	private String username;
 	private String password;
 	private boolean includeTargetSchema = false;
@@ -72,97 +154,500 @@ public class AppSchemaMappingUploader extends AbstractAppSchemaConfigurator {
 			throws IOProviderConfigurationException, IOException {
 		LocatableOutputSupplier<? extends OutputStream> target = getTarget();
 
-		geoserverURL = target.getLocation().toURL();
+		List<URL> nodeURLs = getNodeURLs(target.getLocation().toURL());
 		username = getParameter(AppSchemaIO.PARAM_USER).as(String.class);
 		password = getParameter(AppSchemaIO.PARAM_PASSWORD).as(String.class);
 		includeTargetSchema = getIncludeSchemaParameter();
 
-		publishNamespaces();
+		ContentType contentType = getMimeType();
+		String mappingFileName = generator.getAppSchemaDataStore().name();
+		if (nodeURLs.size() == 1) {
+			// the digest is computed without keeping the content, which is
+			// then generated while being uploaded, so that the whole archive
+			// is never held in memory
+			String digest = null;
+			if (getSkipUnchangedParameter() || getResumeParameter()) {
+				// the digest does not depend on compression: do the least work
+				ArchiveCompression digestCompression = ArchiveCompression
+						.uniform(Deflater.NO_COMPRESSION);
+				digestCompression.setLevel(EntryClass.SCHEMA, ArchiveCompression.STORED);
+				digest = writeContent(NullOutputStream.NULL_OUTPUT_STREAM, mappingFileName,
+						contentType, digestCompression, progress, reporter);
+			}
+			ArchiveCompression compression = getArchiveCompressionParameter();
+			publishToNode(nodeURLs.get(0), contentType, out -> writeContent(out, mappingFileName,
+					contentType, compression, progress, reporter), digest, reporter);
+		}
+		else {
+			publishToCluster(nodeURLs, mappingFileName, contentType, progress, reporter);
+		}
+	}
+
+	/**
+	 * @param targetURL the URL of the target location
+	 * @return the target URL, followed by the URLs of the additional cluster
+	 *         nodes, if any
+	 * @throws IOProviderConfigurationException if a cluster node URL is
+	 *             invalid
+	 */
+	private List<URL> getNodeURLs(URL targetURL) throws IOProviderConfigurationException {
+		Set<String> nodes = new LinkedHashSet<String>();
+		nodes.add(targetURL.toString());
+
+		Value parameterValue = getParameter(AppSchemaIO.PARAM_REST_CLUSTER_NODES);
+		if (!Value.NULL.equals(parameterValue) && parameterValue.as(String.class) != null) {
+			for (String node : parameterValue.as(String.class).split(",")) {
+				if (!node.trim().isEmpty()) {
+					nodes.add(node.trim());
+				}
+			}
+		}
+
+		List<URL> nodeURLs = new ArrayList<URL>();
+		for (String node : nodes) {
+			try {
+				nodeURLs.add(new URL(node));
+			} catch (MalformedURLException e) {
+				throw new IOProviderConfigurationException("Invalid GeoServer node URL: " + node,
+						e);
+			}
+		}
+
+		return nodeURLs;
+	}
+
+	/**
+	 * Publish the mapping to every node of a cluster of GeoServer instances
+	 * not sharing their data directory.
+	 * 
+	 * <p>
+	 * The content is generated once and uploaded to all nodes concurrently
+	 * (see {@link ClusterPublisher}).
+	 * </p>
+	 * 
+	 * @param nodeURLs the GeoServer node URLs
+	 * @param mappingFileName the main mapping file name
+	 * @param contentType the content type
+	 * @param progress the progress indicator
+	 * @param reporter the reporter
+	 * @throws IOException if the content cannot be generated, or publishing
+	 *             failed on any node
+	 */
+	private void publishToCluster(List<URL> nodeURLs, String mappingFileName,
+			ContentType contentType, ProgressIndicator progress, IOReporter reporter)
+			throws IOException {
+		final File contentFile = File.createTempFile("appschema", ".upload");
+		try {
+			String digest;
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(contentFile))) {
+				digest = writeContent(out, mappingFileName, contentType,
+						getArchiveCompressionParameter(), progress, reporter);
+			}
+			final String publishedDigest = digest;
+			final DataStoreFile.ContentWriter content = out -> Files.copy(contentFile, out);
+
+			ClusterPublisher publisher = new ClusterPublisher(getIntParameter(
+					AppSchemaIO.PARAM_REST_CLUSTER_ATTEMPTS, DEFAULT_CLUSTER_ATTEMPTS),
+					CLUSTER_RETRY_DELAY);
+			publisher.publish(nodeURLs,
+					nodeURL -> publishToNode(nodeURL, contentType, content, publishedDigest,
+							reporter),
+					reporter);
+		} finally {
+			FileUtils.deleteQuietly(contentFile);
+		}
+	}
+
+	private void publishToNode(URL nodeURL, ContentType contentType,
+			DataStoreFile.ContentWriter content, String digest, IOReporter reporter)
+			throws IOException {
+		// share pooled, keep-alive connections among all resource managers
+		try (RestSession session = createRestSession()) {
+			GeoServerNode node = new GeoServerNode(nodeURL, session);
+			try {
+				PublishingJournal journal = openJournal(node, digest);
+				if (journal.isResuming()) {
+					report(reporter, new IOMessageImpl(MessageFormat.format(
+							"Resuming publishing to {0} after the last successful step",
+							nodeURL), null), false);
+				}
+
+				Workspace ws = generator.getMainWorkspace();
+				DataStore dataStore = generator.getAppSchemaDataStore();
+				boolean skipUnchanged = digest != null && getSkipUnchangedParameter();
+
+				// namespaces and the state of the datastore don't depend on
+				// each other: look up the latter while publishing the former
+				CompletableFuture<Void> namespaces = CompletableFuture.completedFuture(null);
+				if (!journal.isCompleted(Step.NAMESPACES)) {
+					namespaces = new NamespacePublisher(node.namespaces).publish(
+							generator.getMainNamespace(), generator.getSecondaryNamespaces())
+							.thenRun(() -> completeStep(journal, Step.NAMESPACES));
+				}
+				CompletableFuture<DataStoreState> dataStoreState = lookUpDataStore(node, ws,
+						dataStore, skipUnchanged);
+				DataStoreState state = await(namespaces.thenCombine(dataStoreState,
+						(v, dsState) -> dsState));
 
-		publishAppSchemaDataStore(progress, reporter);
+				publishAppSchemaDataStore(node, ws, dataStore, state, contentType, content,
+						skipUnchanged ? digest : null, journal, reporter);
+
+				journal.close();
+			} finally {
+				node.close();
+			}
+		}
 	}
 
-	private void publishNamespaces() {
-		NamespaceManager nsMgr = new NamespaceManager(geoserverURL);
-		nsMgr.setCredentials(username, password);
+	/**
+	 * Open the journal recording the publishing steps completed on a node: if
+	 * resuming is disabled, or the content digest is not known, the journal is
+	 * not persisted.
+	 * 
+	 * @param node the GeoServer node
+	 * @param digest the content digest, may be <code>null</code>
+	 * @return the publishing journal
+	 * @throws IOException if the journal cannot be read
+	 */
+	private PublishingJournal openJournal(GeoServerNode node, String digest) throws IOException {
+		if (digest == null || !getResumeParameter()) {
+			return PublishingJournal.transientJournal();
+		}
 
-		// check whether main namespace/workspace exists; if not, create it
-		Namespace mainNs = generator.getMainNamespace();
-		createNamespaceIfRequired(nsMgr, mainNs);
+		String target = Joiner.on('/').join(node.url, generator.getMainWorkspace().name(),
+				generator.getAppSchemaDataStore().name());
+		return PublishingJournal.open(JOURNAL_DIRECTORY, target, digest);
+	}
 
-		// check whether secondary namespaces/workspaces exist; if not, create
-		// them
-		List<Namespace> secondaryNamespaces = generator.getSecondaryNamespaces();
-		for (Namespace ns : secondaryNamespaces) {
-			createNamespaceIfRequired(nsMgr, ns);
+	/**
+	 * Reporters are not meant to be shared among threads, messages from
+	 * concurrently published nodes are serialized.
+	 */
+	static void report(IOReporter reporter, IOMessageImpl message, boolean error) {
+		synchronized (reporter) {
+			if (error) {
+				reporter.error(message);
+			}
+			else {
+				reporter.info(message);
+			}
 		}
 	}
 
-	private void createNamespaceIfRequired(NamespaceManager nsMgr, Namespace ns) {
-		nsMgr.setResource(ns);
-		if (!nsMgr.exists()) {
-			nsMgr.create();
+	private RestSession createRestSession() {
+		int maxConnections = getIntParameter(AppSchemaIO.PARAM_REST_MAX_CONNECTIONS,
+				RestSession.DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+		int connectTimeout = getIntParameter(AppSchemaIO.PARAM_REST_CONNECT_TIMEOUT,
+				RestSession.DEFAULT_CONNECT_TIMEOUT);
+		int socketTimeout = getIntParameter(AppSchemaIO.PARAM_REST_SOCKET_TIMEOUT,
+				RestSession.DEFAULT_SOCKET_TIMEOUT);
+		int keepAlive = getIntParameter(AppSchemaIO.PARAM_REST_KEEP_ALIVE,
+				(int) RestSession.DEFAULT_KEEP_ALIVE);
+
+		int retryAttempts = getIntParameter(AppSchemaIO.PARAM_REST_RETRY_ATTEMPTS,
+				RetryPolicy.DEFAULT_MAX_ATTEMPTS);
+		int retryDelay = getIntParameter(AppSchemaIO.PARAM_REST_RETRY_DELAY,
+				(int) RetryPolicy.DEFAULT_INITIAL_DELAY);
+		int retryMaxDelay = getIntParameter(AppSchemaIO.PARAM_REST_RETRY_MAX_DELAY,
+				(int) RetryPolicy.DEFAULT_MAX_DELAY);
+
+		RestSession session = new RestSession(maxConnections, connectTimeout, socketTimeout,
+				keepAlive, getCompressionParameter());
+		session.setRetryPolicy(new RetryPolicy(Math.max(1, retryAttempts), retryDelay,
+				Math.max(retryDelay, retryMaxDelay)));
+
+		Value cacheDirectory = getParameter(AppSchemaIO.PARAM_REST_CACHE_DIRECTORY);
+		if (!Value.NULL.equals(cacheDirectory) && cacheDirectory.as(String.class) != null) {
+			session.setResponseCache(new ResponseCache(new File(cacheDirectory.as(String.class))));
+		}
+		return session;
+	}
+
+	private boolean getCompressionParameter() {
+		Value parameterValue = getParameter(AppSchemaIO.PARAM_REST_COMPRESSION);
+		if (Value.NULL.equals(parameterValue)) {
+			return true;
 		}
 		else {
-			// check whether the attributes of the existent namespace match
-			// those of the one being created; throw exeption if they don't
-			Namespace existing = Namespace.fromDocument(nsMgr.read());
-			throwIfAttributesDontMatch(ns, existing);
+			Boolean value = parameterValue.as(Boolean.class);
+			return (value != null) ? value : true;
 		}
 	}
 
-	private void throwIfAttributesDontMatch(Namespace nsNew, Namespace nsExisting) {
-		Object newUri = nsNew.getAttribute(Namespace.URI);
-		Object existingUri = nsExisting.getAttribute(Namespace.URI);
-		if (!newUri.equals(existingUri)) {
-			throw new ResourceException("Namespace \"" + nsNew.name() + "\""
-					+ " exists, but its URI is \"" + existingUri + "\" instead of \"" + newUri
-					+ "\"");
+	private int getIntParameter(String name, int defaultValue) {
+		Value parameterValue = getParameter(name);
+		if (Value.NULL.equals(parameterValue)) {
+			return defaultValue;
+		}
+		else {
+			Integer value = parameterValue.as(Integer.class);
+			return (value != null) ? value : defaultValue;
 		}
+	}
+
+	private int getRestParallelism(RestSession session) {
+		int parallelism = getIntParameter(AppSchemaIO.PARAM_REST_PARALLELISM,
+				DEFAULT_REST_PARALLELISM);
+		// no point in exceeding the number of pooled connections
+		return Math.max(1, Math.min(parallelism, session.getMaxConnectionsPerRoute()));
+	}
+
+	/**
+	 * Wait for all the provided tasks to complete, collecting all failures.
+	 * 
+	 * @param results the task results, by name of the published resource
+	 * @param what the kind of the published resources, used in messages
+	 * @return a future completed when all tasks are done; if any task failed,
+	 *         it completes exceptionally with a {@link ResourceException}
+	 *         listing all failures
+	 */
+	static CompletableFuture<Void> allOf(Map<String, CompletableFuture<?>> results,
+			String what) {
+		return CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0]))
+				.handle((v, t) -> {
+					if (t == null) {
+						return null;
+					}
 
-		Object newIsolatedAttr = nsNew.getAttribute(Namespace.ISOLATED);
-		Object existingIsolatedAttr = nsExisting.getAttribute(Namespace.ISOLATED);
-		if (!newIsolatedAttr.equals(existingIsolatedAttr)) {
-			// isolated attributes don't match, play it safe and throw exception
-			throw new ResourceException("Namespace \"" + nsNew.name()
-					+ " exists, but the value of its \"isolated\" attribute is \""
-					+ existingIsolatedAttr + "\" instead of \"" + newIsolatedAttr + "\"");
+					List<String> failedNames = new ArrayList<String>();
+					List<Throwable> failures = new ArrayList<Throwable>();
+					for (Entry<String, CompletableFuture<?>> result : results.entrySet()) {
+						try {
+							result.getValue().join();
+						} catch (CompletionException e) {
+							failedNames.add(result.getKey() + " (" + e.getCause().getMessage()
+									+ ")");
+							failures.add(e.getCause());
+						}
+					}
+
+					ResourceException exception = new ResourceException("Failed to publish "
+							+ failures.size() + " of " + results.size() + " " + what + ": "
+							+ Joiner.on(", ").join(failedNames), failures.get(0));
+					for (Throwable failure : failures.subList(1, failures.size())) {
+						exception.addSuppressed(failure);
+					}
+					throw exception;
+				});
+	}
+
+	/**
+	 * Wait for a future to complete, rethrowing its failure, if any.
+	 * 
+	 * @param future the future to wait for
+	 * @return the future result
+	 * @throws IOException if the future failed with an I/O error
+	 */
+	private static <R> R await(CompletableFuture<R> future) throws IOException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new ResourceException(cause);
 		}
 	}
 
-	private void publishAppSchemaDataStore(ProgressIndicator progress, IOReporter reporter)
-			throws IOException {
-		Workspace ws = generator.getMainWorkspace();
+	private static void completeStep(PublishingJournal journal, Step step) {
+		try {
+			journal.complete(step);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Look up whether the app-schema datastore exists and, if required, the
+	 * digest of the content it was published with.
+	 * 
+	 * @param node the GeoServer node
+	 * @param ws the datastore workspace
+	 * @param dataStore the datastore
+	 * @param readDigest whether to read the published digest
+	 * @return the future datastore state
+	 */
+	private CompletableFuture<DataStoreState> lookUpDataStore(GeoServerNode node, Workspace ws,
+			DataStore dataStore, boolean readDigest) {
+		AsyncResourceManager<DataStore> dataStores = node.dataStores(ws.name());
+
+		return dataStores.existsAsync(dataStore).thenCompose(exists -> {
+			if (!exists || !readDigest) {
+				return CompletableFuture.completedFuture(new DataStoreState(exists, null));
+			}
+			return dataStores.readAsync(dataStore, null).handle((doc, failure) -> {
+				if (failure != null) {
+					log.warn("Could not read the metadata of the existing datastore", failure);
+					return new DataStoreState(true, null);
+				}
+				return new DataStoreState(true, DataStore.metadataFromDocument(doc).get(
+						CONTENT_DIGEST_KEY));
+			});
+		});
+	}
+
+	private void publishAppSchemaDataStore(GeoServerNode node, Workspace ws,
+			DataStore dataStore, DataStoreState state, ContentType contentType,
+			DataStoreFile.ContentWriter content, String digest, PublishingJournal journal,
+			IOReporter reporter) throws IOException {
+		// skip the upload altogether if the content has not changed since it
+		// was last published
+		if (digest != null && state.exists && digest.equals(state.publishedDigest)) {
+			report(reporter, new IOMessageImpl(MessageFormat.format(
+					"Datastore \"{0}\" on {1} is up to date (content digest cache hit: {2}), "
+							+ "upload skipped", dataStore.name(), node.url, digest), null), false);
+			return;
+		}
 
-		// build datastore resource
-		DataStore dataStore = generator.getAppSchemaDataStore();
-		DataStoreManager dsMgr = new DataStoreManager(geoserverURL);
-		dsMgr.setCredentials(username, password);
+		DataStoreManager dsMgr = node.manager(new DataStoreManager(node.url, node.session));
 		dsMgr.setResource(dataStore);
 		dsMgr.setWorkspace(ws.name());
-		// remove datastore, if necessary
-		if (dsMgr.exists()) {
-			Map<String, String> deleteParams = new HashMap<String, String>();
-			deleteParams.put("recurse", "true");
 
-			dsMgr.delete(deleteParams);
+		boolean incremental = state.exists && getIncrementalParameter();
+		// remove datastore, if necessary; when resuming, a datastore existing
+		// after its removal was created by a failed upload and is reused
+		if (!incremental && !journal.isCompleted(Step.DATASTORE_REMOVED)) {
+			if (state.exists) {
+				Map<String, String> deleteParams = new HashMap<String, String>();
+				deleteParams.put("recurse", "true");
+
+				dsMgr.delete(deleteParams);
+			}
+			journal.complete(Step.DATASTORE_REMOVED);
 		}
 
 		// build mapping file resource
-		ContentType contentType = getMimeType();
-		byte[] content = writeContent(dataStore.name(), contentType, progress, reporter);
-		DataStoreFile mappingFile = ResourceBuilder
-				.dataStoreFile(new ByteArrayInputStream(content), contentType)
+		DataStoreFile mappingFile = ResourceBuilder.dataStoreFile(content, contentType)
 				.setAttribute(DataStoreFile.EXTENSION, "appschema")
 				.setAttribute(DataStoreFile.DATASTORE, dataStore.name())
 				.setAttribute(DataStoreFile.WORKSPACE, ws.name()).build();
-		DataStoreFileManager dsFileMgr = new DataStoreFileManager(geoserverURL);
-		dsFileMgr.setCredentials(username, password);
+		DataStoreFileManager dsFileMgr = node.manager(new DataStoreFileManager(node.url,
+				node.session));
 		dsFileMgr.setResource(mappingFile);
 
-		Map<String, String> updateParams = new HashMap<String, String>();
-		updateParams.put("configure", "all");
-		dsFileMgr.update(updateParams);
+		if (!journal.isCompleted(Step.MAPPING_UPLOADED)) {
+			// when updating incrementally, replace the mapping files of the
+			// existing datastore, leaving its feature types and layers online
+			Map<String, String> updateParams = new HashMap<String, String>();
+			updateParams.put("configure", incremental ? "none" : "all");
+			dsFileMgr.update(updateParams);
+			journal.complete(Step.MAPPING_UPLOADED);
+		}
+
+		if (incremental && !journal.isCompleted(Step.FEATURE_TYPES_SYNCHRONIZED)) {
+			synchronizeFeatureTypes(node, ws, dataStore, reporter);
+			journal.complete(Step.FEATURE_TYPES_SYNCHRONIZED);
+		}
+
+		if (digest != null) {
+			storePublishedDigest(dsMgr, dataStore, digest);
+		}
+	}
+
+	private void storePublishedDigest(DataStoreManager dsMgr, DataStore dataStore, String digest) {
+		Map<String, String> metadata = new HashMap<String, String>();
+		metadata.put(CONTENT_DIGEST_KEY, digest);
+		// only the metadata are updated, connection parameters are left as
+		// configured by the file upload
+		DataStore metadataOnly = ResourceBuilder
+				.dataStore(dataStore.name(), AppSchemaDataStore.class)
+				.setAttribute(DataStore.METADATA, metadata).build();
+		dsMgr.setResource(metadataOnly);
+		try {
+			dsMgr.update();
+		} catch (ResourceException e) {
+			// the upload itself succeeded, next upload won't be skipped
+			log.warn("Could not store the content digest in the datastore metadata", e);
+		}
+	}
+
+	private boolean getSkipUnchangedParameter() {
+		Value parameterValue = getParameter(AppSchemaIO.PARAM_REST_SKIP_UNCHANGED);
+		if (Value.NULL.equals(parameterValue)) {
+			return true;
+		}
+		else {
+			Boolean value = parameterValue.as(Boolean.class);
+			return (value != null) ? value : true;
+		}
+	}
+
+	/**
+	 * Bring the feature types of an existing datastore in line with the
+	 * generated mapping: feature types no longer mapped are deleted (together
+	 * with their layers), newly mapped ones are created, all others are left
+	 * untouched.
+	 * 
+	 * @param node the GeoServer node
+	 * @param ws the datastore workspace
+	 * @param dataStore the datastore
+	 * @param reporter the reporter
+	 */
+	private void synchronizeFeatureTypes(GeoServerNode node, Workspace ws, DataStore dataStore,
+			IOReporter reporter) throws IOException {
+		AsyncResourceManager<FeatureType> featureTypes = node.featureTypes(ws.name(),
+				dataStore.name());
+
+		Set<String> existingNames = await(featureTypes.listAsync().thenApply(
+				FeatureType::namesFromListDocument));
+		Set<String> requiredNames = new LinkedHashSet<String>();
+		for (FeatureType featureType : generator.getFeatureTypes()) {
+			requiredNames.add(featureType.name());
+		}
+		FeatureTypeChanges changes = new FeatureTypeChanges(existingNames, requiredNames);
+
+		// feature types are independent of each other, so they are deleted
+		// and created concurrently
+		Map<String, String> deleteParams = new HashMap<String, String>();
+		deleteParams.put("recurse", "true");
+		Map<String, CompletableFuture<?>> results = new LinkedHashMap<String, CompletableFuture<?>>();
+		for (String name : changes.getToDelete()) {
+			results.put(name, featureTypes.deleteAsync(ResourceBuilder.featureType(name).build(),
+					deleteParams));
+		}
+		for (String name : changes.getToCreate()) {
+			// the store is identified by the request path, GeoServer creates
+			// the layer along with the feature type and computes its CRS and
+			// bounding boxes from the data
+			results.put(name, featureTypes.createAsync(
+					ResourceBuilder.featureType(name, true).build(), null));
+		}
+		await(allOf(results, "feature types"));
+
+		report(reporter, new IOMessageImpl(MessageFormat.format(
+				"Datastore \"{0}\" on {1} updated incrementally: {2} feature types created, "
+						+ "{3} deleted, {4} kept", dataStore.name(), node.url,
+				changes.getToCreate().size(), changes.getToDelete().size(),
+				changes.getToKeep().size()), null), false);
+	}
+
+	private boolean getResumeParameter() {
+		Value parameterValue = getParameter(AppSchemaIO.PARAM_REST_RESUME);
+		if (Value.NULL.equals(parameterValue)) {
+			return true;
+		}
+		else {
+			Boolean value = parameterValue.as(Boolean.class);
+			return (value != null) ? value : true;
+		}
+	}
+
+	private boolean getIncrementalParameter() {
+		Value parameterValue = getParameter(AppSchemaIO.PARAM_REST_INCREMENTAL);
+		if (Value.NULL.equals(parameterValue)) {
+			return false;
+		}
+		else {
+			Boolean value = parameterValue.as(Boolean.class);
+			return (value != null) ? value : false;
+		}
 	}
 
 	private ContentType getMimeType() {
@@ -174,31 +659,139 @@ public class AppSchemaMappingUploader extends AbstractAppSchemaConfigurator {
 		}
 	}
 
-	private byte[] writeContent(String mappingFileName, ContentType contentType,
-			ProgressIndicator progress, IOReporter reporter) throws IOException {
-		try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-			if (contentType.equals(DataStoreFile.ZIP_CONTENT_TYPE)) {
-				try (ZipOutputStream zos = new ZipOutputStream(bos)) {
-					if (includeTargetSchema) {
-						// add target schema to zip
-						addTargetSchemaToZip(zos, null, progress, reporter);
-					}
-					// main mapping configuration file
-					zos.putNextEntry(new ZipEntry(mappingFileName + ".appschema"));
-					generator.writeMappingConf(zos);
-					zos.closeEntry();
-					if (generator.getGeneratedMapping().requiresMultipleFiles()) {
-						zos.putNextEntry(new ZipEntry(AppSchemaIO.INCLUDED_TYPES_MAPPING_FILE));
-						generator.writeIncludedTypesMappingConf(zos);
-						zos.closeEntry();
-					}
-				}
+	/**
+	 * Write the content to upload, computing its digest, i.e. a digest of the
+	 * names and uncompressed contents of the mapping files and of the included
+	 * target schemas.
+	 * 
+	 * @param out the output stream to write to, it is not closed
+	 * @param mappingFileName the main mapping file name
+	 * @param contentType the content type
+	 * @param compression the compression strategy of zip archives
+	 * @param progress the progress indicator
+	 * @param reporter the reporter
+	 * @return the hex encoded SHA-256 digest of the content
+	 * @throws IOException if the content cannot be generated
+	 */
+	private String writeContent(OutputStream out, String mappingFileName,
+			ContentType contentType, ArchiveCompression compression, ProgressIndicator progress,
+			IOReporter reporter) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(CONTENT_DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		// the target stream is owned by the caller: finish writing but do not
+		// close it
+		if (contentType.equals(DataStoreFile.ZIP_CONTENT_TYPE)) {
+			try (ZipOutputStream zos = new DigestZipOutputStream(
+					new CloseShieldOutputStream(out), digest)) {
+				writeZipEntries(zos, mappingFileName, compression, progress, reporter);
 			}
-			else {
-				generator.writeMappingConf(bos);
+		}
+		else {
+			digest.update(mappingFileName.getBytes(StandardCharsets.UTF_8));
+			try (DigestOutputStream dos = new DigestOutputStream(
+					new CloseShieldOutputStream(out), digest)) {
+				generator.writeMappingConf(dos);
 			}
+		}
+
+		return BaseEncoding.base16().lowerCase().encode(digest.digest());
+	}
+
+	private void writeZipEntries(ZipOutputStream zos, String mappingFileName,
+			ArchiveCompression compression, ProgressIndicator progress, IOReporter reporter)
+			throws IOException {
+		if (includeTargetSchema) {
+			// add target schema to zip
+			addTargetSchemaToZip(zos, null, compression, progress, reporter);
+		}
+		// main mapping configuration file
+		compression.writeEntry(zos, mappingFileName + ".appschema", EntryClass.MAPPING,
+				out -> generator.writeMappingConf(out));
+		if (generator.getGeneratedMapping().requiresMultipleFiles()) {
+			compression.writeEntry(zos, AppSchemaIO.INCLUDED_TYPES_MAPPING_FILE,
+					EntryClass.MAPPING, out -> generator.writeIncludedTypesMappingConf(out));
+		}
+	}
+
+	/**
+	 * A GeoServer instance, along with the REST session used to talk to it
+	 * and the executor running asynchronous requests, bounded by the REST
+	 * parallelism.
+	 */
+	private class GeoServerNode implements Closeable {
+
+		private final URL url;
+		private final RestSession session;
+		private final ExecutorService executor;
+		private final AsyncResourceManager<Namespace> namespaces;
+
+		private GeoServerNode(URL url, RestSession session) {
+			this.url = url;
+			this.session = session;
+			this.executor = Executors.newFixedThreadPool(getRestParallelism(session));
+			this.namespaces = new AsyncResourceManager<Namespace>(
+					() -> manager(new NamespaceManager(url, session)), executor);
+		}
+
+		/**
+		 * Configure a manager talking to this node with the upload
+		 * credentials.
+		 * 
+		 * <p>
+		 * Asynchronous requests use a manager, hence an HTTP executor, of
+		 * their own, but credentials are sent preemptively (see
+		 * {@link AbstractResourceManager#setCredentials(String, String)}), so
+		 * a new manager does not cost an authentication challenge round trip.
+		 * </p>
+		 * 
+		 * @param manager the manager to configure
+		 * @return the configured manager
+		 */
+		private <M extends AbstractResourceManager<?>> M manager(M manager) {
+			manager.setCredentials(username, password);
+			return manager;
+		}
+
+		private AsyncResourceManager<DataStore> dataStores(String workspace) {
+			return new AsyncResourceManager<DataStore>(() -> {
+				DataStoreManager dsMgr = manager(new DataStoreManager(url, session));
+				dsMgr.setWorkspace(workspace);
+				return dsMgr;
+			}, executor);
+		}
+
+		private AsyncResourceManager<FeatureType> featureTypes(String workspace,
+				String dataStore) {
+			return new AsyncResourceManager<FeatureType>(() -> {
+				FeatureTypeManager ftMgr = manager(new FeatureTypeManager(url, session));
+				ftMgr.setWorkspace(workspace);
+				ftMgr.setDataStore(dataStore);
+				return ftMgr;
+			}, executor);
+		}
+
+		@Override
+		public void close() {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The state of the app-schema datastore on a node, before publishing.
+	 */
+	private static class DataStoreState {
+
+		private final boolean exists;
+		private final String publishedDigest;
 
-			return bos.toByteArray();
+		private DataStoreState(boolean exists, String publishedDigest) {
+			this.exists = exists;
+			this.publishedDigest = publishedDigest;
 		}
 	}
 }
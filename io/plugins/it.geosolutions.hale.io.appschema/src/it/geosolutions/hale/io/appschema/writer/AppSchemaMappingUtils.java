@@ -18,6 +18,7 @@ package it.geosolutions.hale.io.appschema.writer;
 import static eu.esdihumboldt.hale.common.align.model.functions.JoinFunction.PARAMETER_JOIN;
 import it.geosolutions.hale.io.appschema.model.ChainConfiguration;
 import it.geosolutions.hale.io.appschema.model.FeatureChaining;
+import it.geosolutions.hale.io.appschema.writer.internal.JaxbContextCache;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -25,7 +26,6 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.namespace.QName;
@@ -746,10 +746,11 @@ public class AppSchemaMappingUtils {
 	 * @return the property type or <code>null</code>
 	 */
 	public static PropertyType propertyTypeFromDOM(Element fragment) {
+		JaxbContextCache jaxbCache = JaxbContextCache.getInstance();
+		Unmarshaller u = null;
 		try {
-			JAXBContext jc = JAXBContext.newInstance(JaxbAlignmentIO.ALIGNMENT_CONTEXT,
+			u = jaxbCache.acquireUnmarshaller(JaxbAlignmentIO.ALIGNMENT_CONTEXT,
 					PropertyType.class.getClassLoader());
-			Unmarshaller u = jc.createUnmarshaller();
 
 			// it will debug problems while unmarshalling
 			u.setEventHandler(new javax.xml.bind.helpers.DefaultValidationEventHandler());
@@ -759,6 +760,8 @@ public class AppSchemaMappingUtils {
 			return root.getValue();
 		} catch (Exception e) {
 			return null;
+		} finally {
+			jaxbCache.releaseUnmarshaller(JaxbAlignmentIO.ALIGNMENT_CONTEXT, u);
 		}
 	}
 
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer;
+
+import it.geosolutions.hale.io.geoserver.rest.ResourceException;
+import it.geosolutions.hale.io.geoserver.rest.RetryPolicy;
+
+import java.io.IOException;
+import java.net.URL;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Joiner;
+
+import de.fhg.igd.slf4jplus.ALogger;
+import de.fhg.igd.slf4jplus.ALoggerFactory;
+import eu.esdihumboldt.hale.common.core.io.report.IOReporter;
+import eu.esdihumboldt.hale.common.core.io.report.impl.IOMessageImpl;
+
+/**
+ * Publishes to every node of a cluster of GeoServer instances not sharing
+ * their data directory.
+ * 
+ * <p>
+ * All nodes are published to concurrently. Each node is retried
+ * independently, and a failure on one node does not abort publishing to the
+ * others: all failures are reported once every node is done.
+ * </p>
+ * 
+ * <p>
+ * Retries are layered. Each idempotent REST request is first retried on its
+ * own, on transient failures only, according to the session's
+ * {@link RetryPolicy}. If publishing to a node still fails, publishing to
+ * that node starts again, up to the configured number of attempts, resuming
+ * after the last completed step (see {@link PublishingJournal}). A single
+ * request may thus be sent up to <code>maxAttempts</code> times
+ * {@link RetryPolicy#getMaxAttempts()} times, e.g. 9 times with the
+ * defaults.
+ * </p>
+ */
+class ClusterPublisher {
+
+	private static final ALogger log = ALoggerFactory.getLogger(ClusterPublisher.class);
+
+	private final int maxAttempts;
+	private final long retryDelay;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxAttempts the maximum number of times publishing to a single
+	 *            node is attempted
+	 * @param retryDelay the delay before the first retry, in milliseconds; it
+	 *            grows linearly with the number of attempts
+	 */
+	ClusterPublisher(int maxAttempts, long retryDelay) {
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.retryDelay = retryDelay;
+	}
+
+	/**
+	 * Publish to all the provided nodes.
+	 * 
+	 * @param nodeURLs the GeoServer node URLs
+	 * @param publisher publishes to a single node
+	 * @param reporter the reporter, informed of the outcome on each node
+	 * @throws IOException if publishing failed on any node
+	 */
+	void publish(List<URL> nodeURLs, NodePublisher publisher, IOReporter reporter)
+			throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(nodeURLs.size());
+		try {
+			Map<URL, Future<Integer>> results = new LinkedHashMap<URL, Future<Integer>>();
+			for (final URL nodeURL : nodeURLs) {
+				results.put(nodeURL, executor.submit(() -> publishWithRetry(nodeURL, publisher)));
+			}
+
+			// wait for all nodes, collecting failures
+			List<String> failedNodes = new ArrayList<String>();
+			for (Entry<URL, Future<Integer>> result : results.entrySet()) {
+				try {
+					int attempts = result.getValue().get();
+					AppSchemaMappingUploader.report(reporter, new IOMessageImpl(
+							MessageFormat.format("Published to GeoServer node {0} (attempts: {1})",
+									result.getKey(), attempts), null), false);
+				} catch (ExecutionException e) {
+					failedNodes.add(result.getKey().toString());
+					AppSchemaMappingUploader.report(reporter, new IOMessageImpl(
+							MessageFormat.format(
+									"Publishing to GeoServer node {0} failed after {1} attempts: {2}",
+									result.getKey(), maxAttempts, e.getCause().getMessage()),
+							e.getCause()), true);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while publishing to GeoServer nodes", e);
+				}
+			}
+
+			if (!failedNodes.isEmpty()) {
+				throw new IOException(MessageFormat.format(
+						"Publishing failed on {0} of {1} GeoServer nodes: {2}",
+						failedNodes.size(), nodeURLs.size(), Joiner.on(", ").join(failedNodes)));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private int publishWithRetry(URL nodeURL, NodePublisher publisher) throws IOException {
+		int attempt = 0;
+		while (true) {
+			attempt++;
+			try {
+				publisher.publish(nodeURL);
+				return attempt;
+			} catch (ResourceException | IOException e) {
+				if (attempt >= maxAttempts) {
+					throw e;
+				}
+				log.warn(MessageFormat.format("Publishing to GeoServer node {0} failed "
+						+ "(attempt {1} of {2}), retrying", nodeURL, attempt, maxAttempts), e);
+				try {
+					Thread.sleep(retryDelay * attempt);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Publishes to a single GeoServer node.
+	 */
+	@FunctionalInterface
+	interface NodePublisher {
+
+		/**
+		 * @param nodeURL the GeoServer node URL
+		 * @throws IOException if publishing fails
+		 */
+		void publish(URL nodeURL) throws IOException;
+	}
+
+}
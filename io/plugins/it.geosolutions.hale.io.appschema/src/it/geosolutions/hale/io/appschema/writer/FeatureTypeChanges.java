@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Changes needed to bring the feature types of an existing datastore in line
+ * with the generated mapping: feature types no longer mapped are deleted,
+ * newly mapped ones are created, all others are kept.
+ */
+class FeatureTypeChanges {
+
+	private final Set<String> toDelete = new LinkedHashSet<String>();
+	private final Set<String> toCreate = new LinkedHashSet<String>();
+	private final Set<String> toKeep = new LinkedHashSet<String>();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param existingNames the names of the feature types configured in the
+	 *            datastore
+	 * @param requiredNames the names of the feature types in the generated
+	 *            mapping
+	 */
+	FeatureTypeChanges(Set<String> existingNames, Set<String> requiredNames) {
+		for (String name : existingNames) {
+			if (!requiredNames.contains(name)) {
+				toDelete.add(name);
+			}
+		}
+		for (String name : requiredNames) {
+			if (existingNames.contains(name)) {
+				toKeep.add(name);
+			}
+			else {
+				toCreate.add(name);
+			}
+		}
+	}
+
+	/**
+	 * @return the names of the feature types to delete, in datastore order
+	 */
+	Set<String> getToDelete() {
+		return Collections.unmodifiableSet(toDelete);
+	}
+
+	/**
+	 * @return the names of the feature types to create, in mapping order
+	 */
+	Set<String> getToCreate() {
+		return Collections.unmodifiableSet(toCreate);
+	}
+
+	/**
+	 * @return the names of the feature types left untouched, in mapping order
+	 */
+	Set<String> getToKeep() {
+		return Collections.unmodifiableSet(toKeep);
+	}
+
+}
@@ -113,10 +113,7 @@ public class MongoMappingGenerator extends AppSchemaMappingGenerator {
 			mappingWrapper.setMappingPrefix(mappingPrefix);
 
 			// create namespace objects for all target types / properties
-			// TODO: this removes all namespaces that were defined in the
-			// template file, add code to cope with pre-configured namespaces
-			// instead
-			mapping.getNamespaces().getNamespace().clear();
+			// (template namespaces are removed by MappingTemplateCache)
 			createNamespaces();
 
 			// apply datastore configuration, if any
@@ -129,7 +126,7 @@ public class MongoMappingGenerator extends AppSchemaMappingGenerator {
 			// populate typeMappings element
 			createTypeMappings(context, reporter);
 
-			// cache mainMapping and includedTypesMapping for performance
+			// cache mainMapping and includedTypesMapping views
 			mainMapping = mappingWrapper.getMainMapping();
 			includedTypesMapping = mappingWrapper.getIncludedTypesMapping();
 
@@ -229,6 +226,8 @@ public class MongoMappingGenerator extends AppSchemaMappingGenerator {
 			}
 
 			if (ftMapping != null) {
+				// MongoDB mappings do not handle xlink:href cells, so the
+				// alignment's property cells are all that is needed
 				Collection<? extends Cell> propertyCells = alignment.getPropertyCells(typeCell);
 
 				for (Cell propertyCell : propertyCells) {
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer;
+
+import it.geosolutions.hale.io.geoserver.Namespace;
+import it.geosolutions.hale.io.geoserver.rest.AsyncResourceManager;
+import it.geosolutions.hale.io.geoserver.rest.ResourceException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import de.fhg.igd.slf4jplus.ALogger;
+import de.fhg.igd.slf4jplus.ALoggerFactory;
+
+/**
+ * Publishes the namespaces (i.e. workspaces) of an app-schema configuration
+ * to a GeoServer node.
+ * 
+ * <p>
+ * The main namespace is created first, as the other resources depend on it.
+ * Secondary namespaces are independent of each other, so they are created
+ * concurrently once the main namespace exists; all their failures are
+ * collected in a single {@link ResourceException}. Existing namespaces are
+ * retrieved with a single request, instead of checking for the existence of
+ * each namespace separately.
+ * </p>
+ */
+class NamespacePublisher {
+
+	private static final ALogger log = ALoggerFactory.getLogger(NamespacePublisher.class);
+
+	private final AsyncResourceManager<Namespace> namespaces;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param namespaces the manager of the namespaces of the GeoServer node
+	 */
+	NamespacePublisher(AsyncResourceManager<Namespace> namespaces) {
+		this.namespaces = namespaces;
+	}
+
+	/**
+	 * Create the provided namespaces, unless they exist already.
+	 * 
+	 * @param mainNs the main namespace
+	 * @param secondaryNamespaces the secondary namespaces
+	 * @return a future completed when all namespaces are published; if any
+	 *         secondary namespace failed, it completes exceptionally with a
+	 *         {@link ResourceException} listing all failures
+	 */
+	CompletableFuture<Void> publish(Namespace mainNs, List<Namespace> secondaryNamespaces) {
+		CompletableFuture<Set<String>> existingPrefixes = namespaces.listAsync().handle(
+				(doc, failure) -> {
+					if (failure != null) {
+						// fall back to checking each namespace separately
+						log.warn("Could not list existing namespaces, checking them one by one",
+								failure);
+						return null;
+					}
+					return Collections.unmodifiableSet(Namespace.prefixesFromListDocument(doc));
+				});
+
+		return existingPrefixes.thenCompose(prefixes -> createIfRequired(mainNs, prefixes)
+				.thenCompose(v -> {
+					Map<String, CompletableFuture<?>> results = new LinkedHashMap<String, CompletableFuture<?>>();
+					for (Namespace ns : secondaryNamespaces) {
+						results.put(ns.name(), createIfRequired(ns, prefixes));
+					}
+					return AppSchemaMappingUploader.allOf(results, "namespaces");
+				}));
+	}
+
+	private CompletableFuture<Void> createIfRequired(Namespace ns, Set<String> existingPrefixes) {
+		CompletableFuture<Boolean> exists = (existingPrefixes != null) ? CompletableFuture
+				.completedFuture(existingPrefixes.contains(ns.name())) : namespaces
+				.existsAsync(ns);
+
+		return exists.thenCompose(found -> {
+			if (!found) {
+				return namespaces.createAsync(ns, null).thenApply(url -> (Void) null);
+			}
+			// check whether the attributes of the existent namespace match
+			// those of the one being created; throw exeption if they don't
+			return namespaces.readAsync(ns, null).thenAccept(
+					doc -> throwIfAttributesDontMatch(ns, Namespace.fromDocument(doc)));
+		});
+	}
+
+	private static void throwIfAttributesDontMatch(Namespace nsNew, Namespace nsExisting) {
+		Object newUri = nsNew.getAttribute(Namespace.URI);
+		Object existingUri = nsExisting.getAttribute(Namespace.URI);
+		if (!newUri.equals(existingUri)) {
+			throw new ResourceException("Namespace \"" + nsNew.name() + "\""
+					+ " exists, but its URI is \"" + existingUri + "\" instead of \"" + newUri
+					+ "\"");
+		}
+
+		Object newIsolatedAttr = nsNew.getAttribute(Namespace.ISOLATED);
+		Object existingIsolatedAttr = nsExisting.getAttribute(Namespace.ISOLATED);
+		if (!newIsolatedAttr.equals(existingIsolatedAttr)) {
+			// isolated attributes don't match, play it safe and throw exception
+			throw new ResourceException("Namespace \"" + nsNew.name()
+					+ " exists, but the value of its \"isolated\" attribute is \""
+					+ existingIsolatedAttr + "\" instead of \"" + newIsolatedAttr + "\"");
+		}
+	}
+
+}
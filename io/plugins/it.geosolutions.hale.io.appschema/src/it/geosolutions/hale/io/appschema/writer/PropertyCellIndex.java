@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer;
+
+import static it.geosolutions.hale.io.appschema.AppSchemaIO.isHrefClientPropertyCompatible;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.xml.namespace.QName;
+
+import eu.esdihumboldt.hale.common.align.model.Alignment;
+import eu.esdihumboldt.hale.common.align.model.Cell;
+import eu.esdihumboldt.hale.common.align.model.ChildContext;
+import eu.esdihumboldt.hale.common.align.model.Entity;
+import eu.esdihumboldt.hale.common.align.model.EntityDefinition;
+import eu.esdihumboldt.hale.common.schema.model.ChildDefinition;
+
+/**
+ * Index of the property cells of an alignment, built once per mapping
+ * generation.
+ * 
+ * <p>
+ * Cells targeting an <code>xlink:href</code> attribute (used to encode nested
+ * reference types) are indexed by the name of the target type they belong to,
+ * which avoids scanning all alignment cells for each type cell.
+ * </p>
+ * 
+ * <p>
+ * The index is not modified after construction and can be shared between
+ * threads.
+ * </p>
+ */
+class PropertyCellIndex {
+
+	private static final String XLINK_NAMESPACE = "http://www.w3.org/1999/xlink";
+
+	private final Alignment alignment;
+	private final Map<QName, List<Cell>> hrefCellsByTargetType;
+
+	/**
+	 * Constructor. Builds the index in a single pass over the alignment cells.
+	 * 
+	 * @param alignment the alignment to index
+	 */
+	PropertyCellIndex(Alignment alignment) {
+		this.alignment = alignment;
+		this.hrefCellsByTargetType = new HashMap<>();
+
+		for (Cell cell : alignment.getCells()) {
+			if (!isHrefClientPropertyCompatible(cell)) {
+				continue;
+			}
+			EntityDefinition definition = getFirstTargetDefinition(cell);
+			if (definition == null || !isHref(definition.getLastPathElement())
+					|| definition.getType() == null || definition.getType().getName() == null) {
+				continue;
+			}
+
+			QName targetTypeName = definition.getType().getName();
+			List<Cell> hrefCells = hrefCellsByTargetType.get(targetTypeName);
+			if (hrefCells == null) {
+				hrefCells = new ArrayList<>();
+				hrefCellsByTargetType.put(targetTypeName, hrefCells);
+			}
+			hrefCells.add(cell);
+		}
+	}
+
+	/**
+	 * Return the property cells associated to the provided type cell, as
+	 * returned by {@link Alignment#getPropertyCells(Cell)}, followed by the
+	 * cells targeting an <code>xlink:href</code> attribute of the type cell's
+	 * target type.
+	 * 
+	 * @param typeCell the type cell
+	 * @return the property cells
+	 */
+	Collection<? extends Cell> getPropertyCells(Cell typeCell) {
+		Collection<? extends Cell> propertyCells = alignment.getPropertyCells(typeCell);
+		List<Cell> hrefCells = getHrefCells(typeCell);
+		if (hrefCells.isEmpty()) {
+			return propertyCells;
+		}
+		List<Cell> resultList = new ArrayList<>(propertyCells.size() + hrefCells.size());
+		resultList.addAll(propertyCells);
+		resultList.addAll(hrefCells);
+		return resultList;
+	}
+
+	/**
+	 * Return the cells targeting an <code>xlink:href</code> attribute of the
+	 * provided type cell's target type.
+	 * 
+	 * @param typeCell the type cell
+	 * @return the matching cells, or an empty list
+	 */
+	List<Cell> getHrefCells(Cell typeCell) {
+		EntityDefinition typeDefinition = getFirstTargetDefinition(typeCell);
+		if (typeDefinition == null || typeDefinition.getType() == null) {
+			return Collections.emptyList();
+		}
+
+		List<Cell> hrefCells = hrefCellsByTargetType.get(typeDefinition.getType().getName());
+		return (hrefCells != null) ? hrefCells : Collections.<Cell> emptyList();
+	}
+
+	private static EntityDefinition getFirstTargetDefinition(Cell cell) {
+		if (cell.getTarget() == null) {
+			return null;
+		}
+		Iterator<? extends Entity> targets = cell.getTarget().values().iterator();
+		return targets.hasNext() ? targets.next().getDefinition() : null;
+	}
+
+	private static boolean isHref(ChildContext childContext) {
+		if (childContext == null) {
+			return false;
+		}
+		ChildDefinition<?> childDefinition = childContext.getChild();
+		if (childDefinition == null || childDefinition.getName() == null) {
+			return false;
+		}
+		return Objects.equals(childDefinition.getName().getLocalPart(), "href")
+				&& Objects.equals(XLINK_NAMESPACE, childDefinition.getName().getNamespaceURI());
+	}
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumSet;
+import java.util.Properties;
+import java.util.Set;
+
+import com.google.common.base.Joiner;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Records the publishing steps completed for a given content on a given
+ * GeoServer datastore, so that a failed upload can be resumed after the last
+ * successful step rather than started over.
+ * 
+ * <p>
+ * The journal is bound to the digest of the published content: if the content
+ * changes, previously completed steps are discarded. The journal is deleted
+ * once publishing completes.
+ * </p>
+ */
+class PublishingJournal {
+
+	/**
+	 * Publishing steps, in execution order.
+	 */
+	enum Step {
+		/** Namespaces / workspaces created. */
+		NAMESPACES,
+		/** Existing datastore removed. */
+		DATASTORE_REMOVED,
+		/** Mapping files uploaded and datastore configured. */
+		MAPPING_UPLOADED,
+		/** Feature types of an existing datastore synchronized. */
+		FEATURE_TYPES_SYNCHRONIZED
+	}
+
+	private static final String PROPERTY_TARGET = "target";
+	private static final String PROPERTY_DIGEST = "digest";
+	private static final String PROPERTY_STEPS = "steps";
+
+	private final File file;
+	private final String target;
+	private final String digest;
+	private final Set<Step> completed = EnumSet.noneOf(Step.class);
+
+	private PublishingJournal(File file, String target, String digest) {
+		this.file = file;
+		this.target = target;
+		this.digest = digest;
+	}
+
+	/**
+	 * Open the journal of the provided publishing target, loading the steps
+	 * already completed for the provided content digest.
+	 * 
+	 * @param directory the directory where journals are kept
+	 * @param target the publishing target, e.g. the datastore URL
+	 * @param digest the digest of the content to publish
+	 * @return the journal
+	 * @throws IOException if the journal cannot be read
+	 */
+	static PublishingJournal open(File directory, String target, String digest)
+			throws IOException {
+		// the target may contain characters not allowed in file names
+		String fileName;
+		try {
+			fileName = BaseEncoding.base16().lowerCase().encode(MessageDigest.getInstance("SHA-1")
+					.digest(target.getBytes(StandardCharsets.UTF_8))) + ".properties";
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		PublishingJournal journal = new PublishingJournal(new File(directory, fileName), target,
+				digest);
+
+		if (journal.file.isFile()) {
+			Properties properties = new Properties();
+			try (InputStream in = new FileInputStream(journal.file)) {
+				properties.load(in);
+			}
+			if (target.equals(properties.getProperty(PROPERTY_TARGET))
+					&& digest.equals(properties.getProperty(PROPERTY_DIGEST))) {
+				for (String step : properties.getProperty(PROPERTY_STEPS, "").split(",")) {
+					if (!step.isEmpty()) {
+						journal.completed.add(Step.valueOf(step));
+					}
+				}
+			}
+		}
+
+		return journal;
+	}
+
+	/**
+	 * Create a journal which is not persisted, i.e. which never resumes.
+	 * 
+	 * @return the journal
+	 */
+	static PublishingJournal transientJournal() {
+		return new PublishingJournal(null, null, null);
+	}
+
+	/**
+	 * @param step the publishing step
+	 * @return <code>true</code> if the step was completed for the same content
+	 */
+	boolean isCompleted(Step step) {
+		return completed.contains(step);
+	}
+
+	/**
+	 * @return <code>true</code> if any step was completed for the same content
+	 */
+	boolean isResuming() {
+		return !completed.isEmpty();
+	}
+
+	/**
+	 * Record a step as completed.
+	 * 
+	 * @param step the completed step
+	 * @throws IOException if the journal cannot be written
+	 */
+	void complete(Step step) throws IOException {
+		completed.add(step);
+		if (file == null) {
+			return;
+		}
+
+		Properties properties = new Properties();
+		properties.setProperty(PROPERTY_TARGET, target);
+		properties.setProperty(PROPERTY_DIGEST, digest);
+		properties.setProperty(PROPERTY_STEPS, Joiner.on(',').join(completed));
+
+		// replace the journal atomically, so that a crash never leaves it
+		// half written
+		file.getParentFile().mkdirs();
+		File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+		try (OutputStream out = new FileOutputStream(tmpFile)) {
+			properties.store(out, null);
+		}
+		Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Discard the journal, once publishing is complete.
+	 */
+	void close() {
+		completed.clear();
+		if (file != null) {
+			file.delete();
+		}
+	}
+
+}
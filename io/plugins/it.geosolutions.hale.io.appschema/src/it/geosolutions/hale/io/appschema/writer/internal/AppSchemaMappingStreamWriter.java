@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer.internal;
+
+import java.io.OutputStream;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.AnonymousAttributeType;
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.AppSchemaDataAccessType;
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.AttributeExpressionMappingType;
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.AttributeMappingType;
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.AttributeMappingType.ClientProperty;
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.JdbcMultiValueType;
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.NamespacesPropertyType.Namespace;
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.SourceDataStoresPropertyType.DataStore;
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.SourceDataStoresPropertyType.DataStore.Parameters.Parameter;
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.TypeMappingsPropertyType.FeatureTypeMapping;
+
+/**
+ * Writes an app-schema mapping configuration as <code>AppSchemaDataAccess</code>
+ * XML document directly to an output stream, using a {@link XMLStreamWriter}.
+ * 
+ * <p>
+ * Contrary to marshalling the mapping with JAXB, no intermediate
+ * representation of the document is buffered: elements are emitted while the
+ * mapping is walked. The produced document is valid against the same schema
+ * as the one written by JAXB.
+ * </p>
+ * 
+ * <p>
+ * Instances are immutable and can be shared among threads.
+ * </p>
+ */
+public class AppSchemaMappingStreamWriter {
+
+	/**
+	 * App-schema namespace URI.
+	 */
+	public static final String APP_SCHEMA_NAMESPACE = "http://www.geotools.org/app-schema";
+	/**
+	 * OGC namespace URI, used by attribute expressions.
+	 */
+	public static final String OGC_NAMESPACE = "http://www.opengis.net/ogc";
+
+	private static final String APP_SCHEMA_PREFIX = "as";
+	private static final String OGC_PREFIX = "ogc";
+	private static final String ENCODING = "UTF-8";
+	private static final String INDENT = "    ";
+
+	private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+	private final boolean prettyPrint;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param prettyPrint if <code>true</code>, the output is indented
+	 */
+	public AppSchemaMappingStreamWriter(boolean prettyPrint) {
+		this.prettyPrint = prettyPrint;
+	}
+
+	/**
+	 * @return <code>true</code> if the output is indented, <code>false</code>
+	 *         otherwise
+	 */
+	public boolean isPrettyPrint() {
+		return prettyPrint;
+	}
+
+	/**
+	 * Write the provided mapping configuration to <code>out</code>.
+	 * 
+	 * <p>
+	 * The stream is flushed, but not closed, so that this method can be used
+	 * to write e.g. an entry of a ZIP archive.
+	 * </p>
+	 * 
+	 * @param out the output stream
+	 * @param mapping the mapping configuration to write
+	 * @throws XMLStreamException if an error occurs writing the document
+	 */
+	public void write(OutputStream out, AppSchemaDataAccessType mapping)
+			throws XMLStreamException {
+		XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, ENCODING);
+		try {
+			new DocumentWriter(writer).writeDocument(mapping);
+			writer.flush();
+		} finally {
+			// does not close the underlying stream
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes a single document, keeping track of the nesting level for
+	 * indentation.
+	 */
+	private class DocumentWriter {
+
+		private final XMLStreamWriter writer;
+		private int depth = 0;
+		private boolean hasChildElements = false;
+
+		private DocumentWriter(XMLStreamWriter writer) {
+			this.writer = writer;
+		}
+
+		private void writeDocument(AppSchemaDataAccessType mapping) throws XMLStreamException {
+			writer.writeStartDocument(ENCODING, "1.0");
+
+			writer.setPrefix(APP_SCHEMA_PREFIX, APP_SCHEMA_NAMESPACE);
+			writer.setPrefix(OGC_PREFIX, OGC_NAMESPACE);
+			startElement(APP_SCHEMA_NAMESPACE, "AppSchemaDataAccess");
+			writer.writeNamespace(APP_SCHEMA_PREFIX, APP_SCHEMA_NAMESPACE);
+			writer.writeNamespace(OGC_PREFIX, OGC_NAMESPACE);
+
+			writeNamespaces(mapping);
+			writeIncludedTypes(mapping);
+			writeSourceDataStores(mapping);
+			writeElement("catalog", mapping.getCatalog());
+			writeTargetTypes(mapping);
+			writeTypeMappings(mapping);
+
+			endElement();
+			writer.writeEndDocument();
+		}
+
+		private void writeNamespaces(AppSchemaDataAccessType mapping) throws XMLStreamException {
+			startElement("namespaces");
+			if (mapping.getNamespaces() != null) {
+				for (Namespace ns : mapping.getNamespaces().getNamespace()) {
+					startElement("Namespace");
+					writeElement("prefix", ns.getPrefix());
+					writeElement("uri", ns.getUri());
+					endElement();
+				}
+			}
+			endElement();
+		}
+
+		private void writeIncludedTypes(AppSchemaDataAccessType mapping)
+				throws XMLStreamException {
+			if (mapping.getIncludedTypes() == null) {
+				return;
+			}
+
+			List<?> includes = mapping.getIncludedTypes().getInclude();
+			startElement("includedTypes");
+			for (Object include : includes) {
+				writeElement("Include", (include != null) ? include.toString() : null);
+			}
+			endElement();
+		}
+
+		private void writeSourceDataStores(AppSchemaDataAccessType mapping)
+				throws XMLStreamException {
+			startElement("sourceDataStores");
+			if (mapping.getSourceDataStores() != null) {
+				for (DataStore ds : mapping.getSourceDataStores().getDataStore()) {
+					startElement("DataStore");
+					if (ds.getIdAttribute() != null) {
+						writer.writeAttribute("id", ds.getIdAttribute());
+					}
+					writeElement("id", ds.getId());
+					startElement("parameters");
+					if (ds.getParameters() != null) {
+						for (Parameter param : ds.getParameters().getParameter()) {
+							startElement("Parameter");
+							writeElement("name", param.getName());
+							writeElement("value", param.getValue());
+							endElement();
+						}
+					}
+					endElement();
+					endElement();
+				}
+			}
+			endElement();
+		}
+
+		private void writeTargetTypes(AppSchemaDataAccessType mapping) throws XMLStreamException {
+			startElement("targetTypes");
+			if (mapping.getTargetTypes() != null
+					&& mapping.getTargetTypes().getFeatureType() != null) {
+				startElement("FeatureType");
+				for (String schemaUri : mapping.getTargetTypes().getFeatureType().getSchemaUri()) {
+					writeElement("schemaUri", schemaUri);
+				}
+				endElement();
+			}
+			endElement();
+		}
+
+		private void writeTypeMappings(AppSchemaDataAccessType mapping) throws XMLStreamException {
+			startElement("typeMappings");
+			if (mapping.getTypeMappings() != null) {
+				for (FeatureTypeMapping ftMapping : mapping.getTypeMappings()
+						.getFeatureTypeMapping()) {
+					writeFeatureTypeMapping(ftMapping);
+				}
+			}
+			endElement();
+		}
+
+		private void writeFeatureTypeMapping(FeatureTypeMapping ftMapping)
+				throws XMLStreamException {
+			startElement("FeatureTypeMapping");
+			writeElement("mappingName", ftMapping.getMappingName());
+			writeElement("sourceDataStore", ftMapping.getSourceDataStore());
+			writeElement("sourceType", ftMapping.getSourceType());
+			writeElement("targetElement", ftMapping.getTargetElement());
+			writeElement("itemXpath", ftMapping.getItemXpath());
+			writeElement("isXmlDataStore", ftMapping.isIsXmlDataStore());
+			writeElement("isDenormalised", ftMapping.isIsDenormalised());
+			if (ftMapping.getAttributeMappings() != null) {
+				startElement("attributeMappings");
+				for (AttributeMappingType attrMapping : ftMapping.getAttributeMappings()
+						.getAttributeMapping()) {
+					writeAttributeMapping(attrMapping);
+				}
+				endElement();
+			}
+			endElement();
+		}
+
+		private void writeAttributeMapping(AttributeMappingType attrMapping)
+				throws XMLStreamException {
+			startElement("AttributeMapping");
+			writeElement("label", attrMapping.getLabel());
+			writeElement("parentLabel", attrMapping.getParentLabel());
+			writeElement("targetAttribute", attrMapping.getTargetAttribute());
+			writeElement("targetQueryString", attrMapping.getTargetQueryString());
+			writeAttributeExpression("idExpression", attrMapping.getIdExpression());
+			writeAttributeExpression("sourceExpression", attrMapping.getSourceExpression());
+			writeElement("instancePath", attrMapping.getInstancePath());
+			writeElement("targetAttributeNode", attrMapping.getTargetAttributeNode());
+			writeElement("isMultiple", attrMapping.isIsMultiple());
+			writeElement("encodeIfEmpty", attrMapping.isEncodeIfEmpty());
+			writeElement("isList", attrMapping.isIsList());
+			JdbcMultiValueType jdbcValue = attrMapping.getJdbcMultipleValue();
+			if (jdbcValue != null) {
+				startElement("jdbcMultipleValue");
+				writeElement("sourceColumn", jdbcValue.getSourceColumn());
+				writeElement("targetTable", jdbcValue.getTargetTable());
+				writeElement("targetColumn", jdbcValue.getTargetColumn());
+				writeElement("targetValue", jdbcValue.getTargetValue());
+				endElement();
+			}
+			for (ClientProperty clientProp : attrMapping.getClientProperty()) {
+				startElement("ClientProperty");
+				writeElement("name", clientProp.getName());
+				writeElement("value", clientProp.getValue());
+				endElement();
+			}
+			for (AnonymousAttributeType anonAttr : attrMapping.getAnonymousAttribute()) {
+				startElement("anonymousAttribute");
+				writeElement("name", anonAttr.getName());
+				writeElement("value", anonAttr.getValue());
+				endElement();
+			}
+			endElement();
+		}
+
+		private void writeAttributeExpression(String name,
+				AttributeExpressionMappingType attrExpression) throws XMLStreamException {
+			if (attrExpression == null) {
+				return;
+			}
+
+			startElement(name);
+			if (attrExpression.getOCQL() != null) {
+				writeElement("OCQL", attrExpression.getOCQL());
+				writeElement("index", attrExpression.getIndex());
+			}
+			else if (attrExpression.getExpression() != null) {
+				startElement("Expression");
+				writeOgcExpression(attrExpression.getExpression().getExpression());
+				endElement();
+			}
+			else {
+				writeElement("inputAttribute", attrExpression.getInputAttribute());
+			}
+			writeElement("linkElement", attrExpression.getLinkElement());
+			writeElement("linkField", attrExpression.getLinkField());
+			endElement();
+		}
+
+		/**
+		 * OGC expressions are never produced by the mapping generator, but may
+		 * be part of a mapping template: they are delegated to JAXB as a
+		 * fragment.
+		 */
+		private void writeOgcExpression(Object expression) throws XMLStreamException {
+			if (expression == null) {
+				return;
+			}
+
+			hasChildElements = true;
+			JaxbContextCache jaxbCache = JaxbContextCache.getInstance();
+			Marshaller marshaller = null;
+			try {
+				marshaller = jaxbCache.acquireMarshaller(JaxbContextCache.APP_SCHEMA_CONTEXT_PATH,
+						AppSchemaMappingStreamWriter.class.getClassLoader());
+				marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+				try {
+					indent();
+					marshaller.marshal(expression, writer);
+				} finally {
+					marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.FALSE);
+				}
+			} catch (JAXBException e) {
+				throw new XMLStreamException("Error writing OGC expression", e);
+			} finally {
+				jaxbCache.releaseMarshaller(JaxbContextCache.APP_SCHEMA_CONTEXT_PATH, marshaller);
+			}
+		}
+
+		private void writeElement(String name, Boolean value) throws XMLStreamException {
+			if (value != null) {
+				writeElement(name, value.toString());
+			}
+		}
+
+		/**
+		 * Elements with a missing value are omitted, even if mandatory, as
+		 * JAXB would do.
+		 */
+		private void writeElement(String name, String value) throws XMLStreamException {
+			if (value != null) {
+				startElement(name);
+				writer.writeCharacters(value);
+				endElement(false);
+			}
+		}
+
+		private void startElement(String localName) throws XMLStreamException {
+			startElement(null, localName);
+		}
+
+		private void startElement(String namespaceURI, String localName)
+				throws XMLStreamException {
+			indent();
+			if (namespaceURI != null) {
+				writer.writeStartElement(namespaceURI, localName);
+			}
+			else {
+				writer.writeStartElement(localName);
+			}
+			depth++;
+			hasChildElements = false;
+		}
+
+		private void endElement() throws XMLStreamException {
+			endElement(hasChildElements);
+		}
+
+		private void endElement(boolean indentEndTag) throws XMLStreamException {
+			depth--;
+			if (indentEndTag) {
+				indent();
+			}
+			writer.writeEndElement();
+			// the parent of the closed element has child elements
+			hasChildElements = true;
+		}
+
+		private void indent() throws XMLStreamException {
+			if (!prettyPrint) {
+				return;
+			}
+
+			writer.writeCharacters("\n");
+			for (int i = 0; i < depth; i++) {
+				writer.writeCharacters(INDENT);
+			}
+		}
+	}
+}
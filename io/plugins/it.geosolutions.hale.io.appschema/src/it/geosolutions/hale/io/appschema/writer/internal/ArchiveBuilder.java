@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer.internal;
+
+import it.geosolutions.hale.io.appschema.writer.internal.ArchiveCompression.EntryClass;
+import it.geosolutions.hale.io.appschema.writer.internal.ArchiveCompression.EntryContent;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds an archive whose entries are rendered concurrently.
+ * 
+ * <p>
+ * Entries are first declared in the order they must appear in the archive;
+ * when the archive is written, their contents are rendered to memory by a
+ * bounded pool of threads, while the calling thread appends them to the
+ * archive in declaration order, so that the result does not depend on the
+ * parallelism. At most twice as many entries as there are threads are
+ * rendered ahead of the one being written, to bound memory usage.
+ * </p>
+ * 
+ * <p>
+ * The same entries can also be written to a directory instead, laid out as
+ * they would be once the archive is extracted.
+ * </p>
+ * 
+ * <p>
+ * Steps (see {@link #addStep(ArchiveStep)}) run on the calling thread and act
+ * as barriers: entries declared after a step are not rendered before the step
+ * has completed, so a step may modify what they render.
+ * </p>
+ * 
+ * <p>
+ * With a parallelism of 1, entries are rendered straight into the output and
+ * no buffering takes place.
+ * </p>
+ */
+public class ArchiveBuilder {
+
+	private final ArchiveCompression compression;
+	private final int parallelism;
+	private final List<Entry> entries = new ArrayList<Entry>();
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param compression the compression strategy
+	 * @param parallelism the maximum number of entries to render concurrently
+	 */
+	public ArchiveBuilder(ArchiveCompression compression, int parallelism) {
+		if (compression == null) {
+			throw new IllegalArgumentException("compression must be set");
+		}
+		this.compression = compression;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Add a directory entry.
+	 * 
+	 * @param name the entry name, ending with a slash
+	 */
+	public void addDirectory(String name) {
+		entries.add(new Entry(name, null, null, null));
+	}
+
+	/**
+	 * Add a file entry.
+	 * 
+	 * @param name the entry name
+	 * @param entryClass the entry class, determining its compression
+	 * @param content renders the entry contents, possibly on another thread
+	 */
+	public void addEntry(String name, EntryClass entryClass, EntryContent content) {
+		if (content == null) {
+			throw new IllegalArgumentException("content must be set");
+		}
+		entries.add(new Entry(name, entryClass, content, null));
+	}
+
+	/**
+	 * Add a step, e.g. writing to the output directly.
+	 * 
+	 * @param step the step
+	 */
+	public void addStep(ArchiveStep step) {
+		if (step == null) {
+			throw new IllegalArgumentException("step must be set");
+		}
+		entries.add(new Entry(null, null, null, step));
+	}
+
+	/**
+	 * Write all entries to the provided archive, in the order they have been
+	 * added.
+	 * 
+	 * @param zos the archive
+	 * @throws IOException if an entry cannot be rendered or written
+	 */
+	public void writeTo(final ZipOutputStream zos) throws IOException {
+		write(new EntryWriter() {
+
+			@Override
+			public void writeDirectory(String name) throws IOException {
+				zos.putNextEntry(new ZipEntry(name));
+			}
+
+			@Override
+			public void writeEntry(Entry entry, EntryContent content) throws IOException {
+				compression.writeEntry(zos, entry.name, entry.entryClass, content);
+			}
+
+			@Override
+			public void writeEntry(Entry entry, byte[] content) throws IOException {
+				compression.writeEntry(zos, entry.name, entry.entryClass, content);
+			}
+		});
+	}
+
+	/**
+	 * Write all entries to files in the provided directory, in the order they
+	 * have been added. Existing files are overwritten.
+	 * 
+	 * @param directory the directory
+	 * @throws IOException if an entry cannot be rendered or written
+	 */
+	public void writeTo(final File directory) throws IOException {
+		write(new EntryWriter() {
+
+			@Override
+			public void writeDirectory(String name) throws IOException {
+				Files.createDirectories(new File(directory, name).toPath());
+			}
+
+			@Override
+			public void writeEntry(Entry entry, EntryContent content) throws IOException {
+				try (OutputStream out = new BufferedOutputStream(new FileOutputStream(new File(
+						directory, entry.name)))) {
+					content.writeTo(out);
+				}
+			}
+
+			@Override
+			public void writeEntry(Entry entry, byte[] content) throws IOException {
+				Files.write(new File(directory, entry.name).toPath(), content);
+			}
+		});
+	}
+
+	private void write(EntryWriter writer) throws IOException {
+		if (parallelism == 1) {
+			for (Entry entry : entries) {
+				if (entry.step != null) {
+					entry.step.run();
+				}
+				else if (entry.content == null) {
+					writer.writeDirectory(entry.name);
+				}
+				else {
+					writer.writeEntry(entry, entry.content);
+				}
+			}
+			return;
+		}
+
+		int window = 2 * parallelism;
+		List<Future<byte[]>> rendered = new ArrayList<Future<byte[]>>(entries.size());
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		try {
+			for (int i = 0; i < entries.size(); i++) {
+				// render ahead, but not past a step that has not run yet
+				int next = rendered.size();
+				while (next < entries.size() && next - i < window
+						&& (next == i || entries.get(next - 1).step == null)) {
+					final Entry pending = entries.get(next++);
+					rendered.add((pending.content != null) ? executor.submit(() -> {
+						ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+						pending.content.writeTo(buffer);
+						return buffer.toByteArray();
+					}) : null);
+				}
+
+				Entry entry = entries.get(i);
+				if (entry.step != null) {
+					entry.step.run();
+				}
+				else if (entry.content == null) {
+					writer.writeDirectory(entry.name);
+				}
+				else {
+					writer.writeEntry(entry, getRendered(entry, rendered.set(i, null)));
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private byte[] getRendered(Entry entry, Future<byte[]> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while rendering " + entry.name, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Error rendering " + entry.name, e.getCause());
+		}
+	}
+
+	/**
+	 * A step of the archive generation, run in order with the entries.
+	 */
+	@FunctionalInterface
+	public interface ArchiveStep {
+
+		/**
+		 * @throws IOException if an error occurs
+		 */
+		void run() throws IOException;
+	}
+
+	/**
+	 * Writes entries to the actual output.
+	 */
+	private interface EntryWriter {
+
+		void writeDirectory(String name) throws IOException;
+
+		void writeEntry(Entry entry, EntryContent content) throws IOException;
+
+		void writeEntry(Entry entry, byte[] content) throws IOException;
+	}
+
+	private static class Entry {
+
+		private final String name;
+		private final EntryClass entryClass;
+		private final EntryContent content;
+		private final ArchiveStep step;
+
+		private Entry(String name, EntryClass entryClass, EntryContent content, ArchiveStep step) {
+			this.name = name;
+			this.entryClass = entryClass;
+			this.content = content;
+			this.step = step;
+		}
+	}
+
+}
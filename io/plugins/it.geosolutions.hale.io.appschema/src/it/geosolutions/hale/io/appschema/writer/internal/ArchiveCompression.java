@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compression strategy of app-schema configuration archives, chosen per
+ * class of entry.
+ * 
+ * <p>
+ * Each entry class is either deflated with a given level or
+ * {@link #STORED}, i.e. not compressed at all. Since stored entries must
+ * declare their size and CRC up front, generated entries are buffered in
+ * memory before being stored, while schema bundle entries are copied as-is
+ * (see {@link SchemaBundle}).
+ * </p>
+ */
+public class ArchiveCompression {
+
+	/**
+	 * Classes of archive entries.
+	 */
+	public enum EntryClass {
+		/** Target schema files. */
+		SCHEMA,
+		/** App-schema mapping files. */
+		MAPPING,
+		/** GeoServer catalog files, e.g. workspace.xml or datastore.xml. */
+		CATALOG
+	}
+
+	/**
+	 * Pseudo compression level of stored entries.
+	 */
+	public static final int STORED = -2;
+
+	private final Map<EntryClass, Integer> levels = new EnumMap<EntryClass, Integer>(
+			EntryClass.class);
+
+	/**
+	 * Create the default strategy: schema entries are stored, so that the
+	 * bundled schemas are copied as-is using their precomputed sizes and CRCs
+	 * instead of being deflated again on every export; other entries are
+	 * deflated with the default level.
+	 * 
+	 * <p>
+	 * Stored schemas make the archive larger, as XML schemas usually deflate
+	 * well: deflate them (see {@link #setLevel(EntryClass, int)}) if archive
+	 * size matters more than export time.
+	 * </p>
+	 */
+	public ArchiveCompression() {
+		for (EntryClass entryClass : EntryClass.values()) {
+			levels.put(entryClass, Deflater.DEFAULT_COMPRESSION);
+		}
+		levels.put(EntryClass.SCHEMA, STORED);
+	}
+
+	/**
+	 * Create a strategy using the same level for all entry classes.
+	 * 
+	 * @param level the compression level, or {@link #STORED}
+	 * @return the compression strategy
+	 */
+	public static ArchiveCompression uniform(int level) {
+		ArchiveCompression compression = new ArchiveCompression();
+		for (EntryClass entryClass : EntryClass.values()) {
+			compression.setLevel(entryClass, level);
+		}
+		return compression;
+	}
+
+	/**
+	 * Parse a compression level: either <code>stored</code>,
+	 * <code>default</code> or a deflate level between 0 and 9.
+	 * 
+	 * @param level the compression level
+	 * @return the parsed compression level
+	 * @throws IllegalArgumentException if the level is not valid
+	 */
+	public static int parseLevel(String level) {
+		String value = level.trim();
+		if (value.equalsIgnoreCase("stored")) {
+			return STORED;
+		}
+		if (value.equalsIgnoreCase("default")) {
+			return Deflater.DEFAULT_COMPRESSION;
+		}
+		try {
+			int parsed = Integer.parseInt(value);
+			if (parsed >= Deflater.NO_COMPRESSION && parsed <= Deflater.BEST_COMPRESSION) {
+				return parsed;
+			}
+		} catch (NumberFormatException e) {
+			// invalid level, see below
+		}
+		throw new IllegalArgumentException("Invalid compression level: " + level);
+	}
+
+	/**
+	 * @param entryClass the entry class
+	 * @return the compression level of the entry class, or {@link #STORED}
+	 */
+	public int getLevel(EntryClass entryClass) {
+		return levels.get(entryClass);
+	}
+
+	/**
+	 * @param entryClass the entry class
+	 * @param level the compression level of the entry class, or
+	 *            {@link #STORED}
+	 */
+	public void setLevel(EntryClass entryClass, int level) {
+		if (level != STORED
+				&& (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+			throw new IllegalArgumentException("Invalid compression level: " + level);
+		}
+		levels.put(entryClass, level);
+	}
+
+	/**
+	 * Write an archive entry, compressing it according to its class.
+	 * 
+	 * @param zos the archive
+	 * @param name the entry name
+	 * @param entryClass the entry class
+	 * @param content writes the entry contents
+	 * @throws IOException if an error occurs
+	 */
+	public void writeEntry(ZipOutputStream zos, String name, EntryClass entryClass,
+			EntryContent content) throws IOException {
+		int level = getLevel(entryClass);
+		if (level == STORED) {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			content.writeTo(buffer);
+			writeEntry(zos, name, entryClass, buffer.toByteArray());
+		}
+		else {
+			zos.setLevel(level);
+			ZipEntry entry = new ZipEntry(name);
+			entry.setMethod(ZipEntry.DEFLATED);
+			zos.putNextEntry(entry);
+			content.writeTo(zos);
+			zos.closeEntry();
+		}
+	}
+
+	/**
+	 * Write an archive entry whose contents have already been rendered,
+	 * compressing it according to its class.
+	 * 
+	 * @param zos the archive
+	 * @param name the entry name
+	 * @param entryClass the entry class
+	 * @param content the entry contents
+	 * @throws IOException if an error occurs
+	 */
+	public void writeEntry(ZipOutputStream zos, String name, EntryClass entryClass,
+			byte[] content) throws IOException {
+		ZipEntry entry = new ZipEntry(name);
+		int level = getLevel(entryClass);
+		if (level == STORED) {
+			CRC32 crc = new CRC32();
+			crc.update(content);
+
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(content.length);
+			entry.setCompressedSize(content.length);
+			entry.setCrc(crc.getValue());
+		}
+		else {
+			zos.setLevel(level);
+			entry.setMethod(ZipEntry.DEFLATED);
+		}
+		zos.putNextEntry(entry);
+		zos.write(content);
+		zos.closeEntry();
+	}
+
+	/**
+	 * Writes the contents of an archive entry.
+	 */
+	@FunctionalInterface
+	public interface EntryContent {
+
+		/**
+		 * @param out the stream to write to, must not be closed
+		 * @throws IOException if an error occurs
+		 */
+		void writeTo(OutputStream out) throws IOException;
+	}
+
+}
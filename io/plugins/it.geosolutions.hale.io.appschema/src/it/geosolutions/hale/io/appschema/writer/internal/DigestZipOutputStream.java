@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * {@link ZipOutputStream} updating a {@link MessageDigest} with the name and
+ * the uncompressed contents of every entry written to the archive.
+ * 
+ * <p>
+ * Contrary to a digest of the archive bytes, the resulting digest does not
+ * depend on entry timestamps, compression method or level, so it is stable
+ * across repeated exports of the same content, as long as entries are written
+ * in the same order.
+ * </p>
+ */
+public class DigestZipOutputStream extends ZipOutputStream {
+
+	private final MessageDigest digest;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param out the actual output stream
+	 * @param digest the digest to update
+	 */
+	public DigestZipOutputStream(OutputStream out, MessageDigest digest) {
+		super(out);
+		if (digest == null) {
+			throw new IllegalArgumentException("digest must be set");
+		}
+		this.digest = digest;
+	}
+
+	/**
+	 * @return the digest being updated
+	 */
+	public MessageDigest getDigest() {
+		return digest;
+	}
+
+	/**
+	 * @see java.util.zip.ZipOutputStream#putNextEntry(java.util.zip.ZipEntry)
+	 */
+	@Override
+	public void putNextEntry(ZipEntry e) throws IOException {
+		// delimit entry names, so that they cannot be confused with contents
+		digest.update((byte) 0);
+		digest.update(e.getName().getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		super.putNextEntry(e);
+	}
+
+	/**
+	 * @see java.util.zip.ZipOutputStream#write(byte[], int, int)
+	 */
+	@Override
+	public synchronized void write(byte[] b, int off, int len) throws IOException {
+		digest.update(b, off, len);
+		super.write(b, off, len);
+	}
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer.internal;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * Process-wide cache of {@link JAXBContext} instances, keyed by context path.
+ * 
+ * <p>
+ * Creating a {@link JAXBContext} is expensive, while the resulting object is
+ * thread-safe and can be shared freely. {@link Marshaller} and
+ * {@link Unmarshaller} instances are not thread-safe, so they are pooled:
+ * callers must {@code acquire} them, use them on a single thread and then
+ * {@code release} them, typically in a <code>finally</code> block.
+ * </p>
+ * 
+ * <p>
+ * The number of contexts, marshallers and unmarshallers created so far is
+ * tracked, so that reuse can be verified.
+ * </p>
+ */
+public class JaxbContextCache {
+
+	/**
+	 * Context path of the JAXB bindings for the app-schema mapping
+	 * configuration.
+	 */
+	public static final String APP_SCHEMA_CONTEXT_PATH = "it.geosolutions.hale.io.appschema.impl.internal.generated.net_opengis_ogc"
+			+ ":it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema";
+
+	private static final JaxbContextCache instance = new JaxbContextCache();
+
+	/**
+	 * Return the singleton cache instance.
+	 * 
+	 * @return the cache instance
+	 */
+	public static JaxbContextCache getInstance() {
+		return instance;
+	}
+
+	private final ConcurrentMap<String, PooledContext> contexts = new ConcurrentHashMap<>();
+	private final AtomicInteger contextCount = new AtomicInteger();
+	private final AtomicInteger marshallerCount = new AtomicInteger();
+	private final AtomicInteger unmarshallerCount = new AtomicInteger();
+
+	private JaxbContextCache() {
+	}
+
+	/**
+	 * Return the cached context for the app-schema mapping configuration
+	 * bindings, creating it if necessary.
+	 * 
+	 * @return the app-schema JAXB context
+	 * @throws JAXBException if the context cannot be created
+	 */
+	public JAXBContext getAppSchemaContext() throws JAXBException {
+		return getContext(APP_SCHEMA_CONTEXT_PATH, JaxbContextCache.class.getClassLoader());
+	}
+
+	/**
+	 * Return the cached context for the provided context path, creating it if
+	 * necessary.
+	 * 
+	 * <p>
+	 * The class loader is only used the first time a context for
+	 * <code>contextPath</code> is created.
+	 * </p>
+	 * 
+	 * @param contextPath the JAXB context path
+	 * @param classLoader the class loader used to locate the bindings
+	 * @return the JAXB context
+	 * @throws JAXBException if the context cannot be created
+	 */
+	public JAXBContext getContext(String contextPath, ClassLoader classLoader)
+			throws JAXBException {
+		return getPooledContext(contextPath, classLoader).context;
+	}
+
+	/**
+	 * Take a marshaller for the provided context path from the pool, or
+	 * create a new one if the pool is empty.
+	 * 
+	 * @param contextPath the JAXB context path
+	 * @param classLoader the class loader used to locate the bindings
+	 * @return a marshaller, to be returned via
+	 *         {@link #releaseMarshaller(String, Marshaller)}
+	 * @throws JAXBException if the marshaller cannot be created
+	 */
+	public Marshaller acquireMarshaller(String contextPath, ClassLoader classLoader)
+			throws JAXBException {
+		PooledContext pooled = getPooledContext(contextPath, classLoader);
+		Marshaller marshaller = pooled.marshallers.poll();
+		if (marshaller == null) {
+			marshaller = pooled.context.createMarshaller();
+			marshallerCount.incrementAndGet();
+		}
+
+		return marshaller;
+	}
+
+	/**
+	 * Return a marshaller obtained via
+	 * {@link #acquireMarshaller(String, ClassLoader)} to the pool.
+	 * 
+	 * @param contextPath the JAXB context path
+	 * @param marshaller the marshaller to release (may be <code>null</code>)
+	 */
+	public void releaseMarshaller(String contextPath, Marshaller marshaller) {
+		PooledContext pooled = contexts.get(contextPath);
+		if (pooled != null && marshaller != null) {
+			pooled.marshallers.offer(marshaller);
+		}
+	}
+
+	/**
+	 * Take an unmarshaller for the provided context path from the pool, or
+	 * create a new one if the pool is empty.
+	 * 
+	 * @param contextPath the JAXB context path
+	 * @param classLoader the class loader used to locate the bindings
+	 * @return an unmarshaller, to be returned via
+	 *         {@link #releaseUnmarshaller(String, Unmarshaller)}
+	 * @throws JAXBException if the unmarshaller cannot be created
+	 */
+	public Unmarshaller acquireUnmarshaller(String contextPath, ClassLoader classLoader)
+			throws JAXBException {
+		PooledContext pooled = getPooledContext(contextPath, classLoader);
+		Unmarshaller unmarshaller = pooled.unmarshallers.poll();
+		if (unmarshaller == null) {
+			unmarshaller = pooled.context.createUnmarshaller();
+			unmarshallerCount.incrementAndGet();
+		}
+
+		return unmarshaller;
+	}
+
+	/**
+	 * Return an unmarshaller obtained via
+	 * {@link #acquireUnmarshaller(String, ClassLoader)} to the pool.
+	 * 
+	 * @param contextPath the JAXB context path
+	 * @param unmarshaller the unmarshaller to release (may be
+	 *            <code>null</code>)
+	 */
+	public void releaseUnmarshaller(String contextPath, Unmarshaller unmarshaller) {
+		PooledContext pooled = contexts.get(contextPath);
+		if (pooled != null && unmarshaller != null) {
+			pooled.unmarshallers.offer(unmarshaller);
+		}
+	}
+
+	/**
+	 * @return the number of JAXB contexts created so far
+	 */
+	public int getContextCount() {
+		return contextCount.get();
+	}
+
+	/**
+	 * @return the number of marshallers created so far
+	 */
+	public int getMarshallerCount() {
+		return marshallerCount.get();
+	}
+
+	/**
+	 * @return the number of unmarshallers created so far
+	 */
+	public int getUnmarshallerCount() {
+		return unmarshallerCount.get();
+	}
+
+	private PooledContext getPooledContext(String contextPath, ClassLoader classLoader)
+			throws JAXBException {
+		if (contextPath == null || contextPath.trim().isEmpty()) {
+			throw new IllegalArgumentException("contextPath must be set");
+		}
+
+		PooledContext pooled = contexts.get(contextPath);
+		if (pooled == null) {
+			synchronized (contexts) {
+				pooled = contexts.get(contextPath);
+				if (pooled == null) {
+					JAXBContext context = (classLoader != null)
+							? JAXBContext.newInstance(contextPath, classLoader)
+							: JAXBContext.newInstance(contextPath);
+					contextCount.incrementAndGet();
+					pooled = new PooledContext(context);
+					contexts.put(contextPath, pooled);
+				}
+			}
+		}
+
+		return pooled;
+	}
+
+	private static class PooledContext {
+
+		private final JAXBContext context;
+		private final Queue<Marshaller> marshallers = new ConcurrentLinkedQueue<>();
+		private final Queue<Unmarshaller> unmarshallers = new ConcurrentLinkedQueue<>();
+
+		private PooledContext(JAXBContext context) {
+			this.context = context;
+		}
+	}
+}
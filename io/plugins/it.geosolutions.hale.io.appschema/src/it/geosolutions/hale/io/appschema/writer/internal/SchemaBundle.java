@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer.internal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.DirectoryFileFilter;
+import org.apache.commons.io.filefilter.FileFileFilter;
+import org.apache.commons.io.output.NullOutputStream;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Reusable on-disk bundle of the target schema resources included in
+ * app-schema configuration archives.
+ * 
+ * <p>
+ * A bundle holds the <code>_schemas*</code> folder trees, an index of the
+ * bundled files along with their size and CRC, and the map of original schema
+ * locations to their location in the bundle. Bundles are identified by a
+ * fingerprint of their contents and never modified once created, so they can
+ * be shared by any number of exports.
+ * </p>
+ * 
+ * <p>
+ * As sizes and CRCs are known in advance, bundled files can be spliced into
+ * archives as {@link ZipEntry#STORED} entries, i.e. copied as-is without
+ * being compressed.
+ * </p>
+ */
+public class SchemaBundle {
+
+	private static final String FILES_DIRECTORY = "files";
+	private static final String INDEX_FILE = "index";
+	private static final String SCHEMA_URIS_FILE = "schemas";
+	private static final String SEPARATOR = "\t";
+
+	private final File directory;
+	private final List<BundleEntry> entries;
+	private final Map<String, String> schemaURIs;
+
+	private SchemaBundle(File directory, List<BundleEntry> entries,
+			Map<String, String> schemaURIs) {
+		this.directory = directory;
+		this.entries = entries;
+		this.schemaURIs = schemaURIs;
+	}
+
+	/**
+	 * Open an existing bundle.
+	 * 
+	 * @param directory the bundle directory
+	 * @return the bundle, or <code>null</code> if no complete bundle exists in
+	 *         the directory
+	 * @throws IOException if the bundle cannot be read
+	 */
+	public static SchemaBundle open(File directory) throws IOException {
+		File indexFile = new File(directory, INDEX_FILE);
+		File schemaURIsFile = new File(directory, SCHEMA_URIS_FILE);
+		if (!indexFile.isFile() || !schemaURIsFile.isFile()) {
+			return null;
+		}
+
+		List<BundleEntry> entries = new ArrayList<BundleEntry>();
+		for (String[] line : readLines(indexFile, 3)) {
+			entries.add(new BundleEntry(line[0], Long.parseLong(line[1]), Long
+					.parseLong(line[2])));
+		}
+		Map<String, String> schemaURIs = new LinkedHashMap<String, String>();
+		for (String[] line : readLines(schemaURIsFile, 2)) {
+			schemaURIs.put(line[0], line[1]);
+		}
+
+		return new SchemaBundle(directory, Collections.unmodifiableList(entries),
+				Collections.unmodifiableMap(schemaURIs));
+	}
+
+	/**
+	 * Create a bundle, unless a complete bundle already exists in the
+	 * directory, e.g. because it was created concurrently.
+	 * 
+	 * @param directory the bundle directory
+	 * @param folders the directories to bundle, by folder name; folders are
+	 *            bundled in name order
+	 * @param schemaURIs the original schema locations, mapped to their
+	 *            location in the bundle
+	 * @return the bundle
+	 * @throws IOException if the bundle cannot be created
+	 */
+	public static SchemaBundle create(File directory, Map<String, File> folders,
+			Map<String, String> schemaURIs) throws IOException {
+		SchemaBundle existing = open(directory);
+		if (existing != null) {
+			return existing;
+		}
+
+		// build in a staging directory, then move it into place in a single
+		// step, so that incomplete bundles are never visible
+		File parentDir = directory.getAbsoluteFile().getParentFile();
+		File stagingDir = new File(parentDir, "staging-" + UUID.randomUUID());
+		try {
+			List<String> names = new ArrayList<String>(folders.keySet());
+			Collections.sort(names);
+			List<String[]> index = new ArrayList<String[]>();
+			for (String name : names) {
+				copyDir(folders.get(name), new File(stagingDir, FILES_DIRECTORY), name + "/",
+						index);
+			}
+			writeLines(new File(stagingDir, INDEX_FILE), index);
+
+			List<String[]> uriLines = new ArrayList<String[]>();
+			for (Entry<String, String> schemaURI : schemaURIs.entrySet()) {
+				uriLines.add(new String[] { schemaURI.getKey(), schemaURI.getValue() });
+			}
+			writeLines(new File(stagingDir, SCHEMA_URIS_FILE), uriLines);
+
+			try {
+				Files.move(stagingDir.toPath(), directory.toPath(),
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				// fails if the bundle was created concurrently
+				if (open(directory) == null) {
+					throw e;
+				}
+			}
+		} finally {
+			FileUtils.deleteQuietly(stagingDir);
+		}
+
+		return open(directory);
+	}
+
+	/**
+	 * Compute a digest of the names and contents of all files in a directory
+	 * tree, to fingerprint resources that are not content-addressed.
+	 * 
+	 * @param dir the directory
+	 * @return the hex encoded SHA-256 digest
+	 * @throws IOException if a file cannot be read
+	 */
+	public static String digest(File dir) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		updateDigest(digest, dir, "");
+		return BaseEncoding.base16().lowerCase().encode(digest.digest());
+	}
+
+	/**
+	 * @return the bundle directory
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return the original schema locations, mapped to their location relative
+	 *         to the parent entry the bundle is written to
+	 */
+	public Map<String, String> getSchemaURIs() {
+		return schemaURIs;
+	}
+
+	/**
+	 * Write the bundled folders to an archive, copying files as-is.
+	 * 
+	 * @param zos the archive
+	 * @param parentEntryName the name of the parent entry, may be
+	 *            <code>null</code>
+	 * @throws IOException if an error occurs
+	 */
+	public void writeTo(ZipOutputStream zos, String parentEntryName) throws IOException {
+		writeTo(zos, parentEntryName, ArchiveCompression.STORED);
+	}
+
+	/**
+	 * Write the bundled folders to an archive.
+	 * 
+	 * @param zos the archive
+	 * @param parentEntryName the name of the parent entry, may be
+	 *            <code>null</code>
+	 * @param level the compression level of bundled files; if
+	 *            {@link ArchiveCompression#STORED}, files are copied as-is
+	 * @throws IOException if an error occurs
+	 */
+	public void writeTo(ZipOutputStream zos, String parentEntryName, int level)
+			throws IOException {
+		String prefix = (parentEntryName != null) ? parentEntryName : "";
+		File filesDir = new File(directory, FILES_DIRECTORY);
+		for (BundleEntry entry : entries) {
+			ZipEntry zipEntry = new ZipEntry(prefix + entry.name);
+			if (entry.isDirectory()) {
+				zos.putNextEntry(zipEntry);
+				continue;
+			}
+
+			if (level == ArchiveCompression.STORED) {
+				zipEntry.setMethod(ZipEntry.STORED);
+				zipEntry.setSize(entry.size);
+				zipEntry.setCompressedSize(entry.size);
+				zipEntry.setCrc(entry.crc);
+			}
+			else {
+				zos.setLevel(level);
+				zipEntry.setMethod(ZipEntry.DEFLATED);
+			}
+			zos.putNextEntry(zipEntry);
+			Files.copy(new File(filesDir, entry.name).toPath(), zos);
+			zos.closeEntry();
+		}
+	}
+
+	/**
+	 * Copy the bundled folders to a directory, replacing existing files.
+	 * 
+	 * @param parentDir the directory to copy to
+	 * @throws IOException if an error occurs
+	 */
+	public void copyTo(File parentDir) throws IOException {
+		File filesDir = new File(directory, FILES_DIRECTORY);
+		for (BundleEntry entry : entries) {
+			File target = new File(parentDir, entry.name);
+			if (entry.isDirectory()) {
+				if (!target.isDirectory() && !target.mkdirs()) {
+					throw new IOException("Could not create directory " + target);
+				}
+			}
+			else {
+				Files.copy(new File(filesDir, entry.name).toPath(), target.toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+	}
+
+	private static void copyDir(File sourceDir, File targetBaseDir, String dirName,
+			List<String[]> index) throws IOException {
+		File targetDir = new File(targetBaseDir, dirName);
+		targetDir.mkdirs();
+		index.add(new String[] { dirName, "0", "0" });
+
+		// sort files and directories, so that the bundle layout does not
+		// depend on the order in which the file system lists them
+		File[] files = sourceDir.listFiles((FileFilter) FileFileFilter.FILE);
+		Arrays.sort(files);
+		for (File f : files) {
+			CRC32 crc = new CRC32();
+			long size;
+			try (InputStream in = new CheckedInputStream(new FileInputStream(f), crc);
+					OutputStream out = new FileOutputStream(new File(targetDir, f.getName()))) {
+				size = ByteStreams.copy(in, out);
+			}
+			index.add(new String[] { dirName + f.getName(), String.valueOf(size),
+					String.valueOf(crc.getValue()) });
+		}
+
+		File[] dirs = sourceDir.listFiles((FileFilter) DirectoryFileFilter.DIRECTORY);
+		Arrays.sort(dirs);
+		for (File d : dirs) {
+			copyDir(d, targetBaseDir, dirName + d.getName() + "/", index);
+		}
+	}
+
+	private static void updateDigest(MessageDigest digest, File dir, String dirName)
+			throws IOException {
+		File[] files = dir.listFiles((FileFilter) FileFileFilter.FILE);
+		Arrays.sort(files);
+		for (File f : files) {
+			// delimit file names, so that they cannot be confused with contents
+			digest.update((byte) 0);
+			digest.update((dirName + f.getName()).getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			try (InputStream in = new DigestInputStream(new FileInputStream(f), digest)) {
+				ByteStreams.copy(in, NullOutputStream.NULL_OUTPUT_STREAM);
+			}
+		}
+
+		File[] dirs = dir.listFiles((FileFilter) DirectoryFileFilter.DIRECTORY);
+		Arrays.sort(dirs);
+		for (File d : dirs) {
+			updateDigest(digest, d, dirName + d.getName() + "/");
+		}
+	}
+
+	private static List<String[]> readLines(File file, int columns) throws IOException {
+		List<String[]> lines = new ArrayList<String[]>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty()) {
+					String[] values = line.split(SEPARATOR, -1);
+					if (values.length != columns) {
+						throw new IOException("Corrupted schema bundle file: " + file);
+					}
+					lines.add(values);
+				}
+			}
+		}
+		return lines;
+	}
+
+	private static void writeLines(File file, List<String[]> lines) throws IOException {
+		file.getParentFile().mkdirs();
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+				file), StandardCharsets.UTF_8))) {
+			for (String[] line : lines) {
+				writer.write(String.join(SEPARATOR, line));
+				writer.write('\n');
+			}
+		}
+	}
+
+	/**
+	 * A bundled file or directory.
+	 */
+	private static class BundleEntry {
+
+		private final String name;
+		private final long size;
+		private final long crc;
+
+		private BundleEntry(String name, long size, long crc) {
+			this.name = name;
+			this.size = size;
+			this.crc = crc;
+		}
+
+		private boolean isDirectory() {
+			return name.endsWith("/");
+		}
+	}
+
+}
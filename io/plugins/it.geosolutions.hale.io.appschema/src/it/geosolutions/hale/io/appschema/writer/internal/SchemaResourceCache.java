@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Content-addressed cache of the target schema resources copied into
+ * app-schema configuration archives.
+ * 
+ * <p>
+ * Each entry holds the directory tree produced by copying a schema resource,
+ * i.e. the schema itself and all schemas it includes or imports, with schema
+ * locations updated accordingly. Entries are keyed by the resource URI and a
+ * digest of the whole copied tree (see {@link SchemaBundle#digest(File)}), so
+ * a change to any of the schemas gets a new entry; entries are never modified
+ * once created and can be shared by concurrent exports.
+ * </p>
+ * 
+ * <p>
+ * The latest entry of each URI is recorded along with the time it was
+ * validated, i.e. copied from the resource. It is used without accessing the
+ * resource until its time-to-live expires, after which the resource is copied
+ * again. The latest entry is also used when the resource cannot be retrieved,
+ * so that a cache populated beforehand can be used offline.
+ * </p>
+ */
+public class SchemaResourceCache {
+
+	/**
+	 * Default cache directory.
+	 */
+	public static final File DEFAULT_DIRECTORY = new File(System.getProperty("java.io.tmpdir"),
+			"hale-appschema-schemas");
+
+	/**
+	 * Default time-to-live of cache entries, in milliseconds.
+	 */
+	public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.DAYS.toMillis(1);
+
+	private static final String ENTRIES_DIRECTORY = "entries";
+	private static final String INDEX_DIRECTORY = "index";
+	private static final String PROPERTY_URI = "uri";
+	private static final String PROPERTY_DIGEST = "digest";
+	private static final String PROPERTY_NAME = "name";
+	private static final String PROPERTY_VALIDATED = "validated";
+
+	private final File directory;
+	private final long timeToLive;
+	private final AtomicInteger hitCount = new AtomicInteger();
+	private final AtomicInteger missCount = new AtomicInteger();
+
+	/**
+	 * Create a cache whose entries expire after the
+	 * {@link #DEFAULT_TIME_TO_LIVE default time-to-live}.
+	 * 
+	 * @param directory the cache directory
+	 */
+	public SchemaResourceCache(File directory) {
+		this(directory, DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param directory the cache directory
+	 * @param timeToLive the time in milliseconds an entry is used before the
+	 *            resource is copied again
+	 */
+	public SchemaResourceCache(File directory, long timeToLive) {
+		if (directory == null) {
+			throw new IllegalArgumentException("directory must be set");
+		}
+		this.directory = directory;
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * @return the cache directory
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Return the cache entry of a resource. The resource is copied to a new
+	 * entry if it was never cached or if its latest entry has expired; if the
+	 * copied tree did not change, the existing entry is used again.
+	 * 
+	 * @param uri the resource URI
+	 * @param name the name of the resource file in the entry
+	 * @param copier copies the resource to the provided path if no valid entry
+	 *            exists
+	 * @return the entry directory, containing the resource file and all the
+	 *         files it references
+	 * @throws IOException if the entry cannot be created
+	 */
+	public File get(URI uri, String name, ResourceCopier copier) throws IOException {
+		Properties index = readIndex(uri, name);
+		if (index != null) {
+			File entryDir = getEntryDirectory(uri, index.getProperty(PROPERTY_DIGEST), name);
+			long validated = Long.parseLong(index.getProperty(PROPERTY_VALIDATED, "0"));
+			if (new File(entryDir, name).isFile()
+					&& System.currentTimeMillis() - validated < timeToLive) {
+				hitCount.incrementAndGet();
+				return entryDir;
+			}
+		}
+
+		missCount.incrementAndGet();
+		// copy to a staging directory, then move it into place in a single
+		// step, so that incomplete entries are never visible
+		File stagingDir = new File(directory, "staging-" + UUID.randomUUID());
+		try {
+			stagingDir.mkdirs();
+			copier.copy(new File(stagingDir, name).toPath());
+			String digest = SchemaBundle.digest(stagingDir);
+			File entryDir = getEntryDirectory(uri, digest, name);
+			if (!new File(entryDir, name).isFile()) {
+				entryDir.getParentFile().mkdirs();
+				try {
+					Files.move(stagingDir.toPath(), entryDir.toPath(),
+							StandardCopyOption.ATOMIC_MOVE);
+				} catch (IOException e) {
+					// fails if the entry was created concurrently, in which
+					// case its contents are the same
+					if (!new File(entryDir, name).isFile()) {
+						throw e;
+					}
+				}
+			}
+
+			updateIndex(uri, digest, name);
+			return entryDir;
+		} finally {
+			FileUtils.deleteQuietly(stagingDir);
+		}
+	}
+
+	/**
+	 * Return the latest cache entry of a resource, even if it has expired.
+	 * 
+	 * @param uri the resource URI
+	 * @param name the name of the resource file in the entry
+	 * @return the entry directory, or <code>null</code> if the resource was
+	 *         never cached
+	 */
+	public File getLatest(URI uri, String name) {
+		Properties index = readIndex(uri, name);
+		if (index == null) {
+			return null;
+		}
+
+		File entryDir = getEntryDirectory(uri, index.getProperty(PROPERTY_DIGEST), name);
+		if (!new File(entryDir, name).isFile()) {
+			return null;
+		}
+		hitCount.incrementAndGet();
+		return entryDir;
+	}
+
+	/**
+	 * @return the number of resources found in the cache so far
+	 */
+	public int getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of resources added to the cache so far
+	 */
+	public int getMissCount() {
+		return missCount.get();
+	}
+
+	private Properties readIndex(URI uri, String name) {
+		File indexFile = getIndexFile(uri);
+		if (!indexFile.isFile()) {
+			return null;
+		}
+
+		Properties properties = new Properties();
+		try (InputStream in = new FileInputStream(indexFile)) {
+			properties.load(in);
+		} catch (IOException e) {
+			return null;
+		}
+		if (!uri.toString().equals(properties.getProperty(PROPERTY_URI))
+				|| !name.equals(properties.getProperty(PROPERTY_NAME))
+				|| properties.getProperty(PROPERTY_DIGEST) == null) {
+			return null;
+		}
+		return properties;
+	}
+
+	private void updateIndex(URI uri, String digest, String name) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(PROPERTY_URI, uri.toString());
+		properties.setProperty(PROPERTY_DIGEST, digest);
+		properties.setProperty(PROPERTY_NAME, name);
+		properties.setProperty(PROPERTY_VALIDATED, String.valueOf(System.currentTimeMillis()));
+
+		File indexFile = getIndexFile(uri);
+		indexFile.getParentFile().mkdirs();
+		File tmpFile = new File(indexFile.getParentFile(), indexFile.getName() + "."
+				+ UUID.randomUUID() + ".tmp");
+		try (OutputStream out = new FileOutputStream(tmpFile)) {
+			properties.store(out, null);
+		}
+		Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private File getEntryDirectory(URI uri, String digest, String name) {
+		return new File(new File(directory, ENTRIES_DIRECTORY), hash(uri + "\n" + digest + "\n"
+				+ name));
+	}
+
+	private File getIndexFile(URI uri) {
+		return new File(new File(directory, INDEX_DIRECTORY), hash(uri.toString())
+				+ ".properties");
+	}
+
+	private static String hash(String value) {
+		// the value may contain characters not allowed in file names
+		try {
+			return BaseEncoding.base16().lowerCase().encode(
+					MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Copies a resource, along with the resources it references, to a target
+	 * path.
+	 */
+	@FunctionalInterface
+	public interface ResourceCopier {
+
+		/**
+		 * @param target the target path of the resource file; referenced
+		 *            resources are copied relative to it
+		 * @throws IOException if the resource cannot be copied
+		 */
+		void copy(Path target) throws IOException;
+	}
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.appschema.writer.internal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Updates a target directory from a staging directory.
+ * 
+ * <p>
+ * Files are first written to the staging directory, which is created next to
+ * the target directory, so that both are on the same file system. On
+ * {@link #commit()}, each staged file is renamed into place, replacing the
+ * existing file atomically; files whose content is unchanged are not
+ * touched, so that their modification time is preserved. Staged directories
+ * that do not exist in the target directory yet are moved as a whole.
+ * </p>
+ * 
+ * <p>
+ * Files in the target directory that have no staged counterpart are left
+ * as they are.
+ * </p>
+ */
+public class StagedDirectory implements Closeable {
+
+	private static final String STAGING_PREFIX = ".staging-";
+
+	private final File targetDirectory;
+	private final File stagingDirectory;
+	private final List<String> writtenFiles = new ArrayList<String>();
+	private int unchangedCount;
+
+	/**
+	 * Create the staging directory for the provided target directory, which is
+	 * created as well if it does not exist.
+	 * 
+	 * @param targetDirectory the target directory
+	 * @throws IOException if the directories cannot be created
+	 */
+	public StagedDirectory(File targetDirectory) throws IOException {
+		this.targetDirectory = targetDirectory.getAbsoluteFile();
+		Files.createDirectories(this.targetDirectory.toPath());
+
+		File parent = this.targetDirectory.getParentFile();
+		if (parent == null) {
+			parent = this.targetDirectory;
+		}
+		this.stagingDirectory = new File(parent, "." + this.targetDirectory.getName()
+				+ STAGING_PREFIX + UUID.randomUUID());
+		Files.createDirectory(stagingDirectory.toPath());
+	}
+
+	/**
+	 * @return the target directory
+	 */
+	public File getTargetDirectory() {
+		return targetDirectory;
+	}
+
+	/**
+	 * @return the staging directory files are to be written to
+	 */
+	public File getStagingDirectory() {
+		return stagingDirectory;
+	}
+
+	/**
+	 * Move the staged files to the target directory, skipping those whose
+	 * content is unchanged.
+	 * 
+	 * @throws IOException if a file cannot be moved
+	 */
+	public void commit() throws IOException {
+		commit(stagingDirectory, targetDirectory, "");
+	}
+
+	/**
+	 * @return the paths of the files written to the target directory,
+	 *         relative to it
+	 */
+	public List<String> getWrittenFiles() {
+		return Collections.unmodifiableList(writtenFiles);
+	}
+
+	/**
+	 * @return the number of staged files that were skipped as their content
+	 *         was unchanged
+	 */
+	public int getUnchangedCount() {
+		return unchangedCount;
+	}
+
+	/**
+	 * Delete the staging directory along with any file that was not committed.
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		FileUtils.deleteDirectory(stagingDirectory);
+	}
+
+	private void commit(File stagedDir, File targetDir, String path) throws IOException {
+		// sort files, so that they are moved in a predictable order
+		File[] staged = stagedDir.listFiles();
+		if (staged == null) {
+			throw new IOException("Could not list directory " + stagedDir);
+		}
+		Arrays.sort(staged);
+		for (File file : staged) {
+			File target = new File(targetDir, file.getName());
+			String targetPath = path + file.getName();
+			if (file.isDirectory()) {
+				if (!target.exists()) {
+					List<String> files = new ArrayList<String>();
+					listFiles(file, targetPath + "/", files);
+					move(file.toPath(), target.toPath());
+					writtenFiles.addAll(files);
+				}
+				else if (target.isDirectory()) {
+					commit(file, target, targetPath + "/");
+				}
+				else {
+					throw new IOException("Not a directory: " + target);
+				}
+			}
+			else if (target.isFile() && FileUtils.contentEquals(file, target)) {
+				unchangedCount++;
+			}
+			else {
+				move(file.toPath(), target.toPath());
+				writtenFiles.add(targetPath);
+			}
+		}
+	}
+
+	private static void listFiles(File dir, String path, List<String> files) {
+		File[] children = dir.listFiles();
+		if (children != null) {
+			Arrays.sort(children);
+			for (File child : children) {
+				if (child.isDirectory()) {
+					listFiles(child, path + child.getName() + "/", files);
+				}
+				else {
+					files.add(path + child.getName());
+				}
+			}
+		}
+	}
+
+	private static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+}
@@ -22,10 +22,10 @@ import it.geosolutions.hale.io.appschema.writer.UniqueMappingNameGenerator;
 import it.geosolutions.hale.io.appschema.writer.internal.RandomUniqueMappingNameGenerator;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.namespace.QName;
 
@@ -52,8 +52,8 @@ public class AppSchemaMappingContext {
 	private FeatureChaining chainingConf;
 	private WorkspaceConfiguration workspaceConf;
 	private final MappingWrapper mappingWrapper;
-	private final Map<QName, String> mappingNames = new HashMap<>();
-	private final UniqueMappingNameGenerator mappingNameGenerator = new RandomUniqueMappingNameGenerator();
+	private final ConcurrentMap<QName, String> mappingNames;
+	private final UniqueMappingNameGenerator mappingNameGenerator;
 
 	/**
 	 * Single argument constructor.
@@ -63,6 +63,19 @@ public class AppSchemaMappingContext {
 	public AppSchemaMappingContext(MappingWrapper mappingWrapper) {
 		this.mappingWrapper = mappingWrapper;
 		this.relevantTargetTypes = new HashSet<TypeDefinition>();
+		this.mappingNames = new ConcurrentHashMap<>();
+		this.mappingNameGenerator = new RandomUniqueMappingNameGenerator();
+	}
+
+	private AppSchemaMappingContext(MappingWrapper mappingWrapper,
+			AppSchemaMappingContext parent) {
+		this.mappingWrapper = mappingWrapper;
+		this.alignment = parent.alignment;
+		this.relevantTargetTypes = parent.relevantTargetTypes;
+		this.chainingConf = parent.chainingConf;
+		this.workspaceConf = parent.workspaceConf;
+		this.mappingNames = parent.mappingNames;
+		this.mappingNameGenerator = parent.mappingNameGenerator;
 	}
 
 	/**
@@ -111,6 +124,24 @@ public class AppSchemaMappingContext {
 		this.workspaceConf = workspaceConf;
 	}
 
+	/**
+	 * Create a context operating on the provided (partial) mapping wrapper,
+	 * which shares all other settings with this context.
+	 * 
+	 * <p>
+	 * Generated mapping names are shared as well, so that the same type gets
+	 * the same unique mapping name in all contexts. Contexts created by this
+	 * method can be used concurrently, as long as each one is confined to a
+	 * single thread.
+	 * </p>
+	 * 
+	 * @param partialWrapper the mapping wrapper of the new context
+	 * @return the new context
+	 */
+	public AppSchemaMappingContext createPartialContext(MappingWrapper partialWrapper) {
+		return new AppSchemaMappingContext(partialWrapper, this);
+	}
+
 	/**
 	 * @return the mappingWrapper
 	 */
@@ -221,18 +252,19 @@ public class AppSchemaMappingContext {
 
 		QName typeName = new QName(targetType.getName().getNamespaceURI(),
 				targetType.getDisplayName());
-		String mappingName = null;
+		String mappingName = mappingNames.get(typeName);
 
-		if (mappingNames.containsKey(typeName)) {
-			mappingName = mappingNames.get(typeName);
-		}
-		else {
+		if (mappingName == null) {
 			if (workspaceConf != null) {
 				String namespaceUri = targetType.getName().getNamespaceURI();
 				WorkspaceMetadata workspace = workspaceConf.getWorkspace(namespaceUri);
 				if (workspace != null && workspace.isIsolated()) {
 					mappingName = mappingNameGenerator.generateUniqueMappingName(typeName);
-					mappingNames.put(typeName, mappingName);
+					// another context may have generated a name concurrently
+					String existingName = mappingNames.putIfAbsent(typeName, mappingName);
+					if (existingName != null) {
+						mappingName = existingName;
+					}
 				}
 			}
 		}
@@ -38,4 +38,12 @@ public class AppSchemaMappingWrapper extends AppSchemaMappingWrapperBase {
 		super(appSchemaMapping);
 	}
 
+	/**
+	 * @see it.geosolutions.hale.io.appschema.writer.internal.mapping.AppSchemaMappingWrapperBase#createWrapper(it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.AppSchemaDataAccessType)
+	 */
+	@Override
+	protected AppSchemaMappingWrapperBase createWrapper(AppSchemaDataAccessType appSchemaMapping) {
+		return new AppSchemaMappingWrapper(appSchemaMapping);
+	}
+
 }
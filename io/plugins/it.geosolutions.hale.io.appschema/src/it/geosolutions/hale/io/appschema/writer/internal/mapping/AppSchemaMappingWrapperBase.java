@@ -21,8 +21,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -73,9 +75,9 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 	private int prefixCounter = 1;
 	private final Map<String, Namespace> namespaceUriMap;
 	private final Map<String, Namespace> namespacePrefixMap;
-	protected final Map<Integer, FeatureTypeMapping> featureTypeMappings;
-	private final Map<Integer, Integer> featureLinkCounter;
-	private final Map<Integer, AttributeMappingType> attributeMappings;
+	protected final Map<FeatureTypeMappingKey, FeatureTypeMapping> featureTypeMappings;
+	private final Map<FeatureTypeMappingKey, Integer> featureLinkCounter;
+	private final Map<AttributeMappingKey, AttributeMappingType> attributeMappings;
 
 	protected final Map<String, Set<FeatureTypeMapping>> featureTypesByTargetElement;
 	protected final Map<String, Set<FeatureTypeMapping>> nonFeatureTypesByTargetElement;
@@ -83,6 +85,7 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 	protected final AppSchemaDataAccessType appSchemaMapping;
 
 	private String mappingPrefix;
+	private Map<String, String> initialNamespaces;
 
 	/**
 	 * Constructor.
@@ -96,9 +99,9 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 
 		this.namespaceUriMap = new HashMap<String, Namespace>();
 		this.namespacePrefixMap = new HashMap<String, Namespace>();
-		this.featureTypeMappings = new HashMap<Integer, FeatureTypeMapping>();
-		this.featureLinkCounter = new HashMap<Integer, Integer>();
-		this.attributeMappings = new HashMap<Integer, AttributeMappingType>();
+		this.featureTypeMappings = new HashMap<FeatureTypeMappingKey, FeatureTypeMapping>();
+		this.featureLinkCounter = new HashMap<FeatureTypeMappingKey, Integer>();
+		this.attributeMappings = new HashMap<AttributeMappingKey, AttributeMappingType>();
 		this.featureTypesByTargetElement = new HashMap<String, Set<FeatureTypeMapping>>();
 		this.nonFeatureTypesByTargetElement = new HashMap<String, Set<FeatureTypeMapping>>();
 	}
@@ -306,7 +309,7 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 			return null;
 		}
 
-		Integer hashKey = getFeatureTypeMappingHashKey(targetType, mappingName);
+		FeatureTypeMappingKey hashKey = getFeatureTypeMappingKey(targetType, mappingName);
 		if (!featureTypeMappings.containsKey(hashKey)) {
 			// create
 			FeatureTypeMapping featureTypeMapping = new FeatureTypeMapping();
@@ -360,13 +363,9 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 		return prefix;
 	}
 
-	protected Integer getFeatureTypeMappingHashKey(TypeDefinition targetType, String mappingName) {
-		String hashBase = targetType.getName().toString();
-		if (mappingName != null && !mappingName.isEmpty()) {
-			hashBase += "__" + mappingName;
-		}
-
-		return hashBase.hashCode();
+	protected FeatureTypeMappingKey getFeatureTypeMappingKey(TypeDefinition targetType,
+			String mappingName) {
+		return new FeatureTypeMappingKey(targetType.getName(), mappingName);
 	}
 
 	private void addToFeatureTypeMappings(TypeDefinition targetType,
@@ -436,7 +435,7 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 	 */
 	@Override
 	public String getUniqueFeatureLinkAttribute(TypeDefinition featureType, String mappingName) {
-		Integer featureTypeKey = getFeatureTypeMappingHashKey(featureType, mappingName);
+		FeatureTypeMappingKey featureTypeKey = getFeatureTypeMappingKey(featureType, mappingName);
 		if (!featureLinkCounter.containsKey(featureTypeKey)) {
 			featureLinkCounter.put(featureTypeKey, 0);
 		}
@@ -458,7 +457,8 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 			return null;
 		}
 
-		Integer hashKey = getAttruteMappingHashKey(owningType, propertyPath);
+		AttributeMappingKey hashKey = getAttributeMappingKey(owningType, mappingName,
+				propertyPath);
 		if (!attributeMappings.containsKey(hashKey)) {
 			// create
 			AttributeMappingType attrMapping = new AttributeMappingType();
@@ -475,26 +475,13 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 		return !(propertyPath == null || propertyPath.isEmpty());
 	}
 
-	protected Integer getAttruteMappingHashKey(TypeDefinition owningType,
-			List<ChildContext> propertyPath) {
-		final String SEPARATOR = "__";
-		StringBuilder pathBuilder = new StringBuilder();
-
-		if (owningType != null) {
-			pathBuilder.append(owningType.getName().toString()).append(SEPARATOR);
-			for (ChildContext childContext : propertyPath) {
-				pathBuilder.append(childContext.getChild().getName().toString());
-				if (childContext.getContextName() != null) {
-					pathBuilder.append(childContext.getContextName());
-				}
-				pathBuilder.append(SEPARATOR);
-			}
-		}
-		else {
+	protected AttributeMappingKey getAttributeMappingKey(TypeDefinition owningType,
+			String mappingName, List<ChildContext> propertyPath) {
+		if (owningType == null) {
 			throw new IllegalArgumentException("Could not find feature type owning property");
 		}
 
-		return pathBuilder.toString().hashCode();
+		return AttributeMappingKey.forPath(owningType.getName(), mappingName, propertyPath);
 	}
 
 	/**
@@ -531,7 +518,7 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 	 */
 	@Override
 	public AppSchemaDataAccessType getMainMapping() {
-		AppSchemaDataAccessType mainMapping = cloneMapping(appSchemaMapping);
+		AppSchemaDataAccessType mainMapping = createMappingView();
 
 		if (requiresMultipleFiles()) {
 			// add included types configuration
@@ -553,7 +540,7 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 	@Override
 	public AppSchemaDataAccessType getIncludedTypesMapping() {
 		if (requiresMultipleFiles()) {
-			AppSchemaDataAccessType includedTypesMapping = cloneMapping(appSchemaMapping);
+			AppSchemaDataAccessType includedTypesMapping = createMappingView();
 
 			Set<FeatureTypeMapping> toBeRemoved = new HashSet<FeatureTypeMapping>();
 			Set<FeatureTypeMapping> toBeKept = new HashSet<FeatureTypeMapping>();
@@ -567,6 +554,33 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 		}
 	}
 
+	/**
+	 * Create a shallow view of the wrapped mapping: type mappings, data stores
+	 * and included types are held in new lists, so that they can be filtered
+	 * without affecting the wrapped mapping, while their elements, as well as
+	 * namespaces and target types, are shared.
+	 * 
+	 * @return the mapping view
+	 */
+	private AppSchemaDataAccessType createMappingView() {
+		AppSchemaDataAccessType view = new AppSchemaDataAccessType();
+		view.setCatalog(appSchemaMapping.getCatalog());
+		view.setNamespaces(appSchemaMapping.getNamespaces());
+		view.setTargetTypes(appSchemaMapping.getTargetTypes());
+
+		view.setIncludedTypes(new IncludesPropertyType());
+		view.getIncludedTypes().getInclude()
+				.addAll(appSchemaMapping.getIncludedTypes().getInclude());
+		view.setSourceDataStores(new SourceDataStoresPropertyType());
+		view.getSourceDataStores().getDataStore()
+				.addAll(appSchemaMapping.getSourceDataStores().getDataStore());
+		view.setTypeMappings(new TypeMappingsPropertyType());
+		view.getTypeMappings().getFeatureTypeMapping()
+				.addAll(appSchemaMapping.getTypeMappings().getFeatureTypeMapping());
+
+		return view;
+	}
+
 	private void groupTypeMappings(Set<FeatureTypeMapping> mainTypes,
 			Set<FeatureTypeMapping> includedTypes) {
 		// look for multiple mappings of the same feature type and determine
@@ -575,17 +589,12 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 			if (ftMappings.size() > 1) {
 				FeatureTypeMapping topLevelMapping = null;
 				for (FeatureTypeMapping m : ftMappings) {
-					if (topLevelMapping != null) {
-						// top level mapping already found, drop the others
-						includedTypes.add(m);
-					}
-					else {
-						if (m.getMappingName() == null || m.getMappingName().trim().isEmpty()) {
-							// use this as top level mapping
-							// TODO: there's no guarantee this is the right one
-							// to pick
-							topLevelMapping = m;
-						}
+					if (m.getMappingName() == null || m.getMappingName().trim().isEmpty()) {
+						// use this as top level mapping
+						// TODO: there's no guarantee this is the right one
+						// to pick
+						topLevelMapping = m;
+						break;
 					}
 				}
 				if (topLevelMapping == null) {
@@ -593,6 +602,12 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 					topLevelMapping = ftMappings.iterator().next();
 				}
 				mainTypes.add(topLevelMapping);
+				// all other mappings of the same feature type are included
+				for (FeatureTypeMapping m : ftMappings) {
+					if (m != topLevelMapping) {
+						includedTypes.add(m);
+					}
+				}
 			}
 			else {
 				mainTypes.add(ftMappings.iterator().next());
@@ -607,18 +622,26 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 
 	private void purgeTypeMappings(AppSchemaDataAccessType mapping,
 			Set<FeatureTypeMapping> toBeRemoved) {
+		// index mappings to remove by target element and mapping name, so
+		// that each lookup takes constant time
+		Set<TypeMappingKey> removedKeys = new HashSet<TypeMappingKey>();
+		for (FeatureTypeMapping ftMapping : toBeRemoved) {
+			removedKeys.add(new TypeMappingKey(ftMapping));
+		}
+
 		Set<String> usedStores = new HashSet<String>();
-		Iterator<FeatureTypeMapping> featureIt = mapping.getTypeMappings().getFeatureTypeMapping()
-				.iterator();
-		while (featureIt.hasNext()) {
-			FeatureTypeMapping ftMapping = featureIt.next();
-			if (lookupTypeMapping(ftMapping, toBeRemoved) != null) {
-				featureIt.remove();
-			}
-			else {
+		List<FeatureTypeMapping> typeMappings = mapping.getTypeMappings().getFeatureTypeMapping();
+		List<FeatureTypeMapping> keptMappings = new ArrayList<FeatureTypeMapping>(
+				typeMappings.size());
+		for (FeatureTypeMapping ftMapping : typeMappings) {
+			if (!removedKeys.contains(new TypeMappingKey(ftMapping))) {
+				keptMappings.add(ftMapping);
 				usedStores.add(ftMapping.getSourceDataStore());
 			}
 		}
+		// rebuild the list rather than removing elements one by one
+		typeMappings.clear();
+		typeMappings.addAll(keptMappings);
 
 		// remove unnecessary DataStores
 		Iterator<DataStore> storeIt = mapping.getSourceDataStores().getDataStore().iterator();
@@ -629,23 +652,158 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 		}
 	}
 
-	private FeatureTypeMapping lookupTypeMapping(FeatureTypeMapping ftMapping,
-			Set<FeatureTypeMapping> candidates) {
-		for (FeatureTypeMapping candidate : candidates) {
-			boolean sameElement = ftMapping.getTargetElement().equals(candidate.getTargetElement());
-			boolean noMappingName = ftMapping.getMappingName() == null
-					&& candidate.getMappingName() == null;
-			boolean sameMappingName = false;
-			if (!noMappingName) {
-				sameMappingName = ftMapping.getMappingName() != null
-						&& ftMapping.getMappingName().equals(candidate.getMappingName());
+	/**
+	 * Identifies a type mapping by target element and mapping name. Two
+	 * mappings with the same target element are equal if neither has a mapping
+	 * name, or if their mapping names are equal.
+	 */
+	private static final class TypeMappingKey {
+
+		private final String targetElement;
+		private final String mappingName;
+		private final int hashCode;
+
+		private TypeMappingKey(FeatureTypeMapping ftMapping) {
+			this.targetElement = ftMapping.getTargetElement();
+			this.mappingName = ftMapping.getMappingName();
+			this.hashCode = Objects.hash(targetElement, mappingName);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof TypeMappingKey)) {
+				return false;
 			}
-			if (sameElement && (noMappingName || sameMappingName)) {
-				return candidate;
+			TypeMappingKey other = (TypeMappingKey) obj;
+			return hashCode == other.hashCode && Objects.equals(targetElement, other.targetElement)
+					&& Objects.equals(mappingName, other.mappingName);
+		}
+	}
+
+	/**
+	 * Create a new, empty wrapper of the same kind as this one, sharing a copy
+	 * of this wrapper's namespaces and data stores.
+	 * 
+	 * <p>
+	 * Partial wrappers are used to translate independent type cells
+	 * concurrently: each thread works on its own partial wrapper, which is
+	 * then merged back into this wrapper via
+	 * {@link #mergePartialWrapper(AppSchemaMappingWrapperBase)}.
+	 * </p>
+	 * 
+	 * @return the partial wrapper
+	 */
+	public AppSchemaMappingWrapperBase createPartialWrapper() {
+		AppSchemaDataAccessType partialMapping = new AppSchemaDataAccessType();
+		initMapping(partialMapping);
+		for (DataStore ds : appSchemaMapping.getSourceDataStores().getDataStore()) {
+			partialMapping.getSourceDataStores().getDataStore().add(cloneDataStore(ds));
+		}
+
+		AppSchemaMappingWrapperBase partial = createWrapper(partialMapping);
+		partial.mappingPrefix = mappingPrefix;
+		partial.prefixCounter = prefixCounter;
+		for (Namespace ns : appSchemaMapping.getNamespaces().getNamespace()) {
+			Namespace nsClone = cloneNamespace(ns);
+			partialMapping.getNamespaces().getNamespace().add(nsClone);
+			partial.namespaceUriMap.put(nsClone.getUri(), nsClone);
+			partial.namespacePrefixMap.put(nsClone.getPrefix(), nsClone);
+		}
+		partial.initialNamespaces = getNamespacePrefixes();
+
+		return partial;
+	}
+
+	/**
+	 * Merge the type mappings of a partial wrapper created by
+	 * {@link #createPartialWrapper()} into this wrapper.
+	 * 
+	 * <p>
+	 * The merge only succeeds if the result is the same that would have been
+	 * obtained by translating the partial wrapper's cells directly against
+	 * this wrapper, i.e. if the partial wrapper did not add or rename any
+	 * namespace and none of its type mappings, attribute mappings or feature
+	 * links already exist here. Otherwise, this wrapper is left untouched and
+	 * <code>false</code> is returned.
+	 * </p>
+	 * 
+	 * @param partial the partial wrapper to merge
+	 * @return <code>true</code> if the partial wrapper was merged,
+	 *         <code>false</code> otherwise
+	 */
+	public boolean mergePartialWrapper(AppSchemaMappingWrapperBase partial) {
+		if (partial.initialNamespaces == null
+				|| !partial.initialNamespaces.equals(partial.getNamespacePrefixes())) {
+			return false;
+		}
+		Map<String, String> currentNamespaces = getNamespacePrefixes();
+		for (Map.Entry<String, String> ns : partial.initialNamespaces.entrySet()) {
+			if (!ns.getValue().equals(currentNamespaces.get(ns.getKey()))) {
+				return false;
 			}
 		}
+		if (partial.appSchemaMapping.getSourceDataStores().getDataStore()
+				.size() != appSchemaMapping.getSourceDataStores().getDataStore().size()) {
+			return false;
+		}
+		if (!Collections.disjoint(featureTypeMappings.keySet(),
+				partial.featureTypeMappings.keySet())
+				|| !Collections.disjoint(attributeMappings.keySet(),
+						partial.attributeMappings.keySet())
+				|| !Collections.disjoint(featureLinkCounter.keySet(),
+						partial.featureLinkCounter.keySet())) {
+			return false;
+		}
+
+		appSchemaMapping.getTypeMappings().getFeatureTypeMapping()
+				.addAll(partial.appSchemaMapping.getTypeMappings().getFeatureTypeMapping());
+		appSchemaMapping.getTargetTypes().getFeatureType().getSchemaUri()
+				.addAll(partial.appSchemaMapping.getTargetTypes().getFeatureType().getSchemaUri());
+		featureTypeMappings.putAll(partial.featureTypeMappings);
+		attributeMappings.putAll(partial.attributeMappings);
+		featureLinkCounter.putAll(partial.featureLinkCounter);
+		mergeTypeMappingsByElement(featureTypesByTargetElement,
+				partial.featureTypesByTargetElement);
+		mergeTypeMappingsByElement(nonFeatureTypesByTargetElement,
+				partial.nonFeatureTypesByTargetElement);
 
-		return null;
+		return true;
+	}
+
+	/**
+	 * Create a new wrapper of the same kind as this one, wrapping the provided
+	 * mapping.
+	 * 
+	 * @param appSchemaMapping the app-schema mapping to wrap
+	 * @return the new wrapper
+	 */
+	protected abstract AppSchemaMappingWrapperBase createWrapper(
+			AppSchemaDataAccessType appSchemaMapping);
+
+	private Map<String, String> getNamespacePrefixes() {
+		Map<String, String> prefixes = new LinkedHashMap<String, String>();
+		for (Namespace ns : appSchemaMapping.getNamespaces().getNamespace()) {
+			prefixes.put(ns.getUri(), ns.getPrefix());
+		}
+		return prefixes;
+	}
+
+	private static void mergeTypeMappingsByElement(Map<String, Set<FeatureTypeMapping>> target,
+			Map<String, Set<FeatureTypeMapping>> source) {
+		for (Map.Entry<String, Set<FeatureTypeMapping>> entry : source.entrySet()) {
+			if (!target.containsKey(entry.getKey())) {
+				target.put(entry.getKey(), new HashSet<FeatureTypeMapping>());
+			}
+			target.get(entry.getKey()).addAll(entry.getValue());
+		}
 	}
 
 	static AppSchemaDataAccessType cloneMapping(AppSchemaDataAccessType mapping) {
@@ -790,7 +948,7 @@ public abstract class AppSchemaMappingWrapperBase implements MappingWrapper {
 	 * 
 	 * @param mapping the mapping
 	 */
-	private static void initMapping(AppSchemaDataAccessType mapping) {
+	static void initMapping(AppSchemaDataAccessType mapping) {
 		if (mapping.getNamespaces() == null) {
 			mapping.setNamespaces(new NamespacesPropertyType());
 		}
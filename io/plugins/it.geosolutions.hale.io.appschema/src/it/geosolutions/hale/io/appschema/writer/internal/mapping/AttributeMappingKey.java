@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer.internal.mapping;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import javax.xml.namespace.QName;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import eu.esdihumboldt.hale.common.align.model.ChildContext;
+
+/**
+ * Immutable key identifying an attribute mapping by owning type name, mapping
+ * name and property path.
+ * 
+ * <p>
+ * Path steps are interned, so that keys of attributes sharing part of their
+ * path share the same step instances.
+ * </p>
+ */
+public final class AttributeMappingKey {
+
+	private static final Interner<PathStep> STEP_INTERNER = Interners.newWeakInterner();
+
+	private final QName owningTypeName;
+	private final String mappingName;
+	private final List<PathStep> path;
+	private final Object discriminator;
+	private final int hashCode;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param owningTypeName the name of the type owning the attribute
+	 * @param path the property path steps
+	 */
+	public AttributeMappingKey(QName owningTypeName, List<PathStep> path) {
+		this(owningTypeName, null, path);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param owningTypeName the name of the type owning the attribute
+	 * @param mappingName the name of the owning type mapping,
+	 *            <code>null</code> and empty strings are considered equivalent
+	 * @param path the property path steps
+	 */
+	public AttributeMappingKey(QName owningTypeName, String mappingName, List<PathStep> path) {
+		this(owningTypeName, mappingName, path, null);
+	}
+
+	private AttributeMappingKey(QName owningTypeName, String mappingName, List<PathStep> path,
+			Object discriminator) {
+		if (owningTypeName == null) {
+			throw new IllegalArgumentException("owningTypeName must be set");
+		}
+
+		this.owningTypeName = owningTypeName;
+		this.mappingName = (mappingName != null && !mappingName.isEmpty()) ? mappingName : null;
+		List<PathStep> internedPath = new ArrayList<PathStep>(path.size());
+		for (PathStep step : path) {
+			internedPath.add(STEP_INTERNER.intern(step));
+		}
+		this.path = Collections.unmodifiableList(internedPath);
+		this.discriminator = discriminator;
+		this.hashCode = Objects.hash(this.owningTypeName, this.mappingName, this.path,
+				this.discriminator);
+	}
+
+	/**
+	 * Create a key for the provided owning type, mapping name and property
+	 * path.
+	 * 
+	 * @param owningTypeName the name of the type owning the attribute
+	 * @param mappingName the name of the owning type mapping, may be
+	 *            <code>null</code>
+	 * @param propertyPath the property path
+	 * @return the key
+	 */
+	public static AttributeMappingKey forPath(QName owningTypeName, String mappingName,
+			List<ChildContext> propertyPath) {
+		List<PathStep> path = new ArrayList<PathStep>(propertyPath.size());
+		for (ChildContext childContext : propertyPath) {
+			path.add(new PathStep(childContext.getChild().getName(),
+					childContext.getContextName()));
+		}
+
+		return new AttributeMappingKey(owningTypeName, mappingName, path);
+	}
+
+	/**
+	 * Create a key that is only equal to itself, i.e. which never matches an
+	 * existing attribute mapping.
+	 * 
+	 * @param owningTypeName the name of the type owning the attribute
+	 * @param mappingName the name of the owning type mapping, may be
+	 *            <code>null</code>
+	 * @return the key
+	 */
+	public static AttributeMappingKey unique(QName owningTypeName, String mappingName) {
+		return new AttributeMappingKey(owningTypeName, mappingName,
+				Collections.<PathStep> emptyList(), new Object());
+	}
+
+	/**
+	 * @return the name of the type owning the attribute
+	 */
+	public QName getOwningTypeName() {
+		return owningTypeName;
+	}
+
+	/**
+	 * @return the name of the owning type mapping, <code>null</code> if not
+	 *         set
+	 */
+	public String getMappingName() {
+		return mappingName;
+	}
+
+	/**
+	 * @return the (unmodifiable) property path
+	 */
+	public List<PathStep> getPath() {
+		return path;
+	}
+
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	/**
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof AttributeMappingKey)) {
+			return false;
+		}
+		AttributeMappingKey other = (AttributeMappingKey) obj;
+		return hashCode == other.hashCode && owningTypeName.equals(other.owningTypeName)
+				&& Objects.equals(mappingName, other.mappingName) && path.equals(other.path)
+				&& Objects.equals(discriminator, other.discriminator);
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		String owner = (mappingName != null) ? owningTypeName + "__" + mappingName
+				: owningTypeName.toString();
+		return owner + "__" + Joiner.on("__").join(path);
+	}
+
+	/**
+	 * Immutable step of a property path, i.e. a property name with an optional
+	 * context name.
+	 */
+	public static final class PathStep {
+
+		private final QName name;
+		private final Integer contextName;
+		private final int hashCode;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param name the property name
+		 * @param contextName the context name, may be <code>null</code>
+		 */
+		public PathStep(QName name, Integer contextName) {
+			if (name == null) {
+				throw new IllegalArgumentException("name must be set");
+			}
+
+			this.name = name;
+			this.contextName = contextName;
+			this.hashCode = Objects.hash(name, contextName);
+		}
+
+		/**
+		 * @return the property name
+		 */
+		public QName getName() {
+			return name;
+		}
+
+		/**
+		 * @return the context name, may be <code>null</code>
+		 */
+		public Integer getContextName() {
+			return contextName;
+		}
+
+		/**
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		/**
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof PathStep)) {
+				return false;
+			}
+			PathStep other = (PathStep) obj;
+			return hashCode == other.hashCode && name.equals(other.name)
+					&& Objects.equals(contextName, other.contextName);
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return (contextName != null) ? name.toString() + contextName : name.toString();
+		}
+	}
+
+}
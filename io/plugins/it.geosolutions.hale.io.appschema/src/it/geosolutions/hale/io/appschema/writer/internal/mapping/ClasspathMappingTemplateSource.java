@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer.internal.mapping;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import it.geosolutions.hale.io.appschema.AppSchemaIO;
+
+/**
+ * Mapping template source reading the template from the classpath.
+ */
+public class ClasspathMappingTemplateSource implements MappingTemplateSource {
+
+	/**
+	 * Source of the default mapping template shipped with the plugin.
+	 */
+	public static final ClasspathMappingTemplateSource DEFAULT = new ClasspathMappingTemplateSource(
+			AppSchemaIO.MAPPING_TEMPLATE, ClasspathMappingTemplateSource.class);
+
+	private final String resourcePath;
+	private final Class<?> resourceOwner;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param resourcePath the template path, as accepted by
+	 *            {@link Class#getResourceAsStream(String)}
+	 * @param resourceOwner the class used to load the resource
+	 */
+	public ClasspathMappingTemplateSource(String resourcePath, Class<?> resourceOwner) {
+		if (resourcePath == null || resourcePath.trim().isEmpty()) {
+			throw new IllegalArgumentException("resourcePath must be set");
+		}
+		if (resourceOwner == null) {
+			throw new IllegalArgumentException("resourceOwner must be set");
+		}
+
+		this.resourcePath = resourcePath;
+		this.resourceOwner = resourceOwner;
+	}
+
+	/**
+	 * @see it.geosolutions.hale.io.appschema.writer.internal.mapping.MappingTemplateSource#getLocation()
+	 */
+	@Override
+	public String getLocation() {
+		// relative paths are resolved against the owner, and different owners
+		// may ship different resources at the same path
+		return "classpath:" + resourceOwner.getName() + ":" + resourcePath;
+	}
+
+	/**
+	 * @see it.geosolutions.hale.io.appschema.writer.internal.mapping.MappingTemplateSource#openStream()
+	 */
+	@Override
+	public InputStream openStream() throws IOException {
+		InputStream is = resourceOwner.getResourceAsStream(resourcePath);
+		if (is == null) {
+			throw new FileNotFoundException("Mapping template not found: " + resourcePath);
+		}
+
+		return is;
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer.internal.mapping;
+
+import java.util.Objects;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Immutable key identifying a feature type mapping by target type name and
+ * (optional) mapping name.
+ */
+public final class FeatureTypeMappingKey {
+
+	private final QName targetTypeName;
+	private final String mappingName;
+	private final int hashCode;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param targetTypeName the target type name
+	 * @param mappingName the mapping name, <code>null</code> and empty strings
+	 *            are considered equivalent
+	 */
+	public FeatureTypeMappingKey(QName targetTypeName, String mappingName) {
+		if (targetTypeName == null) {
+			throw new IllegalArgumentException("targetTypeName must be set");
+		}
+
+		this.targetTypeName = targetTypeName;
+		this.mappingName = (mappingName != null && !mappingName.isEmpty()) ? mappingName : null;
+		this.hashCode = Objects.hash(this.targetTypeName, this.mappingName);
+	}
+
+	/**
+	 * @return the target type name
+	 */
+	public QName getTargetTypeName() {
+		return targetTypeName;
+	}
+
+	/**
+	 * @return the mapping name, may be <code>null</code>
+	 */
+	public String getMappingName() {
+		return mappingName;
+	}
+
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	/**
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof FeatureTypeMappingKey)) {
+			return false;
+		}
+		FeatureTypeMappingKey other = (FeatureTypeMappingKey) obj;
+		return hashCode == other.hashCode && targetTypeName.equals(other.targetTypeName)
+				&& Objects.equals(mappingName, other.mappingName);
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return (mappingName != null) ? targetTypeName + "__" + mappingName
+				: targetTypeName.toString();
+	}
+
+}
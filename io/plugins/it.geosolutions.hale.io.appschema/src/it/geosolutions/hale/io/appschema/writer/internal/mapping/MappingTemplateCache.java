@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer.internal.mapping;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.stream.StreamSource;
+
+import it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.AppSchemaDataAccessType;
+import it.geosolutions.hale.io.appschema.writer.internal.JaxbContextCache;
+
+/**
+ * Cache of parsed mapping configuration templates.
+ * 
+ * <p>
+ * Each template is unmarshalled only once and kept as a private prototype,
+ * which is never handed out: callers always receive a structural copy they are
+ * free to modify. Prototypes are prepared for generation once, when parsed:
+ * their namespaces are removed, as generators recreate them.
+ * </p>
+ */
+public class MappingTemplateCache {
+
+	private static final MappingTemplateCache instance = new MappingTemplateCache();
+
+	/**
+	 * Return the singleton cache instance.
+	 * 
+	 * @return the cache instance
+	 */
+	public static MappingTemplateCache getInstance() {
+		return instance;
+	}
+
+	private final ConcurrentMap<String, AppSchemaDataAccessType> prototypes = new ConcurrentHashMap<>();
+
+	private MappingTemplateCache() {
+	}
+
+	/**
+	 * Return a fresh copy of the mapping template provided by
+	 * <code>source</code>. The template is parsed on first access only.
+	 * 
+	 * @param source the template source
+	 * @return a modifiable copy of the template
+	 * @throws IOException if the template cannot be read or parsed
+	 */
+	public AppSchemaDataAccessType getMappingTemplate(MappingTemplateSource source)
+			throws IOException {
+		if (source == null) {
+			throw new IllegalArgumentException("source must be set");
+		}
+
+		String location = source.getLocation();
+		AppSchemaDataAccessType prototype = prototypes.get(location);
+		if (prototype == null) {
+			synchronized (prototypes) {
+				prototype = prototypes.get(location);
+				if (prototype == null) {
+					prototype = parseTemplate(source);
+					prototypes.put(location, prototype);
+				}
+			}
+		}
+
+		return AppSchemaMappingWrapperBase.cloneMapping(prototype);
+	}
+
+	/**
+	 * Discard the cached prototype for the provided template source, if any.
+	 * 
+	 * @param source the template source
+	 */
+	public void invalidate(MappingTemplateSource source) {
+		if (source != null) {
+			prototypes.remove(source.getLocation());
+		}
+	}
+
+	private static AppSchemaDataAccessType parseTemplate(MappingTemplateSource source)
+			throws IOException {
+		JaxbContextCache jaxbCache = JaxbContextCache.getInstance();
+		Unmarshaller unmarshaller = null;
+		try (InputStream is = source.openStream()) {
+			unmarshaller = jaxbCache.acquireUnmarshaller(JaxbContextCache.APP_SCHEMA_CONTEXT_PATH,
+					MappingTemplateCache.class.getClassLoader());
+
+			JAXBElement<AppSchemaDataAccessType> templateElement = unmarshaller
+					.unmarshal(new StreamSource(is), AppSchemaDataAccessType.class);
+
+			AppSchemaDataAccessType template = templateElement.getValue();
+			AppSchemaMappingWrapperBase.initMapping(template);
+			// generators create namespaces for all target types / properties
+			// TODO: this removes all namespaces that were defined in the
+			// template file, add code to cope with pre-configured namespaces
+			// instead
+			template.getNamespaces().getNamespace().clear();
+
+			return template;
+		} catch (JAXBException e) {
+			throw new IOException(e);
+		} finally {
+			jaxbCache.releaseUnmarshaller(JaxbContextCache.APP_SCHEMA_CONTEXT_PATH, unmarshaller);
+		}
+	}
+
+}
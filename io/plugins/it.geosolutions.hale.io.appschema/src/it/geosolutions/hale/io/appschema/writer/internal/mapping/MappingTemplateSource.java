@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.appschema.writer.internal.mapping;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Source of the app-schema mapping configuration template, which is used as
+ * starting point when generating a mapping.
+ * 
+ * <p>
+ * Parsed templates are cached by {@link MappingTemplateCache} using the value
+ * returned by {@link #getLocation()} as key, so two sources with the same
+ * location must provide the same content.
+ * </p>
+ */
+public interface MappingTemplateSource {
+
+	/**
+	 * @return the location identifying the template, used as cache key
+	 */
+	public String getLocation();
+
+	/**
+	 * Open a stream to read the template content. The caller is responsible for
+	 * closing the stream.
+	 * 
+	 * @return the template content stream
+	 * @throws IOException if the template cannot be read
+	 */
+	public InputStream openStream() throws IOException;
+
+}
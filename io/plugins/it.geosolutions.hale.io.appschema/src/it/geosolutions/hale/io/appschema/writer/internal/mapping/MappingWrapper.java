@@ -249,11 +249,17 @@ public interface MappingWrapper {
 	 * Returns the mapping configuration for the main mapping file.
 	 * 
 	 * <p>
-	 * If the mapping does not require multiple files, this method is equivalent
-	 * to {@link #getAppSchemaMapping()}.
+	 * If the mapping does not require multiple files, this method returns all
+	 * type mappings, like {@link #getAppSchemaMapping()}.
 	 * </p>
 	 * 
-	 * @return a copy of the main mapping configuration
+	 * <p>
+	 * The returned object is a view sharing type mappings, namespaces and
+	 * target types with the wrapped mapping, so subsequent changes (e.g. schema
+	 * URI updates) are reflected in it. It should not be modified.
+	 * </p>
+	 * 
+	 * @return a view of the main mapping configuration
 	 */
 	AppSchemaDataAccessType getMainMapping();
 
@@ -265,7 +271,12 @@ public interface MappingWrapper {
 	 * returned.
 	 * </p>
 	 * 
-	 * @return a copy of the included types mapping configuration, or
+	 * <p>
+	 * Like {@link #getMainMapping()}, the returned object is a view of the
+	 * wrapped mapping and should not be modified.
+	 * </p>
+	 * 
+	 * @return a view of the included types mapping configuration, or
 	 *         <code>null</code>
 	 */
 	AppSchemaDataAccessType getIncludedTypesMapping();
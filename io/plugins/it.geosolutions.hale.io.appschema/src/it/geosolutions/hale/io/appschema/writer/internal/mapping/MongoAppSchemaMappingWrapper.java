@@ -20,7 +20,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.UUID;
 
 import eu.esdihumboldt.hale.common.align.model.ChildContext;
 import eu.esdihumboldt.hale.common.schema.model.TypeDefinition;
@@ -48,6 +47,14 @@ public class MongoAppSchemaMappingWrapper extends AppSchemaMappingWrapperBase {
 		super(appSchemaMapping);
 	}
 
+	/**
+	 * @see it.geosolutions.hale.io.appschema.writer.internal.mapping.AppSchemaMappingWrapperBase#createWrapper(it.geosolutions.hale.io.appschema.impl.internal.generated.app_schema.AppSchemaDataAccessType)
+	 */
+	@Override
+	protected AppSchemaMappingWrapperBase createWrapper(AppSchemaDataAccessType appSchemaMapping) {
+		return new MongoAppSchemaMappingWrapper(appSchemaMapping);
+	}
+
 	/**
 	 * @see it.geosolutions.hale.io.appschema.writer.internal.mapping.AppSchemaMappingWrapperBase#getOrCreateFeatureTypeMapping(eu.esdihumboldt.hale.common.schema.model.TypeDefinition,
 	 *      java.lang.String, boolean)
@@ -59,7 +66,7 @@ public class MongoAppSchemaMappingWrapper extends AppSchemaMappingWrapperBase {
 		if (prefix.isPresent()) {
 			mappingName = prefix.get() + "-" + targetType.getDisplayName();
 		}
-		Integer hashKey = getFeatureTypeMappingHashKey(targetType, mappingName);
+		FeatureTypeMappingKey hashKey = getFeatureTypeMappingKey(targetType, mappingName);
 		if (!featureTypeMappings.containsKey(hashKey)) {
 			// create
 			FeatureTypeMapping featureTypeMapping = new FeatureTypeMapping();
@@ -104,31 +111,21 @@ public class MongoAppSchemaMappingWrapper extends AppSchemaMappingWrapperBase {
 		return true;
 	}
 
+	/**
+	 * @see it.geosolutions.hale.io.appschema.writer.internal.mapping.AppSchemaMappingWrapperBase#getAttributeMappingKey(eu.esdihumboldt.hale.common.schema.model.TypeDefinition,
+	 *      java.lang.String, java.util.List)
+	 */
 	@Override
-	protected Integer getAttruteMappingHashKey(TypeDefinition owningType,
-			List<ChildContext> propertyPath) {
-		final String SEPARATOR = "__";
-		StringBuilder pathBuilder = new StringBuilder();
-
-		if (owningType != null) {
-			pathBuilder.append(owningType.getName().toString()).append(SEPARATOR);
-			if (propertyPath == null || propertyPath.isEmpty()) {
-				pathBuilder.append(UUID.randomUUID().toString());
-			}
-			else {
-				for (ChildContext childContext : propertyPath) {
-					pathBuilder.append(childContext.getChild().getName().toString());
-					if (childContext.getContextName() != null) {
-						pathBuilder.append(childContext.getContextName());
-					}
-					pathBuilder.append(SEPARATOR);
-				}
-			}
-		}
-		else {
+	protected AttributeMappingKey getAttributeMappingKey(TypeDefinition owningType,
+			String mappingName, List<ChildContext> propertyPath) {
+		if (owningType == null) {
 			throw new IllegalArgumentException("Could not find feature type owning property");
 		}
 
-		return pathBuilder.toString().hashCode();
+		if (propertyPath == null || propertyPath.isEmpty()) {
+			// each attribute mapping without a path is distinct
+			return AttributeMappingKey.unique(owningType.getName(), mappingName);
+		}
+		return AttributeMappingKey.forPath(owningType.getName(), mappingName, propertyPath);
 	}
 }
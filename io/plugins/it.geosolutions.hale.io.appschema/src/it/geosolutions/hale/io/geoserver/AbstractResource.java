@@ -17,13 +17,13 @@ package it.geosolutions.hale.io.geoserver;
 
 import it.geosolutions.hale.io.geoserver.template.Templates;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -31,6 +31,8 @@ import java.util.Set;
 
 import org.apache.http.entity.ContentType;
 
+import com.google.common.io.ByteStreams;
+
 /**
  * Base class for classes representing GeoServer resources.
  * 
@@ -126,23 +128,20 @@ public abstract class AbstractResource implements Resource {
 			}
 		}
 
+		if (templateLocation() != null && !templateLocation().isEmpty()) {
+			// merge the template straight into the output stream
+			Templates.getInstance().mergeTemplate(templateLocation(), this.attributes, out);
+			return;
+		}
+
 		InputStream resourceStream = locateResource();
 		if (resourceStream != null) {
-			BufferedInputStream input = new BufferedInputStream(resourceStream);
-			BufferedOutputStream output = new BufferedOutputStream(out);
 			try {
-
-				for (int b = input.read(); b >= 0; b = input.read()) {
-					output.write(b);
-				}
+				ByteStreams.copy(resourceStream, out);
+				out.flush();
 			} finally {
 				try {
-					input.close();
-				} catch (IOException e) {
-					// ignore exception on close
-				}
-				try {
-					output.close();
+					resourceStream.close();
 				} catch (IOException e) {
 					// ignore exception on close
 				}
@@ -151,6 +150,28 @@ public abstract class AbstractResource implements Resource {
 
 	}
 
+	/**
+	 * @see it.geosolutions.hale.io.geoserver.Resource#writeTo(java.nio.channels.WritableByteChannel)
+	 */
+	@Override
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		// the stream returned by Channels.newOutputStream is unbuffered, but
+		// both template merging and stream copying write in blocks; closing
+		// it would close the channel
+		write(Channels.newOutputStream(channel));
+	}
+
+	/**
+	 * Template based resources are merged anew on every write, so they are
+	 * repeatable; resources read from an {@link InputStream} are not.
+	 * 
+	 * @see it.geosolutions.hale.io.geoserver.Resource#isRepeatable()
+	 */
+	@Override
+	public boolean isRepeatable() {
+		return templateLocation() != null && !templateLocation().isEmpty();
+	}
+
 	/**
 	 * Grabs an input stream from which resource content can be read.
 	 * 
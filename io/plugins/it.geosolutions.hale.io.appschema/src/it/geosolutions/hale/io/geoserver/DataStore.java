@@ -15,10 +15,17 @@
 
 package it.geosolutions.hale.io.geoserver;
 
+import it.geosolutions.hale.io.appschema.AppSchemaIO;
+
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
 /**
  * Abstract class representing a generic datastore resource.
  * 
@@ -42,6 +49,14 @@ public abstract class DataStore extends AbstractResource {
 	 * "Connection parameters" attribute.
 	 */
 	public static final String CONNECTION_PARAMS = "connectionParameters";
+	/**
+	 * "Metadata" attribute, i.e. a map of custom key / value pairs.
+	 */
+	public static final String METADATA = "metadata";
+
+	private static final String ELEMENT_METADATA = "metadata";
+	private static final String ELEMENT_ENTRY = "entry";
+	private static final String ATTRIBUTE_KEY = "key";
 
 	private static final String TEMPLATE_LOCATION = "/it/geosolutions/hale/io/geoserver/template/data/datastore-template.vm";
 
@@ -52,6 +67,7 @@ public abstract class DataStore extends AbstractResource {
 		allowedAttributes.add(NAME);
 		allowedAttributes.add(WORKSPACE_ID);
 		allowedAttributes.add(CONNECTION_PARAMS);
+		allowedAttributes.add(METADATA);
 	}
 
 	/**
@@ -96,4 +112,43 @@ public abstract class DataStore extends AbstractResource {
 	public Map<String, String> getConnectionParameters() {
 		return (Map<String, String>) getAttribute(CONNECTION_PARAMS);
 	}
+
+	/**
+	 * Returns the datastore metadata.
+	 * 
+	 * @return the metadata
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, String> getMetadata() {
+		return (Map<String, String>) getAttribute(METADATA);
+	}
+
+	/**
+	 * Parses the metadata entries of the datastore described by the provided
+	 * document, i.e. the response to a
+	 * <code>GET /rest/workspaces/{ws}/datastores/{ds}</code> request.
+	 * 
+	 * @param doc document from where to extract the datastore metadata
+	 * @return the metadata entries found in the document
+	 */
+	public static Map<String, String> metadataFromDocument(Document doc) {
+		Map<String, String> metadata = new LinkedHashMap<String, String>();
+		if (doc == null || doc.getDocumentElement() == null) {
+			return metadata;
+		}
+
+		Element metadataEl = AppSchemaIO.getFirstElementByTagName(doc.getDocumentElement(),
+				ELEMENT_METADATA);
+		if (metadataEl != null) {
+			NodeList entryNodes = metadataEl.getElementsByTagName(ELEMENT_ENTRY);
+			for (int i = 0; i < entryNodes.getLength(); i++) {
+				Element entryEl = (Element) entryNodes.item(i);
+				if (entryEl.hasAttribute(ATTRIBUTE_KEY)) {
+					metadata.put(entryEl.getAttribute(ATTRIBUTE_KEY), entryEl.getTextContent());
+				}
+			}
+		}
+
+		return metadata;
+	}
 }
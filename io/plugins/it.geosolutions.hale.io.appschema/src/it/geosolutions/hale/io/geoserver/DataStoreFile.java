@@ -15,7 +15,9 @@
 
 package it.geosolutions.hale.io.geoserver;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -50,6 +52,7 @@ public class DataStoreFile extends AbstractResource {
 	}
 
 	private final InputStream resourceStream;
+	private final ContentWriter contentWriter;
 	private final ContentType contentType;
 
 	/**
@@ -58,8 +61,7 @@ public class DataStoreFile extends AbstractResource {
 	 * @param resourceStream the input stream providing the file contents
 	 */
 	public DataStoreFile(InputStream resourceStream) {
-		this.resourceStream = resourceStream;
-		this.contentType = DEF_CONTENT_TYPE;
+		this(resourceStream, DEF_CONTENT_TYPE);
 	}
 
 	/**
@@ -70,6 +72,28 @@ public class DataStoreFile extends AbstractResource {
 	 */
 	public DataStoreFile(InputStream resourceStream, ContentType contentType) {
 		this.resourceStream = resourceStream;
+		this.contentWriter = null;
+		this.contentType = contentType;
+	}
+
+	/**
+	 * Constructor for files whose contents are produced on the fly, every time
+	 * the resource is written.
+	 * 
+	 * <p>
+	 * Contrary to a stream-based file, the contents are never buffered as a
+	 * whole and the resource can be written multiple times.
+	 * </p>
+	 * 
+	 * @param contentWriter the writer producing the file contents
+	 * @param contentType the content type
+	 */
+	public DataStoreFile(ContentWriter contentWriter, ContentType contentType) {
+		if (contentWriter == null) {
+			throw new IllegalArgumentException("contentWriter must be set");
+		}
+		this.resourceStream = null;
+		this.contentWriter = contentWriter;
 		this.contentType = contentType;
 	}
 
@@ -86,7 +110,32 @@ public class DataStoreFile extends AbstractResource {
 	 */
 	@Override
 	public String name() {
-		return resourceStream.toString();
+		return (resourceStream != null) ? resourceStream.toString() : contentWriter.toString();
+	}
+
+	/**
+	 * Files whose contents are produced by a {@link ContentWriter} are
+	 * repeatable, stream-based files are not.
+	 * 
+	 * @see it.geosolutions.hale.io.geoserver.AbstractResource#isRepeatable()
+	 */
+	@Override
+	public boolean isRepeatable() {
+		return contentWriter != null;
+	}
+
+	/**
+	 * @see it.geosolutions.hale.io.geoserver.AbstractResource#write(java.io.OutputStream)
+	 */
+	@Override
+	public void write(OutputStream out) throws IOException {
+		if (contentWriter != null) {
+			contentWriter.writeTo(out);
+			out.flush();
+		}
+		else {
+			super.write(out);
+		}
 	}
 
 	/**
@@ -105,6 +154,22 @@ public class DataStoreFile extends AbstractResource {
 		return allowedAttributes;
 	}
 
+	/**
+	 * Produces the contents of a datastore file.
+	 */
+	public static interface ContentWriter {
+
+		/**
+		 * Write the file contents to the provided output stream, without
+		 * closing it.
+		 * 
+		 * @param out the output stream to write to
+		 * @throws IOException if an I/O error occurs
+		 */
+		public void writeTo(OutputStream out) throws IOException;
+
+	}
+
 	/**
 	 * Enumeration listing the supported datastore file types.
 	 * 
@@ -15,9 +15,16 @@
 
 package it.geosolutions.hale.io.geoserver;
 
+import it.geosolutions.hale.io.appschema.AppSchemaIO;
+
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
 /**
  * Class representing a feature type resource.
  * 
@@ -42,7 +49,11 @@ public class FeatureType extends AbstractResource {
 	 */
 	public static final String DATASTORE_ID = "dataStoreId";
 
+	private static final String ELEMENT_FEATURE_TYPE = "featureType";
+	private static final String ELEMENT_NAME = "name";
+
 	private static final String TEMPLATE_LOCATION = "/it/geosolutions/hale/io/geoserver/template/data/featuretype-template.vm";
+	private static final String CREATE_TEMPLATE_LOCATION = "/it/geosolutions/hale/io/geoserver/template/data/featuretype-create-template.vm";
 
 	private static final Set<String> allowedAttributes = new HashSet<String>();
 
@@ -53,12 +64,32 @@ public class FeatureType extends AbstractResource {
 		allowedAttributes.add(DATASTORE_ID);
 	}
 
+	private final boolean nameOnly;
+
 	/**
 	 * Constructor.
 	 * 
 	 * @param name the feature type name
 	 */
 	public FeatureType(String name) {
+		this(name, false);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * <p>
+	 * A name-only feature type is written with just its name and native name,
+	 * e.g. to create it in an existing datastore, letting GeoServer compute
+	 * all other properties (native CRS, bounding boxes, title...) from the
+	 * data.
+	 * </p>
+	 * 
+	 * @param name the feature type name
+	 * @param nameOnly whether only the name should be written
+	 */
+	public FeatureType(String name, boolean nameOnly) {
+		this.nameOnly = nameOnly;
 		setAttribute(NAME, name);
 	}
 
@@ -83,6 +114,34 @@ public class FeatureType extends AbstractResource {
 	 */
 	@Override
 	protected String templateLocation() {
-		return TEMPLATE_LOCATION;
+		return (nameOnly) ? CREATE_TEMPLATE_LOCATION : TEMPLATE_LOCATION;
+	}
+
+	/**
+	 * Parses the names of the feature types listed in the provided document,
+	 * i.e. the response to a
+	 * <code>GET /rest/workspaces/{ws}/datastores/{ds}/featuretypes</code>
+	 * request.
+	 * 
+	 * @param doc document from where to extract the feature type names
+	 * @return the feature type names found in the document
+	 */
+	public static Set<String> namesFromListDocument(Document doc) {
+		Set<String> names = new LinkedHashSet<String>();
+		if (doc == null) {
+			return names;
+		}
+
+		NodeList featureTypeNodes = doc.getElementsByTagName(ELEMENT_FEATURE_TYPE);
+		for (int i = 0; i < featureTypeNodes.getLength(); i++) {
+			Element featureTypeEl = (Element) featureTypeNodes.item(i);
+			Element nameEl = AppSchemaIO.getFirstElementByTagName(featureTypeEl, ELEMENT_NAME);
+			if (nameEl != null && nameEl.getTextContent() != null
+					&& !nameEl.getTextContent().trim().isEmpty()) {
+				names.add(nameEl.getTextContent().trim());
+			}
+		}
+
+		return names;
 	}
 }
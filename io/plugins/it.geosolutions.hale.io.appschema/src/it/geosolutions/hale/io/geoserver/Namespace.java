@@ -19,6 +19,7 @@ import it.geosolutions.hale.io.appschema.AppSchemaIO;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.w3c.dom.Document;
@@ -65,6 +66,7 @@ public class Namespace extends AbstractResource {
 	private static final String ELEMENT_PREFIX = "prefix";
 	private static final String ELEMENT_URI = "uri";
 	private static final String ELEMENT_ISOLATED = "isolated";
+	private static final String ELEMENT_NAME = "name";
 
 	/**
 	 * Constructor.
@@ -148,4 +150,30 @@ public class Namespace extends AbstractResource {
 
 		return namespace;
 	}
+
+	/**
+	 * Parses the prefixes of the namespaces listed in the provided document,
+	 * i.e. the response to a <code>GET /rest/namespaces</code> request.
+	 * 
+	 * @param doc document from where to extract the namespace prefixes
+	 * @return the namespace prefixes found in the document
+	 */
+	public static Set<String> prefixesFromListDocument(Document doc) {
+		Set<String> prefixes = new LinkedHashSet<String>();
+		if (doc == null) {
+			return prefixes;
+		}
+
+		NodeList namespaceNodes = doc.getElementsByTagName(ELEMENT_NAMESPACE);
+		for (int i = 0; i < namespaceNodes.getLength(); i++) {
+			Element namespaceEl = (Element) namespaceNodes.item(i);
+			Element nameEl = AppSchemaIO.getFirstElementByTagName(namespaceEl, ELEMENT_NAME);
+			if (nameEl != null && nameEl.getTextContent() != null
+					&& !nameEl.getTextContent().trim().isEmpty()) {
+				prefixes.add(nameEl.getTextContent().trim());
+			}
+		}
+
+		return prefixes;
+	}
 }
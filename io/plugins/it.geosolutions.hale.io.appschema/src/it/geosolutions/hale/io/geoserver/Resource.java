@@ -18,6 +18,7 @@ package it.geosolutions.hale.io.geoserver;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 
 import org.apache.http.entity.ContentType;
 
@@ -54,11 +55,35 @@ public interface Resource {
 	/**
 	 * Write the resource content to the provided output stream.
 	 * 
+	 * <p>
+	 * The stream is flushed, but not closed.
+	 * </p>
+	 * 
 	 * @param out the output stream to write to
 	 * @throws IOException if an I/O error occurs
 	 */
 	public void write(OutputStream out) throws IOException;
 
+	/**
+	 * Write the resource content to the provided channel.
+	 * 
+	 * <p>
+	 * The channel is not closed.
+	 * </p>
+	 * 
+	 * @param channel the channel to write to
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void writeTo(WritableByteChannel channel) throws IOException;
+
+	/**
+	 * Tells whether the resource content can be written more than once, e.g.
+	 * to retry a failed request.
+	 * 
+	 * @return <code>true</code> if the resource can be written repeatedly
+	 */
+	public boolean isRepeatable();
+
 	/**
 	 * @return an input stream from which the resource content can be read
 	 * @throws IOException if an I/O error occurs
@@ -48,6 +48,11 @@ public class ResourceBuilder {
 		return new ResourceBuilder(new DataStoreFile(stream, contentType));
 	}
 
+	public static ResourceBuilder dataStoreFile(DataStoreFile.ContentWriter contentWriter,
+			ContentType contentType) {
+		return new ResourceBuilder(new DataStoreFile(contentWriter, contentType));
+	}
+
 	public static <T extends DataStore> ResourceBuilder dataStore(String name,
 			Class<T> dataStoreType) {
 		if (dataStoreType == null) {
@@ -71,6 +76,10 @@ public class ResourceBuilder {
 		return new ResourceBuilder(new FeatureType(name));
 	}
 
+	public static ResourceBuilder featureType(String name, boolean nameOnly) {
+		return new ResourceBuilder(new FeatureType(name, nameOnly));
+	}
+
 	public static ResourceBuilder layer(String name) {
 		return new ResourceBuilder(new Layer(name));
 	}
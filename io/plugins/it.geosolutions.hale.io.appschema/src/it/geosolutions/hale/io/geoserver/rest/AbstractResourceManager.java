@@ -18,6 +18,7 @@ package it.geosolutions.hale.io.geoserver.rest;
 import it.geosolutions.hale.io.geoserver.Resource;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -35,8 +36,10 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpResponseException;
@@ -45,12 +48,17 @@ import org.apache.http.client.fluent.Executor;
 import org.apache.http.client.fluent.Request;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentProducer;
 import org.apache.http.entity.ContentType;
+import org.apache.http.entity.EntityTemplate;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 import com.google.common.base.Joiner;
 
+import de.fhg.igd.slf4jplus.ALogger;
+import de.fhg.igd.slf4jplus.ALoggerFactory;
+
 /**
  * Base class for classes representing GeoServer resource managers.
  * 
@@ -61,6 +69,12 @@ import com.google.common.base.Joiner;
  * explicitly set by calling the {@link #setResource(Resource)} method.
  * </p>
  * 
+ * <p>
+ * If a {@link ResponseCache} is set, documents returned by {@link #list()} and
+ * {@link #read(Map)} are cached and revalidated with conditional requests, so
+ * that unchanged documents are neither downloaded nor parsed again.
+ * </p>
+ * 
  * @author Stefano Costa, GeoSolutions
  * @param <T> the type of the managed resource
  */
@@ -84,7 +98,12 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 	 */
 	protected T resource;
 
+	private static final ALogger log = ALoggerFactory.getLogger(AbstractResourceManager.class);
+
 	private final Executor executor;
+	private RetryPolicy retryPolicy;
+	private ResponseCache responseCache;
+	private String user;
 
 	/**
 	 * Constructor.
@@ -102,15 +121,74 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 	 * @param geoserverUrl the base GeoServer URL
 	 */
 	public AbstractResourceManager(URL geoserverUrl) {
+		this(geoserverUrl, null);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * <p>
+	 * If a session is provided, requests are executed using its pooled HTTP
+	 * client, its retry policy and its response cache; otherwise, a new client
+	 * is created for this manager, failed requests are not retried and
+	 * responses are not cached.
+	 * </p>
+	 * 
+	 * @param geoserverUrl the base GeoServer URL
+	 * @param session the REST session to use, may be <code>null</code>
+	 */
+	public AbstractResourceManager(URL geoserverUrl, RestSession session) {
 		if (geoserverUrl == null || geoserverUrl.getQuery() != null) {
 			throw new IllegalArgumentException(
 					"GeoServer base URL must not be null and must not contain a query part");
 		}
 		this.geoserverUrl = geoserverUrl;
-		this.executor = Executor.newInstance();
+		this.executor = (session != null) ? session.newExecutor() : Executor.newInstance();
+		this.retryPolicy = (session != null) ? session.getRetryPolicy() : RetryPolicy.NONE;
+		this.responseCache = (session != null) ? session.getResponseCache() : null;
+	}
+
+	/**
+	 * @return the policy used to retry failed idempotent requests
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * Set the policy used to retry failed idempotent requests, i.e. GET, PUT
+	 * and DELETE requests. POST requests are never retried.
+	 * 
+	 * @param retryPolicy the retry policy, {@link RetryPolicy#NONE} if
+	 *            <code>null</code>
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = (retryPolicy != null) ? retryPolicy : RetryPolicy.NONE;
+	}
+
+	/**
+	 * @return the cache of the documents read by this manager, may be
+	 *         <code>null</code>
+	 */
+	public ResponseCache getResponseCache() {
+		return responseCache;
+	}
+
+	/**
+	 * Set the cache of the documents read by this manager.
+	 * 
+	 * @param responseCache the response cache, if <code>null</code> responses
+	 *            are not cached
+	 */
+	public void setResponseCache(ResponseCache responseCache) {
+		this.responseCache = responseCache;
 	}
 
 	/**
+	 * Credentials are sent preemptively using basic authentication, so that
+	 * request bodies are not sent once to be rejected with a
+	 * <code>401 Unauthorized</code> challenge, and then again.
+	 * 
 	 * @see it.geosolutions.hale.io.geoserver.rest.ResourceManager#setCredentials(java.lang.String,
 	 *      java.lang.String)
 	 */
@@ -118,7 +196,8 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 	public void setCredentials(String user, String password) {
 		HttpHost geoserverHost = new HttpHost(geoserverUrl.getHost(), geoserverUrl.getPort(),
 				geoserverUrl.getProtocol());
-		executor.auth(geoserverHost, user, password);
+		executor.auth(geoserverHost, user, password).authPreemptive(geoserverHost);
+		this.user = user;
 	}
 
 	/**
@@ -126,12 +205,8 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 	 */
 	@Override
 	public Document list() {
-		try {
-			return executor.execute(Request.Get(getResourceListURL())).handleResponse(
-					new XmlResponseHandler());
-		} catch (Exception e) {
-			throw new ResourceException(e);
-		}
+		URI requestUri = buildRequestUri(getResourceListURL(), null);
+		return executeWithRetry(true, attempt -> executeGet(requestUri));
 	}
 
 	/**
@@ -149,33 +224,29 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 	public boolean exists() {
 		checkResourceSet();
 
-		try {
-			return executor.execute(Request.Get(getResourceURL())).handleResponse(
-					new ResponseHandler<Boolean>() {
-
-						/**
-						 * @see org.apache.http.client.ResponseHandler#handleResponse(org.apache.http.HttpResponse)
-						 */
-						@Override
-						public Boolean handleResponse(HttpResponse response)
-								throws ClientProtocolException, IOException {
-							int statusCode = response.getStatusLine().getStatusCode();
-							String reason = response.getStatusLine().getReasonPhrase();
-
-							switch (statusCode) {
-							case 200:
-								return true;
-							case 404:
-								return false;
-							default:
-								throw new HttpResponseException(statusCode, reason);
-							}
+		return executeWithRetry(true, attempt -> executor.execute(Request.Get(getResourceURL()))
+				.handleResponse(new ResponseHandler<Boolean>() {
+
+					/**
+					 * @see org.apache.http.client.ResponseHandler#handleResponse(org.apache.http.HttpResponse)
+					 */
+					@Override
+					public Boolean handleResponse(HttpResponse response)
+							throws ClientProtocolException, IOException {
+						int statusCode = response.getStatusLine().getStatusCode();
+						String reason = response.getStatusLine().getReasonPhrase();
+
+						switch (statusCode) {
+						case 200:
+							return true;
+						case 404:
+							return false;
+						default:
+							throw new HttpResponseException(statusCode, reason);
 						}
+					}
 
-					});
-		} catch (Exception e) {
-			throw new ResourceException(e);
-		}
+				}));
 	}
 
 	/**
@@ -193,13 +264,8 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 	public Document read(Map<String, String> parameters) {
 		checkResourceSet();
 
-		try {
-			URI requestUri = buildRequestUri(getResourceURL(), parameters);
-			return executor.execute(Request.Get(requestUri)).handleResponse(
-					new XmlResponseHandler());
-		} catch (Exception e) {
-			throw new ResourceException(e);
-		}
+		URI requestUri = buildRequestUri(getResourceURL(), parameters);
+		return executeWithRetry(true, attempt -> executeGet(requestUri));
 	}
 
 	/**
@@ -218,10 +284,9 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 		checkResourceSet();
 
 		try {
-			URI requestUri = buildRequestUri(getResourceListURL(), parameters);
+			URI requestUri = toRequestUri(getResourceListURL(), parameters);
 
-			ByteArrayEntity entity = new ByteArrayEntity(resource.asByteArray());
-			entity.setContentType(resource.contentType().getMimeType());
+			HttpEntity entity = createEntity();
 
 			return executor.execute(Request.Post(requestUri).body(entity)).handleResponse(
 					new ResponseHandler<URL>() {
@@ -266,17 +331,13 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 	public void update(Map<String, String> parameters) {
 		checkResourceSet();
 
-		try {
-			URI requestUri = buildRequestUri(getResourceURL(), parameters);
-
-			ByteArrayEntity entity = new ByteArrayEntity(resource.asByteArray());
-			entity.setContentType(resource.contentType().getMimeType());
+		URI requestUri = buildRequestUri(getResourceURL(), parameters);
+		HttpEntity entity = createEntity();
 
-			executor.execute(Request.Put(requestUri).body(entity)).handleResponse(
-					new EmptyResponseHandler());
-		} catch (Exception e) {
-			throw new ResourceException(e);
-		}
+		// the body must be written again on retry
+		executeWithRetry(entity.isRepeatable(), attempt -> executor.execute(
+				Request.Put(requestUri).body(entity)).handleResponse(
+				new EmptyResponseHandler(false)));
 	}
 
 	/**
@@ -294,12 +355,80 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 	public void delete(Map<String, String> parameters) {
 		checkResourceSet();
 
-		try {
-			URI requestUri = buildRequestUri(getResourceURL(), parameters);
-			executor.execute(Request.Delete(requestUri)).handleResponse(new EmptyResponseHandler());
-		} catch (Exception e) {
-			throw new ResourceException(e);
+		URI requestUri = buildRequestUri(getResourceURL(), parameters);
+		// a previous attempt may have gone through even though its response
+		// was lost: a missing resource on retry means it was deleted
+		executeWithRetry(true, attempt -> executor.execute(Request.Delete(requestUri))
+				.handleResponse(new EmptyResponseHandler(attempt > 1)));
+	}
+
+	/**
+	 * Create a request entity for the managed resource's contents.
+	 * 
+	 * <p>
+	 * The contents of repeatable resources are written straight to the
+	 * connection using chunked transfer encoding, so they are never buffered
+	 * as a whole. The contents of other resources (e.g. stream-based files)
+	 * can only be read once, so they are buffered, to be able to send them
+	 * again if needed.
+	 * </p>
+	 * 
+	 * @return the request entity
+	 */
+	protected HttpEntity createEntity() {
+		if (!resource.isRepeatable()) {
+			try {
+				return new ByteArrayEntity(resource.asByteArray(), resource.contentType());
+			} catch (IOException e) {
+				throw new ResourceException(e);
+			}
+		}
+
+		EntityTemplate entity = new EntityTemplate(new ContentProducer() {
+
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				resource.write(out);
+			}
+		}) {
+
+			@Override
+			public boolean isRepeatable() {
+				return true;
+			}
+		};
+		entity.setContentType(resource.contentType().getMimeType());
+		entity.setChunked(true);
+
+		return entity;
+	}
+
+	/**
+	 * Execute a GET request returning an XML document. If a cached copy of the
+	 * document is available, the request is made conditional on it.
+	 * 
+	 * @param requestUri the request URI
+	 * @return the (possibly cached) document
+	 * @throws IOException if the request fails
+	 */
+	private Document executeGet(URI requestUri) throws IOException {
+		ResponseCache cache = responseCache;
+		// documents may differ between users
+		String cacheKey = requestUri + " " + StringUtils.defaultString(user);
+		ResponseCache.Entry cached = (cache != null) ? cache.get(cacheKey) : null;
+
+		Request request = Request.Get(requestUri);
+		if (cached != null) {
+			if (cached.getETag() != null) {
+				request.addHeader(HttpHeaders.IF_NONE_MATCH, cached.getETag());
+			}
+			if (cached.getLastModified() != null) {
+				request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+			}
 		}
+
+		return executor.execute(request).handleResponse(
+				new XmlResponseHandler(cache, cacheKey, cached));
 	}
 
 	private void checkResourceSet() {
@@ -308,7 +437,49 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 		}
 	}
 
-	private URI buildRequestUri(String url, Map<String, String> parameters)
+	/**
+	 * Execute a request, retrying it according to the retry policy if it is
+	 * idempotent.
+	 * 
+	 * @param idempotent whether the request can be safely repeated
+	 * @param request the request, executed once per attempt
+	 * @return the request result
+	 * @throws ResourceException if the request fails, after all allowed
+	 *             attempts
+	 */
+	private <R> R executeWithRetry(boolean idempotent, RequestAttempt<R> request) {
+		int attempt = 0;
+		while (true) {
+			attempt++;
+			try {
+				return request.execute(attempt);
+			} catch (Exception e) {
+				if (!idempotent || !retryPolicy.shouldRetry(e, attempt)) {
+					throw new ResourceException(e);
+				}
+				long delay = retryPolicy.getDelay(attempt);
+				log.warn("Request to " + geoserverUrl + " failed (attempt " + attempt + " of "
+						+ retryPolicy.getMaxAttempts() + "), retrying in " + delay + " ms: "
+						+ e.getMessage());
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw new ResourceException(e);
+				}
+			}
+		}
+	}
+
+	private URI buildRequestUri(String url, Map<String, String> parameters) {
+		try {
+			return toRequestUri(url, parameters);
+		} catch (URISyntaxException e) {
+			throw new ResourceException(e);
+		}
+	}
+
+	private URI toRequestUri(String url, Map<String, String> parameters)
 			throws URISyntaxException {
 
 		URIBuilder uriBuilder = new URIBuilder(url);
@@ -393,10 +564,33 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 	 * Response handler that parses the response body into an XML
 	 * {@link Document}.
 	 * 
+	 * <p>
+	 * If a cache is provided, the parsed document is cached along with its
+	 * validators, and the cached document is returned in case of a
+	 * <code>304 Not Modified</code> response.
+	 * </p>
+	 * 
 	 * @author Stefano Costa, GeoSolutions
 	 */
 	private class XmlResponseHandler implements ResponseHandler<Document> {
 
+		private final ResponseCache cache;
+		private final String cacheKey;
+		private final ResponseCache.Entry cached;
+
+		/**
+		 * @param cache the response cache, may be <code>null</code>
+		 * @param cacheKey the key of the response in the cache
+		 * @param cached the cached entry the request was conditional on, may
+		 *            be <code>null</code>
+		 */
+		private XmlResponseHandler(ResponseCache cache, String cacheKey,
+				ResponseCache.Entry cached) {
+			this.cache = cache;
+			this.cacheKey = cacheKey;
+			this.cached = cached;
+		}
+
 		/**
 		 * @see org.apache.http.client.ResponseHandler#handleResponse(org.apache.http.HttpResponse)
 		 */
@@ -405,6 +599,10 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 				IOException {
 			StatusLine statusLine = response.getStatusLine();
 			HttpEntity entity = response.getEntity();
+			if (statusLine.getStatusCode() == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+				cache.recordHit();
+				return cached.getDocument();
+			}
 			if (statusLine.getStatusCode() >= 300) {
 				throw new HttpResponseException(statusLine.getStatusCode(),
 						statusLine.getReasonPhrase());
@@ -423,7 +621,12 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 				if (charset == null) {
 					charset = Charset.forName("UTF-8");
 				}
-				return docBuilder.parse(entity.getContent());
+				Document document = docBuilder.parse(entity.getContent());
+				if (cache != null) {
+					cache.put(cacheKey, getHeaderValue(response, HttpHeaders.ETAG),
+							getHeaderValue(response, HttpHeaders.LAST_MODIFIED), document);
+				}
+				return document;
 			} catch (ParserConfigurationException ex) {
 				throw new IllegalStateException(ex);
 			} catch (SAXException ex) {
@@ -433,6 +636,11 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 
 	}
 
+	private String getHeaderValue(HttpResponse response, String name) {
+		Header header = response.getFirstHeader(name);
+		return (header != null) ? header.getValue() : null;
+	}
+
 	private boolean isXml(ContentType contentType) {
 		if (contentType == null) {
 			return false;
@@ -451,6 +659,16 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 	 */
 	private class EmptyResponseHandler implements ResponseHandler<Void> {
 
+		private final boolean notFoundIsSuccess;
+
+		/**
+		 * @param notFoundIsSuccess whether a 404 status code should be
+		 *            considered a success
+		 */
+		private EmptyResponseHandler(boolean notFoundIsSuccess) {
+			this.notFoundIsSuccess = notFoundIsSuccess;
+		}
+
 		/**
 		 * @see org.apache.http.client.ResponseHandler#handleResponse(org.apache.http.HttpResponse)
 		 */
@@ -458,6 +676,9 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 		public Void handleResponse(HttpResponse response) throws ClientProtocolException,
 				IOException {
 			StatusLine statusLine = response.getStatusLine();
+			if (statusLine.getStatusCode() == 404 && notFoundIsSuccess) {
+				return null;
+			}
 			if (statusLine.getStatusCode() >= 300) {
 				throw new HttpResponseException(statusLine.getStatusCode(),
 						statusLine.getReasonPhrase());
@@ -466,4 +687,20 @@ public abstract class AbstractResourceManager<T extends Resource> implements Res
 		}
 
 	}
+
+	/**
+	 * A single attempt at executing a request.
+	 * 
+	 * @param <R> the request result type
+	 */
+	@FunctionalInterface
+	private interface RequestAttempt<R> {
+
+		/**
+		 * @param attempt the attempt number, starting from 1
+		 * @return the request result
+		 * @throws Exception if the request fails
+		 */
+		R execute(int attempt) throws Exception;
+	}
 }
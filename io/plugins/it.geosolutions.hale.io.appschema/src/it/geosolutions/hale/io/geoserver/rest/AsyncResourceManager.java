@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.geoserver.rest;
+
+import it.geosolutions.hale.io.geoserver.Resource;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.w3c.dom.Document;
+
+/**
+ * Asynchronous companion of {@link ResourceManager}.
+ * 
+ * <p>
+ * Contrary to resource managers, which hold the managed resource as state,
+ * every operation takes the resource it applies to as argument and uses a
+ * manager of its own, obtained from the provided factory. An instance can
+ * therefore be shared among threads and any number of requests can be in
+ * flight at the same time.
+ * </p>
+ * 
+ * <p>
+ * Requests are executed on the provided executor; the number of requests
+ * actually running concurrently is bounded by its threads and by the
+ * connections available to the managers (see {@link RestSession}). Failures
+ * complete the returned futures exceptionally with a
+ * {@link ResourceException}.
+ * </p>
+ * 
+ * @param <T> the type of the managed resources
+ */
+public class AsyncResourceManager<T extends Resource> {
+
+	private final Supplier<? extends ResourceManager<T>> managerFactory;
+	private final Executor executor;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param managerFactory factory of the managers executing the requests,
+	 *            called once per request; managers must be configured, e.g.
+	 *            with credentials, by the factory, and should be cheap to
+	 *            create
+	 * @param executor the executor running the requests
+	 */
+	public AsyncResourceManager(Supplier<? extends ResourceManager<T>> managerFactory,
+			Executor executor) {
+		if (managerFactory == null || executor == null) {
+			throw new IllegalArgumentException("managerFactory and executor must be set");
+		}
+		this.managerFactory = managerFactory;
+		this.executor = executor;
+	}
+
+	/**
+	 * @return the future list of resources
+	 * @see ResourceManager#list()
+	 */
+	public CompletableFuture<Document> listAsync() {
+		return submit(null, mgr -> mgr.list());
+	}
+
+	/**
+	 * @param resource the resource
+	 * @return the future result of the check
+	 * @see ResourceManager#exists()
+	 */
+	public CompletableFuture<Boolean> existsAsync(T resource) {
+		return submit(checkResource(resource), mgr -> mgr.exists());
+	}
+
+	/**
+	 * @param resource the resource
+	 * @param parameters the request parameters, may be <code>null</code>
+	 * @return the future resource representation
+	 * @see ResourceManager#read(Map)
+	 */
+	public CompletableFuture<Document> readAsync(T resource, Map<String, String> parameters) {
+		return submit(checkResource(resource), mgr -> mgr.read(parameters));
+	}
+
+	/**
+	 * @param resource the resource
+	 * @param parameters the request parameters, may be <code>null</code>
+	 * @return the future URL of the created resource, may complete with
+	 *         <code>null</code>
+	 * @see ResourceManager#create(Map)
+	 */
+	public CompletableFuture<URL> createAsync(T resource, Map<String, String> parameters) {
+		return submit(checkResource(resource), mgr -> mgr.create(parameters));
+	}
+
+	/**
+	 * @param resource the resource
+	 * @param parameters the request parameters, may be <code>null</code>
+	 * @return a future completed when the resource is updated
+	 * @see ResourceManager#update(Map)
+	 */
+	public CompletableFuture<Void> updateAsync(T resource, Map<String, String> parameters) {
+		return submit(checkResource(resource), mgr -> {
+			mgr.update(parameters);
+			return null;
+		});
+	}
+
+	/**
+	 * @param resource the resource
+	 * @param parameters the request parameters, may be <code>null</code>
+	 * @return a future completed when the resource is deleted
+	 * @see ResourceManager#delete(Map)
+	 */
+	public CompletableFuture<Void> deleteAsync(T resource, Map<String, String> parameters) {
+		return submit(checkResource(resource), mgr -> {
+			mgr.delete(parameters);
+			return null;
+		});
+	}
+
+	private T checkResource(T resource) {
+		if (resource == null) {
+			throw new IllegalArgumentException("resource must be set");
+		}
+		return resource;
+	}
+
+	private <R> CompletableFuture<R> submit(T resource,
+			Function<ResourceManager<T>, R> operation) {
+		return CompletableFuture.supplyAsync(() -> {
+			// managers are stateful, use one per request
+			ResourceManager<T> mgr = managerFactory.get();
+			if (resource != null) {
+				mgr.setResource(resource);
+			}
+			return operation.apply(mgr);
+		}, executor);
+	}
+
+}
@@ -52,6 +52,16 @@ public class DataStoreFileManager extends AbstractResourceManager<DataStoreFile>
 		super(geoserverUrl);
 	}
 
+	/**
+	 * Constructor.
+	 * 
+	 * @param geoserverUrl the base GeoServer URL
+	 * @param session the REST session to use, may be <code>null</code>
+	 */
+	public DataStoreFileManager(URL geoserverUrl, RestSession session) {
+		super(geoserverUrl, session);
+	}
+
 	/**
 	 * @see it.geosolutions.hale.io.geoserver.rest.AbstractResourceManager#list()
 	 */
@@ -51,6 +51,16 @@ public class DataStoreManager extends AbstractResourceManager<DataStore> {
 		super(geoserverUrl);
 	}
 
+	/**
+	 * Constructor.
+	 * 
+	 * @param geoserverUrl the base GeoServer URL
+	 * @param session the REST session to use, may be <code>null</code>
+	 */
+	public DataStoreManager(URL geoserverUrl, RestSession session) {
+		super(geoserverUrl, session);
+	}
+
 	/**
 	 * @see it.geosolutions.hale.io.geoserver.rest.AbstractResourceManager#getResourceListPath()
 	 */
@@ -20,6 +20,7 @@ import it.geosolutions.hale.io.geoserver.FeatureType;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.Set;
 
 import com.google.common.base.Joiner;
 
@@ -52,6 +53,26 @@ public class FeatureTypeManager extends AbstractResourceManager<FeatureType> {
 		super(geoserverUrl);
 	}
 
+	/**
+	 * Constructor.
+	 * 
+	 * @param geoserverUrl the base GeoServer URL
+	 * @param session the REST session to use, may be <code>null</code>
+	 */
+	public FeatureTypeManager(URL geoserverUrl, RestSession session) {
+		super(geoserverUrl, session);
+	}
+
+	/**
+	 * Retrieve the names of all feature types configured in the managed
+	 * workspace and data store, with a single request.
+	 * 
+	 * @return the existing feature type names
+	 */
+	public Set<String> listNames() {
+		return FeatureType.namesFromListDocument(list());
+	}
+
 	/**
 	 * @see it.geosolutions.hale.io.geoserver.rest.AbstractResourceManager#getResourceListPath()
 	 */
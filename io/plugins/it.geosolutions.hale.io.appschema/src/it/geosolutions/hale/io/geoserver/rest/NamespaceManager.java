@@ -20,6 +20,7 @@ import it.geosolutions.hale.io.geoserver.Namespace;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.Set;
 
 import com.google.common.base.Joiner;
 
@@ -49,6 +50,26 @@ public class NamespaceManager extends AbstractResourceManager<Namespace> {
 		super(geoserverUrl);
 	}
 
+	/**
+	 * Constructor.
+	 * 
+	 * @param geoserverUrl the base GeoServer URL
+	 * @param session the REST session to use, may be <code>null</code>
+	 */
+	public NamespaceManager(URL geoserverUrl, RestSession session) {
+		super(geoserverUrl, session);
+	}
+
+	/**
+	 * Retrieve the prefixes of all namespaces defined in GeoServer, with a
+	 * single request.
+	 * 
+	 * @return the existing namespace prefixes
+	 */
+	public Set<String> listPrefixes() {
+		return Namespace.prefixesFromListDocument(list());
+	}
+
 	/**
 	 * @see it.geosolutions.hale.io.geoserver.rest.AbstractResourceManager#getResourceListPath()
 	 */
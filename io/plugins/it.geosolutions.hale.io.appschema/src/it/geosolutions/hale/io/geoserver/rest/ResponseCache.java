@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.geoserver.rest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+
+import com.google.common.io.BaseEncoding;
+
+import de.fhg.igd.slf4jplus.ALogger;
+import de.fhg.igd.slf4jplus.ALoggerFactory;
+
+/**
+ * Cache of the XML documents returned by GeoServer REST reads, along with the
+ * validators (<code>ETag</code> and <code>Last-Modified</code> headers) they
+ * were returned with.
+ * 
+ * <p>
+ * Resource managers use the validators to issue conditional GET requests: if
+ * GeoServer answers <code>304 Not Modified</code>, the cached document is
+ * returned without downloading and parsing the response again. Documents
+ * returned without validators are not cached.
+ * </p>
+ * 
+ * <p>
+ * By default, entries are kept in memory for the lifetime of the cache, i.e.
+ * usually of a {@link RestSession}. If a directory is provided, entries are
+ * also persisted there and reused across sessions.
+ * </p>
+ */
+public class ResponseCache {
+
+	private static final ALogger log = ALoggerFactory.getLogger(ResponseCache.class);
+
+	private static final String PROPERTY_KEY = "key";
+	private static final String PROPERTY_ETAG = "etag";
+	private static final String PROPERTY_LAST_MODIFIED = "lastModified";
+
+	private final File directory;
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+	private final AtomicInteger hitCount = new AtomicInteger();
+
+	/**
+	 * Create an in-memory cache.
+	 */
+	public ResponseCache() {
+		this(null);
+	}
+
+	/**
+	 * Create a cache persisted in the provided directory.
+	 * 
+	 * @param directory the directory where entries are persisted, if
+	 *            <code>null</code> entries are kept in memory only
+	 */
+	public ResponseCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Return the cached entry for the provided key, loading it from disk if
+	 * the cache is persisted.
+	 * 
+	 * @param key the entry key, e.g. the request URI
+	 * @return the cached entry, or <code>null</code> if none is found
+	 */
+	public Entry get(String key) {
+		Entry entry = entries.get(key);
+		if (entry == null && directory != null) {
+			entry = load(key);
+			if (entry != null) {
+				Entry existing = entries.putIfAbsent(key, entry);
+				entry = (existing != null) ? existing : entry;
+			}
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Cache a document, replacing any previous entry with the same key. If
+	 * neither validator is provided, the previous entry is removed.
+	 * 
+	 * @param key the entry key, e.g. the request URI
+	 * @param eTag the value of the <code>ETag</code> header, may be
+	 *            <code>null</code>
+	 * @param lastModified the value of the <code>Last-Modified</code> header,
+	 *            may be <code>null</code>
+	 * @param document the document; a copy is cached, so the caller may
+	 *            modify it afterwards
+	 */
+	public void put(String key, String eTag, String lastModified, Document document) {
+		if (eTag == null && lastModified == null) {
+			remove(key);
+			return;
+		}
+
+		Entry entry = new Entry(eTag, lastModified, (Document) document.cloneNode(true));
+		entries.put(key, entry);
+		if (directory != null) {
+			try {
+				store(key, entry);
+			} catch (Exception e) {
+				// the entry is still cached in memory
+				log.warn("Could not persist cached response of " + key, e);
+			}
+		}
+	}
+
+	/**
+	 * Remove the entry with the provided key.
+	 * 
+	 * @param key the entry key
+	 */
+	public void remove(String key) {
+		entries.remove(key);
+		if (directory != null) {
+			String fileName = fileName(key);
+			new File(directory, fileName + ".properties").delete();
+			new File(directory, fileName + ".xml").delete();
+		}
+	}
+
+	/**
+	 * Record that a cached entry was used in place of a response body.
+	 */
+	void recordHit() {
+		hitCount.incrementAndGet();
+	}
+
+	/**
+	 * @return the number of responses served from the cache so far
+	 */
+	public int getHitCount() {
+		return hitCount.get();
+	}
+
+	private Entry load(String key) {
+		String fileName = fileName(key);
+		File propertiesFile = new File(directory, fileName + ".properties");
+		File documentFile = new File(directory, fileName + ".xml");
+		if (!propertiesFile.isFile() || !documentFile.isFile()) {
+			return null;
+		}
+
+		try {
+			Properties properties = new Properties();
+			try (InputStream in = new FileInputStream(propertiesFile)) {
+				properties.load(in);
+			}
+			if (!key.equals(properties.getProperty(PROPERTY_KEY))) {
+				return null;
+			}
+
+			Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+					.parse(documentFile);
+			return new Entry(properties.getProperty(PROPERTY_ETAG),
+					properties.getProperty(PROPERTY_LAST_MODIFIED), document);
+		} catch (Exception e) {
+			log.warn("Could not load cached response of " + key, e);
+			return null;
+		}
+	}
+
+	private void store(String key, Entry entry) throws Exception {
+		String fileName = fileName(key);
+		directory.mkdirs();
+
+		// the document is written before its validators, so that validators
+		// never refer to a stale document
+		File documentFile = new File(directory, fileName + ".xml");
+		File tmpDocumentFile = new File(directory, fileName + ".xml.tmp");
+		synchronized (entry.document) {
+			TransformerFactory.newInstance().newTransformer()
+					.transform(new DOMSource(entry.document), new StreamResult(tmpDocumentFile));
+		}
+		move(tmpDocumentFile, documentFile);
+
+		Properties properties = new Properties();
+		properties.setProperty(PROPERTY_KEY, key);
+		if (entry.eTag != null) {
+			properties.setProperty(PROPERTY_ETAG, entry.eTag);
+		}
+		if (entry.lastModified != null) {
+			properties.setProperty(PROPERTY_LAST_MODIFIED, entry.lastModified);
+		}
+		File propertiesFile = new File(directory, fileName + ".properties");
+		File tmpPropertiesFile = new File(directory, fileName + ".properties.tmp");
+		try (OutputStream out = new FileOutputStream(tmpPropertiesFile)) {
+			properties.store(out, null);
+		}
+		move(tmpPropertiesFile, propertiesFile);
+	}
+
+	private static void move(File source, File target) throws IOException {
+		Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static String fileName(String key) {
+		// the key may contain characters not allowed in file names
+		try {
+			return BaseEncoding.base16().lowerCase().encode(
+					MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * A cached document, along with its validators.
+	 */
+	public static class Entry {
+
+		private final String eTag;
+		private final String lastModified;
+		private final Document document;
+
+		private Entry(String eTag, String lastModified, Document document) {
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+			this.document = document;
+		}
+
+		/**
+		 * @return the value of the <code>ETag</code> header, may be
+		 *         <code>null</code>
+		 */
+		public String getETag() {
+			return eTag;
+		}
+
+		/**
+		 * @return the value of the <code>Last-Modified</code> header, may be
+		 *         <code>null</code>
+		 */
+		public String getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * @return a copy of the cached document, which the caller may modify
+		 */
+		public Document getDocument() {
+			// DOM implementations are not thread-safe, not even for reading
+			synchronized (document) {
+				return (Document) document.cloneNode(true);
+			}
+		}
+	}
+
+}
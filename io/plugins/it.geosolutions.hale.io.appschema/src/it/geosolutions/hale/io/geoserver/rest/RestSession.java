@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.geoserver.rest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.fluent.Executor;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Connection-pooled HTTP client shared by the resource managers taking part
+ * in a REST session, e.g. the upload of an app-schema configuration.
+ * 
+ * <p>
+ * Connections are kept alive and reused across requests and managers, so
+ * that the TCP (and TLS) handshake is performed once per connection rather
+ * than once per request. Each manager still uses its own {@link Executor}, so
+ * credentials are not shared; they are sent preemptively, though, so a new
+ * manager does not cost an authentication challenge round trip.
+ * </p>
+ * 
+ * <p>
+ * Unless disabled, responses are requested gzip / deflate compressed and
+ * transparently decompressed. Documents read by the managers are kept in a
+ * {@link ResponseCache} and revalidated with conditional requests.
+ * </p>
+ * 
+ * <p>
+ * The session must be closed when done, to release pooled connections.
+ * </p>
+ */
+public class RestSession implements Closeable {
+
+	/**
+	 * Default maximum number of connections per route.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 8;
+	/**
+	 * Default connect timeout, in milliseconds.
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+	/**
+	 * Default socket (read) timeout, in milliseconds: none, since GeoServer
+	 * may take a long time to answer an upload that configures the uploaded
+	 * data store.
+	 */
+	public static final int DEFAULT_SOCKET_TIMEOUT = 0;
+	/**
+	 * Default time an idle connection is kept alive, in milliseconds, if the
+	 * server does not specify it.
+	 */
+	public static final long DEFAULT_KEEP_ALIVE = 30000;
+
+	private final long keepAlive;
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final CloseableHttpClient httpClient;
+	private volatile RetryPolicy retryPolicy = new RetryPolicy();
+	private volatile ResponseCache responseCache = new ResponseCache();
+
+	/**
+	 * Create a session with default settings.
+	 */
+	public RestSession() {
+		this(DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_CONNECT_TIMEOUT, DEFAULT_SOCKET_TIMEOUT,
+				DEFAULT_KEEP_ALIVE);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxConnectionsPerRoute the maximum number of connections per
+	 *            route (i.e. per GeoServer instance)
+	 * @param connectTimeout the connect timeout, in milliseconds
+	 * @param socketTimeout the socket (read) timeout, in milliseconds, 0 for
+	 *            no timeout
+	 * @param keepAlive the time an idle connection is kept alive, in
+	 *            milliseconds, if the server does not specify it
+	 */
+	public RestSession(int maxConnectionsPerRoute, int connectTimeout, int socketTimeout,
+			long keepAlive) {
+		this(maxConnectionsPerRoute, connectTimeout, socketTimeout, keepAlive, true);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxConnectionsPerRoute the maximum number of connections per
+	 *            route (i.e. per GeoServer instance)
+	 * @param connectTimeout the connect timeout, in milliseconds
+	 * @param socketTimeout the socket (read) timeout, in milliseconds, 0 for
+	 *            no timeout
+	 * @param keepAlive the time an idle connection is kept alive, in
+	 *            milliseconds, if the server does not specify it
+	 * @param compression whether to request compressed responses
+	 */
+	public RestSession(int maxConnectionsPerRoute, int connectTimeout, int socketTimeout,
+			long keepAlive, boolean compression) {
+		if (maxConnectionsPerRoute < 1) {
+			throw new IllegalArgumentException("maxConnectionsPerRoute must be greater than 0");
+		}
+
+		this.keepAlive = keepAlive;
+		// the connection time-to-live is left unlimited, the keep-alive
+		// strategy below determines how long a connection may stay idle
+		connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+		connectionManager.setMaxTotal(Math.max(maxConnectionsPerRoute,
+				connectionManager.getMaxTotal()));
+
+		RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(connectTimeout)
+				.setConnectionRequestTimeout(connectTimeout).setSocketTimeout(socketTimeout)
+				.build();
+
+		ConnectionKeepAliveStrategy keepAliveStrategy = new DefaultConnectionKeepAliveStrategy() {
+
+			@Override
+			public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+				long duration = super.getKeepAliveDuration(response, context);
+				// use the configured value if the server didn't specify one
+				return (duration > 0) ? duration : RestSession.this.keepAlive;
+			}
+		};
+
+		// the builder adds the Accept-Encoding header and decodes compressed
+		// responses by default
+		HttpClientBuilder clientBuilder = HttpClients.custom()
+				.setConnectionManager(connectionManager).setDefaultRequestConfig(requestConfig)
+				.setKeepAliveStrategy(keepAliveStrategy);
+		if (!compression) {
+			clientBuilder.disableContentCompression();
+		}
+		httpClient = clientBuilder.build();
+	}
+
+	/**
+	 * Create a new executor backed by the pooled HTTP client of this session.
+	 * Connections that have been idle for too long are closed first.
+	 * 
+	 * @return the executor
+	 */
+	public Executor newExecutor() {
+		closeIdleConnections();
+		return Executor.newInstance(httpClient);
+	}
+
+	/**
+	 * Close the pooled connections whose keep-alive time has expired, or that
+	 * have been idle for longer than the configured keep-alive time.
+	 * Connections in use are not affected.
+	 */
+	public void closeIdleConnections() {
+		connectionManager.closeExpiredConnections();
+		connectionManager.closeIdleConnections(keepAlive, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return the maximum number of connections per route
+	 */
+	public int getMaxConnectionsPerRoute() {
+		return connectionManager.getDefaultMaxPerRoute();
+	}
+
+	/**
+	 * @return the retry policy of the managers taking part in this session
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * Set the retry policy of the managers taking part in this session. It
+	 * applies to managers created afterwards.
+	 * 
+	 * @param retryPolicy the retry policy, {@link RetryPolicy#NONE} if
+	 *            <code>null</code>
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = (retryPolicy != null) ? retryPolicy : RetryPolicy.NONE;
+	}
+
+	/**
+	 * @return the cache of the documents read by the managers taking part in
+	 *         this session, may be <code>null</code>
+	 */
+	public ResponseCache getResponseCache() {
+		return responseCache;
+	}
+
+	/**
+	 * Set the cache of the documents read by the managers taking part in this
+	 * session. It applies to managers created afterwards.
+	 * 
+	 * @param responseCache the response cache, if <code>null</code> responses
+	 *            are not cached
+	 */
+	public void setResponseCache(ResponseCache responseCache) {
+		this.responseCache = responseCache;
+	}
+
+	/**
+	 * Release all pooled connections.
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		httpClient.close();
+	}
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+
+package it.geosolutions.hale.io.geoserver.rest;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.HttpResponseException;
+
+/**
+ * Policy governing the retry of failed REST requests.
+ * 
+ * <p>
+ * Only transient failures are retried, i.e. I/O errors occurring while
+ * talking to GeoServer and responses whose status code signals a temporarily
+ * unavailable or overloaded server (429, 502, 503 and 504). The delay between
+ * attempts grows exponentially, and half of it is randomized so that
+ * concurrent clients do not retry in lockstep.
+ * </p>
+ * 
+ * <p>
+ * Whether a request may be retried at all is up to the caller: only
+ * idempotent requests should be.
+ * </p>
+ */
+public class RetryPolicy {
+
+	/**
+	 * Default maximum number of attempts.
+	 */
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+	/**
+	 * Default delay before the first retry, in milliseconds.
+	 */
+	public static final long DEFAULT_INITIAL_DELAY = 500;
+	/**
+	 * Default maximum delay between attempts, in milliseconds.
+	 */
+	public static final long DEFAULT_MAX_DELAY = 10000;
+
+	/**
+	 * Policy that never retries.
+	 */
+	public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+	private final int maxAttempts;
+	private final long initialDelay;
+	private final long maxDelay;
+
+	/**
+	 * Create a policy with default settings.
+	 */
+	public RetryPolicy() {
+		this(DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_DELAY, DEFAULT_MAX_DELAY);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxAttempts the maximum number of attempts, including the first
+	 *            one
+	 * @param initialDelay the delay before the first retry, in milliseconds
+	 * @param maxDelay the maximum delay between attempts, in milliseconds
+	 */
+	public RetryPolicy(int maxAttempts, long initialDelay, long maxDelay) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("maxAttempts must be greater than 0");
+		}
+		if (initialDelay < 0 || maxDelay < initialDelay) {
+			throw new IllegalArgumentException(
+					"Delays must not be negative and maxDelay must not be less than initialDelay");
+		}
+		this.maxAttempts = maxAttempts;
+		this.initialDelay = initialDelay;
+		this.maxDelay = maxDelay;
+	}
+
+	/**
+	 * @return the maximum number of attempts, including the first one
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Tells whether a request that failed with the provided exception should
+	 * be attempted again.
+	 * 
+	 * @param failure the failure
+	 * @param attempt the number of the failed attempt, starting from 1
+	 * @return <code>true</code> if the request should be retried
+	 */
+	public boolean shouldRetry(Exception failure, int attempt) {
+		return attempt < maxAttempts && isTransient(failure);
+	}
+
+	/**
+	 * Computes the delay to wait for before the next attempt.
+	 * 
+	 * @param attempt the number of the failed attempt, starting from 1
+	 * @return the delay, in milliseconds
+	 */
+	public long getDelay(int attempt) {
+		if (initialDelay == 0) {
+			return 0;
+		}
+
+		// exponential backoff, capped; shift is bounded to avoid overflow
+		long backoff = Math.min(maxDelay, initialDelay << Math.min(attempt - 1, 30));
+		if (backoff <= 0) {
+			backoff = maxDelay;
+		}
+		long half = backoff / 2;
+		return half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+	}
+
+	/**
+	 * @param failure the failure
+	 * @return <code>true</code> if the failure is likely to be temporary
+	 */
+	protected boolean isTransient(Exception failure) {
+		if (failure instanceof HttpResponseException) {
+			int statusCode = ((HttpResponseException) failure).getStatusCode();
+			return statusCode == 429 || statusCode == 502 || statusCode == 503
+					|| statusCode == 504;
+		}
+		// protocol violations and malformed responses won't go away by
+		// themselves, other I/O errors (e.g. refused connections, timeouts)
+		// might
+		return failure instanceof IOException && !(failure instanceof ClientProtocolException);
+	}
+
+}
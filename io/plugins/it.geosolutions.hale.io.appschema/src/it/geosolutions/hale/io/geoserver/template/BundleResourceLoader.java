@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2015 Data Harmonisation Panel
+ * 
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Contributors:
+ *     Data Harmonisation Panel <http://www.dhpanel.eu>
+ */
+
+package it.geosolutions.hale.io.geoserver.template;
+
+import java.io.InputStream;
+
+import org.apache.commons.collections.ExtendedProperties;
+import org.apache.velocity.exception.ResourceNotFoundException;
+import org.apache.velocity.runtime.resource.Resource;
+import org.apache.velocity.runtime.resource.loader.ResourceLoader;
+
+/**
+ * Velocity resource loader reading templates from the classpath of this
+ * bundle.
+ * 
+ * <p>
+ * Velocity's own classpath loader resolves resources via the context class
+ * loader, which does not work in an OSGi context; this loader uses the class
+ * loader of the {@link Templates} class instead. Templates are bundled
+ * resources and thus never change: they can be cached indefinitely.
+ * </p>
+ */
+class BundleResourceLoader extends ResourceLoader {
+
+	/**
+	 * @see org.apache.velocity.runtime.resource.loader.ResourceLoader#init(org.apache.commons.collections.ExtendedProperties)
+	 */
+	@Override
+	public void init(ExtendedProperties configuration) {
+		// nothing to configure
+	}
+
+	/**
+	 * @see org.apache.velocity.runtime.resource.loader.ResourceLoader#getResourceStream(java.lang.String)
+	 */
+	@Override
+	public InputStream getResourceStream(String source) throws ResourceNotFoundException {
+		if (source == null || source.isEmpty()) {
+			throw new ResourceNotFoundException("No template name provided");
+		}
+
+		String location = source.startsWith("/") ? source : "/" + source;
+		InputStream templateStream = Templates.class.getResourceAsStream(location);
+		if (templateStream == null) {
+			throw new ResourceNotFoundException("Template resource not found: " + location);
+		}
+
+		return templateStream;
+	}
+
+	/**
+	 * @see org.apache.velocity.runtime.resource.loader.ResourceLoader#isSourceModified(org.apache.velocity.runtime.resource.Resource)
+	 */
+	@Override
+	public boolean isSourceModified(Resource resource) {
+		return false;
+	}
+
+	/**
+	 * @see org.apache.velocity.runtime.resource.loader.ResourceLoader#getLastModified(org.apache.velocity.runtime.resource.Resource)
+	 */
+	@Override
+	public long getLastModified(Resource resource) {
+		return 0;
+	}
+
+}
@@ -15,31 +15,40 @@
 
 package it.geosolutions.hale.io.geoserver.template;
 
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.StringWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
 
-import com.google.common.io.Files;
-
 /**
  * Singleton class encapsulating a Velocity engine instance.
  * 
+ * <p>
+ * Templates are loaded from the classpath and parsed only once: parsed
+ * templates are cached by location and shared among threads, as merging a
+ * parsed template is thread-safe.
+ * </p>
+ * 
  * @author Stefano Costa, GeoSolutions
  */
 public class Templates {
 
-	private static Templates instance;
+	private static final String ENCODING = "UTF-8";
+	private static final String LOADER_NAME = "bundle";
+
+	private static volatile Templates instance;
 
 	/**
 	 * Return the singleton factory instance.
@@ -49,29 +58,37 @@ public class Templates {
 	 *             engine
 	 */
 	public static Templates getInstance() throws TemplateException {
-		if (instance == null) {
-			instance = new Templates();
+		Templates result = instance;
+		if (result == null) {
+			synchronized (Templates.class) {
+				result = instance;
+				if (result == null) {
+					result = new Templates();
+					instance = result;
+				}
+			}
 		}
 
-		return instance;
+		return result;
 	}
 
-	private final File tmpDir;
 	private final VelocityEngine ve;
+	private final ConcurrentMap<String, Template> templateCache = new ConcurrentHashMap<>();
+	private final AtomicInteger parsedTemplateCount = new AtomicInteger();
 
 	private Templates() throws TemplateException {
 		ve = new VelocityEngine();
 
-		tmpDir = Files.createTempDir();
-		tmpDir.deleteOnExit();
-
 		ve.setProperty(VelocityEngine.RUNTIME_LOG_LOGSYSTEM_CLASS,
 				"org.apache.velocity.runtime.log.JdkLogChute");
-		ve.setProperty(VelocityEngine.RESOURCE_LOADER, "file");
-		ve.setProperty("class.resource.loader.description", "Velocity File Resource Loader");
-		ve.setProperty("file.resource.loader.class",
-				"org.apache.velocity.runtime.resource.loader.FileResourceLoader");
-		ve.setProperty("file.resource.loader.path", tmpDir.getAbsolutePath());
+		ve.setProperty(VelocityEngine.RESOURCE_LOADER, LOADER_NAME);
+		ve.setProperty(LOADER_NAME + ".resource.loader.description",
+				"Velocity Bundle Classpath Resource Loader");
+		// pass an instance, as Velocity cannot instantiate classes of this
+		// bundle by name in an OSGi context
+		ve.setProperty(LOADER_NAME + ".resource.loader.instance", new BundleResourceLoader());
+		ve.setProperty(LOADER_NAME + ".resource.loader.cache", "true");
+		ve.setProperty(LOADER_NAME + ".resource.loader.modificationCheckInterval", "0");
 
 		try {
 			ve.init();
@@ -86,10 +103,8 @@ public class Templates {
 	 * returned as an {@link InputStream} instance.
 	 * 
 	 * <p>
-	 * NOTE: due to a problem with Velocity's classpath loader not working in an
-	 * OSGi context, the template file is first copied to a temp file and then
-	 * loaded from there. {@link File#deleteOnExit()} is invoked on the temp
-	 * file <code>File</code> object after the template is merged.
+	 * Prefer {@link #mergeTemplate(String, Map, OutputStream)}, which does not
+	 * buffer the output in memory.
 	 * </p>
 	 * 
 	 * @param templateResource the template to load
@@ -99,65 +114,70 @@ public class Templates {
 	 */
 	public InputStream loadTemplate(String templateResource, Map<String, Object> variables)
 			throws TemplateException {
-		VelocityContext vc = new VelocityContext(variables);
-
-		try {
-			File templateFile = copyTemplateToFile(templateResource);
-
-			Template template = ve.getTemplate(templateFile.getName(), "UTF-8");
-
-			StringWriter sw = new StringWriter();
-			template.merge(vc, sw);
-
-			templateFile.deleteOnExit();
-
-			return new ByteArrayInputStream(sw.toString().getBytes("UTF-8"));
-		} catch (Exception e) {
-			throw new TemplateException(e);
-		}
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		mergeTemplate(templateResource, variables, bos);
 
+		return new ByteArrayInputStream(bos.toByteArray());
 	}
 
-	private File copyTemplateToFile(String templateResource) throws IOException {
-		InputStream templateStream = getClass().getResourceAsStream(templateResource);
-		if (templateStream == null) {
-			throw new IOException("Template resource not found: " + templateResource);
-		}
+	/**
+	 * Merges the specified template with a Velocity context instance created
+	 * from the provided variables, writing the output to <code>out</code>
+	 * with UTF-8 encoding.
+	 * 
+	 * <p>
+	 * The output stream is flushed, but not closed.
+	 * </p>
+	 * 
+	 * @param templateResource the template to load (relative to classpath)
+	 * @param variables the template context
+	 * @param out the output stream
+	 * @throws TemplateException if an error occurs processing the template
+	 */
+	public void mergeTemplate(String templateResource, Map<String, Object> variables,
+			OutputStream out) throws TemplateException {
+		Template template = getTemplate(templateResource);
+		VelocityContext vc = new VelocityContext(variables);
 
-		File templateFile = new File(tmpDir, createRandomTemplateName(templateResource));
-		OutputStream outputStream = null;
 		try {
-			outputStream = new BufferedOutputStream(new FileOutputStream(templateFile));
-			IOUtils.copy(templateStream, outputStream);
-
-			return templateFile;
-		} finally {
-			closeAndIgnoreException(templateStream);
-			closeAndIgnoreException(outputStream);
+			Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+			template.merge(vc, writer);
+			writer.flush();
+		} catch (IOException e) {
+			throw new TemplateException(e);
+		} catch (Exception e) {
+			throw new TemplateException("Error merging template " + templateResource, e);
 		}
 	}
 
-	private String createRandomTemplateName(String templateResource) {
-		return "template" + templateResource.hashCode() + System.currentTimeMillis() + ".vm";
+	/**
+	 * @return the number of templates parsed so far
+	 */
+	public int getParsedTemplateCount() {
+		return parsedTemplateCount.get();
 	}
 
-	private void closeAndIgnoreException(InputStream in) {
-		if (in != null) {
-			try {
-				in.close();
-			} catch (IOException e) {
-				// ignore
-			}
+	private Template getTemplate(String templateResource) throws TemplateException {
+		if (templateResource == null || templateResource.isEmpty()) {
+			throw new TemplateException("Template resource must be set");
 		}
-	}
 
-	private void closeAndIgnoreException(OutputStream out) {
-		if (out != null) {
+		Template template = templateCache.get(templateResource);
+		if (template == null) {
 			try {
-				out.close();
-			} catch (IOException e) {
-				// ignore
+				template = ve.getTemplate(templateResource, ENCODING);
+			} catch (Exception e) {
+				throw new TemplateException("Error loading template " + templateResource, e);
+			}
+			Template existing = templateCache.putIfAbsent(templateResource, template);
+			if (existing != null) {
+				template = existing;
+			}
+			else {
+				parsedTemplateCount.incrementAndGet();
 			}
 		}
+
+		return template;
 	}
 }